@@ -2,9 +2,12 @@ package com.investtracker.alert.repository;
 
 import com.investtracker.alert.entity.PriceAlert;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
@@ -13,5 +16,10 @@ public interface PriceAlertRepository extends JpaRepository<PriceAlert, UUID> {
     List<PriceAlert> findByUserIdAndIsActiveTrue(UUID userId);
     List<PriceAlert> findByIsActiveTrue();
     boolean existsByIdAndUserId(UUID id, UUID userId);
+    
+    @Query("SELECT DISTINCT a.asset.id FROM PriceAlert a WHERE a.isActive = true AND a.triggeredAt IS NULL")
+    List<UUID> findWatchedAssetIds();
+    
+    @Query("SELECT a FROM PriceAlert a JOIN FETCH a.user JOIN FETCH a.asset WHERE a.id = :id")
+    Optional<PriceAlert> findWithUserAndAssetById(@Param("id") UUID id);
 }
-
@@ -6,10 +6,12 @@ import com.investtracker.alert.entity.PriceAlert;
 import com.investtracker.alert.repository.PriceAlertRepository;
 import com.investtracker.asset.entity.Asset;
 import com.investtracker.asset.service.AssetService;
+import com.investtracker.marketdata.fx.FxRateService;
 import com.investtracker.marketdata.service.MarketDataService;
 import com.investtracker.notification.EmailService;
 import com.investtracker.user.entity.User;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -17,10 +19,12 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class AlertService {
@@ -28,6 +32,10 @@ public class AlertService {
     private final AssetService assetService;
     private final MarketDataService marketDataService;
     private final EmailService emailService;
+    private final FxRateService fxRateService;
+    
+    // Untriggered active alerts by asset, for checking streamed prices; null until first used or after a change
+    private volatile Map<UUID, List<WatchedAlert>> watchedAlerts;
     
     public List<PriceAlertResponse> getUserAlerts(UUID userId) {
         return alertRepository.findByUserId(userId)
@@ -56,6 +64,7 @@ public class AlertService {
         alert.setCurrency(request.getCurrency());
         alert.setIsActive(true);
         
+        watchedAlerts = null;
         return toResponse(alertRepository.save(alert));
     }
     
@@ -63,6 +72,7 @@ public class AlertService {
     public boolean deleteAlert(UUID alertId, UUID userId) {
         if (alertRepository.existsByIdAndUserId(alertId, userId)) {
             alertRepository.deleteById(alertId);
+            watchedAlerts = null;
             return true;
         }
         return false;
@@ -74,6 +84,7 @@ public class AlertService {
             .filter(alert -> alert.getUser().getId().equals(userId))
             .map(alert -> {
                 alert.setIsActive(isActive);
+                watchedAlerts = null;
                 return toResponse(alertRepository.save(alert));
             });
     }
@@ -102,6 +113,7 @@ public class AlertService {
                     alert.setIsActive(true);
                 }
                 
+                watchedAlerts = null;
                 return toResponse(alertRepository.save(alert));
             });
     }
@@ -129,6 +141,7 @@ public class AlertService {
             .map(alert -> {
                 alert.setTriggeredAt(null);
                 alert.setIsActive(true);
+                watchedAlerts = null;
                 return toResponse(alertRepository.save(alert));
             });
     }
@@ -149,35 +162,80 @@ public class AlertService {
                 alert.getCurrency()
             );
             
-            if (currentPrice.isPresent()) {
-                boolean triggered = false;
-                if (alert.getConditionType() == PriceAlert.ConditionType.BELOW) {
-                    triggered = currentPrice.get().compareTo(alert.getTargetPrice()) < 0;
-                } else if (alert.getConditionType() == PriceAlert.ConditionType.ABOVE) {
-                    triggered = currentPrice.get().compareTo(alert.getTargetPrice()) > 0;
-                }
-                
-                if (triggered) {
-                    alert.setTriggeredAt(LocalDateTime.now());
-                    alert.setIsActive(false);
-                    alertRepository.save(alert);
-                    
-                    // Send email notification
-                    try {
-                        emailService.sendPriceAlertEmail(
-                            alert.getUser(),
-                            alert,
-                            currentPrice.get().toString()
-                        );
-                    } catch (Exception e) {
-                        // Log error but don't fail the alert trigger
-                        System.err.println("Failed to send email notification: " + e.getMessage());
-                    }
-                }
+            if (currentPrice.isPresent() && isTriggered(alert.getConditionType(), alert.getTargetPrice(), currentPrice.get())) {
+                trigger(alert, currentPrice.get());
+            }
+        }
+    }
+    
+    /**
+     * Checks a streamed price against the active alerts on the asset. The alerts are held in memory, re-read
+     * after any change made here and every minute, so a price tick costs no query unless it fires an alert.
+     */
+    public void checkAlerts(UUID assetId, String currency, BigDecimal price) {
+        for (WatchedAlert watched : watchedAlerts().getOrDefault(assetId, List.of())) {
+            Optional<BigDecimal> converted = fxRateService.convert(price, currency, watched.currency());
+            if (converted.isPresent() && isTriggered(watched.conditionType(), watched.targetPrice(), converted.get())) {
+                alertRepository.findWithUserAndAssetById(watched.alertId())
+                    .filter(alert -> Boolean.TRUE.equals(alert.getIsActive()) && alert.getTriggeredAt() == null)
+                    .ifPresent(alert -> trigger(alert, converted.get()));
             }
         }
     }
     
+    @Scheduled(fixedDelay = 60000)
+    public void reloadWatchedAlerts() {
+        if (watchedAlerts != null) {
+            watchedAlerts = loadWatchedAlerts();
+        }
+    }
+    
+    private Map<UUID, List<WatchedAlert>> watchedAlerts() {
+        Map<UUID, List<WatchedAlert>> current = watchedAlerts;
+        if (current == null) {
+            current = loadWatchedAlerts();
+            watchedAlerts = current;
+        }
+        return current;
+    }
+    
+    private Map<UUID, List<WatchedAlert>> loadWatchedAlerts() {
+        return alertRepository.findByIsActiveTrue()
+            .stream()
+            .filter(alert -> alert.getTriggeredAt() == null)
+            .collect(Collectors.groupingBy(alert -> alert.getAsset().getId(), Collectors.mapping(
+                alert -> new WatchedAlert(alert.getId(), alert.getConditionType(), alert.getTargetPrice(), alert.getCurrency()),
+                Collectors.toList())));
+    }
+    
+    private static boolean isTriggered(PriceAlert.ConditionType conditionType, BigDecimal targetPrice, BigDecimal price) {
+        if (conditionType == PriceAlert.ConditionType.BELOW) {
+            return price.compareTo(targetPrice) < 0;
+        } else if (conditionType == PriceAlert.ConditionType.ABOVE) {
+            return price.compareTo(targetPrice) > 0;
+        }
+        return false;
+    }
+    
+    private void trigger(PriceAlert alert, BigDecimal price) {
+        alert.setTriggeredAt(LocalDateTime.now());
+        alert.setIsActive(false);
+        alertRepository.save(alert);
+        watchedAlerts = null;
+        
+        // Send email notification
+        try {
+            emailService.sendPriceAlertEmail(
+                alert.getUser(),
+                alert,
+                price.toString()
+            );
+        } catch (Exception e) {
+            // Log error but don't fail the alert trigger
+            log.error("Failed to send email notification for alert {}: {}", alert.getId(), e.getMessage());
+        }
+    }
+    
     private PriceAlertResponse toResponse(PriceAlert alert) {
         return new PriceAlertResponse(
             alert.getId(),
@@ -192,5 +250,7 @@ public class AlertService {
             alert.getCreatedAt()
         );
     }
+    
+    private record WatchedAlert(UUID alertId, PriceAlert.ConditionType conditionType, BigDecimal targetPrice, String currency) {
+    }
 }
-
@@ -0,0 +1,28 @@
+package com.investtracker.analytics.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class AnalyticsExecutorConfig {
+    /**
+     * Computes the portfolio summaries of a dashboard in parallel. When saturated new parts are rejected
+     * and the dashboard reports them unavailable, so request threads never compute summaries inline.
+     */
+    @Bean(name = "dashboardExecutor")
+    public ThreadPoolTaskExecutor dashboardExecutor(AnalyticsProperties properties) {
+        int parallelism = properties.getDashboard().getParallelism();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(parallelism * 8);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("dashboard-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
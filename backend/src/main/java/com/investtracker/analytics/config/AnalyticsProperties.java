@@ -0,0 +1,56 @@
+package com.investtracker.analytics.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Tunables for portfolio analytics, bound from the {@code analytics.*} keys in application.yml.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "analytics")
+public class AnalyticsProperties {
+    private SummaryCache summaryCache = new SummaryCache();
+    private Dashboard dashboard = new Dashboard();
+    
+    @Data
+    public static class SummaryCache {
+        /**
+         * Maximum number of portfolios whose summary is kept
+         */
+        private long maximumSize = 10_000;
+        
+        /**
+         * Summaries not read for this long are dropped
+         */
+        private Duration expireAfterAccess = Duration.ofMinutes(30);
+    }
+    
+    @Data
+    public static class Dashboard {
+        /**
+         * How long the dashboard waits for portfolio summaries; portfolios not summarised by then are
+         * reported as unavailable instead of holding up the rest
+         */
+        private Duration deadline = Duration.ofSeconds(5);
+        
+        /**
+         * How much of the deadline the summaries wait for held prices to be resolved in one batch; past it
+         * they start anyway and fall back to last known prices for anything still being fetched
+         */
+        private Duration priceResolveBudget = Duration.ofSeconds(1);
+        
+        /**
+         * Maximum number of portfolio summaries computed concurrently across all dashboard requests
+         */
+        private int parallelism = 8;
+        
+        /**
+         * Number of recent transactions shown
+         */
+        private int recentTransactions = 10;
+    }
+}
@@ -8,6 +8,7 @@ import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 @Data
 @NoArgsConstructor
@@ -21,5 +22,10 @@ public class DashboardResponse {
     private List<Map<String, Object>> topPerformingAssets; // {assetSymbol, return, value}
     private List<TransactionResponse> recentTransactions;
     private Integer totalPortfolios;
+    
+    /**
+     * Portfolios left out of the totals because their summary failed or missed the dashboard deadline
+     */
+    private List<UUID> unavailablePortfolioIds;
 }
 
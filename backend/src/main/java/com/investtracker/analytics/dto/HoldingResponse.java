@@ -22,5 +22,15 @@ public class HoldingResponse {
     private BigDecimal unrealizedPnL;
     private BigDecimal realizedPnL;
     private String currency;
+    
+    /**
+     * When the current price was fetched (epoch millis); null if the holding could not be priced
+     */
+    private Long priceAsOf;
+    
+    /**
+     * Whether the current price is out of date, e.g. a last known price served while providers are down
+     */
+    private boolean priceStale;
 }
 
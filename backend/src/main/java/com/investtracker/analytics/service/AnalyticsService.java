@@ -1,19 +1,21 @@
 package com.investtracker.analytics.service;
 
+import com.investtracker.analytics.config.AnalyticsProperties;
 import com.investtracker.analytics.dto.*;
 import com.investtracker.analytics.entity.PortfolioSnapshot;
 import com.investtracker.analytics.repository.PortfolioSnapshotRepository;
 import com.investtracker.asset.entity.Asset;
+import com.investtracker.common.math.Fixed8;
 import com.investtracker.marketdata.service.MarketDataService;
 import com.investtracker.portfolio.entity.Portfolio;
 import com.investtracker.portfolio.repository.PortfolioRepository;
 import com.investtracker.portfolio.service.PortfolioService;
+import com.investtracker.position.repository.PositionRepository;
 import com.investtracker.transaction.dto.TransactionResponse;
-import com.investtracker.transaction.entity.Transaction;
-import com.investtracker.transaction.repository.TransactionRepository;
 import com.investtracker.transaction.service.TransactionService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.Cacheable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,165 +23,33 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class AnalyticsService {
     private final PortfolioService portfolioService;
     private final PortfolioRepository portfolioRepository;
-    private final TransactionRepository transactionRepository;
     private final TransactionService transactionService;
+    private final PortfolioSummaryCache portfolioSummaryCache;
+    private final PositionRepository positionRepository;
     private final MarketDataService marketDataService;
+    private final AnalyticsProperties analyticsProperties;
+    @Qualifier("dashboardExecutor")
+    private final Executor dashboardExecutor;
     private final PortfolioSnapshotRepository portfolioSnapshotRepository;
     private final com.investtracker.analytics.service.CorrelationService correlationService;
     
-    @Cacheable(value = "portfolioSummaries", key = "#portfolioId.toString() + '_' + #userId.toString()")
     public PortfolioSummaryResponse getPortfolioSummary(UUID portfolioId, UUID userId) {
-        Portfolio portfolio = portfolioService.findById(portfolioId)
-            .orElseThrow(() -> new IllegalArgumentException("Portfolio not found"));
-        
-        if (!portfolio.getUser().getId().equals(userId)) {
-            throw new IllegalArgumentException("Portfolio access denied");
-        }
-        
-        List<Transaction> transactions = transactionRepository.findByPortfolioIdOrderByTransactionDateDesc(portfolioId);
-        
-        // Calculate holdings
-        Map<UUID, HoldingCalculation> holdings = calculateHoldings(transactions);
-        
-        // Get current prices
-        List<Asset> assets = holdings.keySet().stream()
-            .map(assetId -> {
-                // We need to get asset from transaction - for now, use first transaction
-                return transactions.stream()
-                    .filter(t -> t.getAsset().getId().equals(assetId))
-                    .findFirst()
-                    .map(Transaction::getAsset)
-                    .orElse(null);
-            })
-            .filter(Objects::nonNull)
-            .collect(Collectors.toList());
-        
-        Map<Asset, BigDecimal> currentPrices = marketDataService.getCurrentPrices(assets, portfolio.getBaseCurrency());
-        
-        // Build holdings response
-        List<HoldingResponse> holdingResponses = new ArrayList<>();
-        BigDecimal totalValue = BigDecimal.ZERO;
-        BigDecimal totalCost = BigDecimal.ZERO;
-        
-        for (Map.Entry<UUID, HoldingCalculation> entry : holdings.entrySet()) {
-            UUID assetId = entry.getKey();
-            HoldingCalculation calc = entry.getValue();
-            
-            Asset asset = assets.stream()
-                .filter(a -> a.getId().equals(assetId))
-                .findFirst()
-                .orElse(null);
-            
-            if (asset == null || calc.quantity.compareTo(BigDecimal.ZERO) <= 0) {
-                continue;
-            }
-            
-            BigDecimal currentPrice = currentPrices.getOrDefault(asset, BigDecimal.ZERO);
-            BigDecimal currentValue = calc.quantity.multiply(currentPrice);
-            BigDecimal unrealizedPnL = currentValue.subtract(calc.totalCost);
-            
-            totalValue = totalValue.add(currentValue);
-            totalCost = totalCost.add(calc.totalCost);
-            
-            holdingResponses.add(new HoldingResponse(
-                assetId,
-                asset.getSymbol(),
-                asset.getName(),
-                asset.getAssetType().name(),
-                calc.quantity,
-                calc.averagePrice,
-                currentPrice,
-                currentValue,
-                unrealizedPnL,
-                calc.realizedPnL,
-                asset.getCurrency()
-            ));
-        }
-        
-        // Calculate allocation
-        Map<String, BigDecimal> allocationByType = holdingResponses.stream()
-            .collect(Collectors.groupingBy(
-                HoldingResponse::getAssetType,
-                Collectors.reducing(BigDecimal.ZERO, HoldingResponse::getCurrentValue, BigDecimal::add)
-            ));
-        
-        // Top 5 assets
-        Map<String, BigDecimal> topAssets = holdingResponses.stream()
-            .sorted((a, b) -> b.getCurrentValue().compareTo(a.getCurrentValue()))
-            .limit(5)
-            .collect(Collectors.toMap(
-                HoldingResponse::getAssetSymbol,
-                HoldingResponse::getCurrentValue,
-                (a, b) -> a,
-                LinkedHashMap::new
-            ));
-        
-        BigDecimal totalPnL = totalValue.subtract(totalCost);
-        BigDecimal totalPnLPercent = totalCost.compareTo(BigDecimal.ZERO) > 0
-            ? totalPnL.divide(totalCost, 4, RoundingMode.HALF_UP).multiply(new BigDecimal("100"))
-            : BigDecimal.ZERO;
-        
-        return new PortfolioSummaryResponse(
-            totalValue,
-            totalCost,
-            totalPnL,
-            totalPnLPercent,
-            portfolio.getBaseCurrency(),
-            holdingResponses,
-            allocationByType,
-            topAssets
-        );
-    }
-    
-    private Map<UUID, HoldingCalculation> calculateHoldings(List<Transaction> transactions) {
-        Map<UUID, HoldingCalculation> holdings = new HashMap<>();
-        
-        for (Transaction tx : transactions) {
-            UUID assetId = tx.getAsset().getId();
-            HoldingCalculation calc = holdings.computeIfAbsent(assetId, k -> new HoldingCalculation());
-            
-            switch (tx.getTransactionType()) {
-                case BUY:
-                case DEPOSIT:
-                case TRANSFER_IN:
-                    // Add to holdings
-                    calc.quantity = calc.quantity.add(tx.getQuantity());
-                    calc.totalCost = calc.totalCost.add(tx.getQuantity().multiply(tx.getPrice()).add(tx.getFee()));
-                    
-                    if (calc.quantity.compareTo(BigDecimal.ZERO) > 0) {
-                        calc.averagePrice = calc.totalCost.divide(calc.quantity, 8, RoundingMode.HALF_UP);
-                    }
-                    break;
-                    
-                case SELL:
-                case WITHDRAW:
-                case TRANSFER_OUT:
-                    // Remove from holdings (FIFO)
-                    if (calc.quantity.compareTo(tx.getQuantity()) < 0) {
-                        throw new IllegalStateException("Insufficient holdings for transaction");
-                    }
-                    
-                    BigDecimal sellPrice = tx.getPrice();
-                    BigDecimal sellQuantity = tx.getQuantity();
-                    BigDecimal costBasis = calc.averagePrice.multiply(sellQuantity);
-                    BigDecimal proceeds = sellPrice.multiply(sellQuantity).subtract(tx.getFee());
-                    BigDecimal realizedPnL = proceeds.subtract(costBasis);
-                    
-                    calc.realizedPnL = calc.realizedPnL.add(realizedPnL);
-                    calc.quantity = calc.quantity.subtract(sellQuantity);
-                    calc.totalCost = calc.totalCost.subtract(costBasis);
-                    break;
-            }
-        }
-        
-        return holdings;
+        return portfolioSummaryCache.get(portfolioId, userId);
     }
     
     public List<PerformanceDataPoint> getPortfolioPerformance(UUID portfolioId, UUID userId, String interval) {
@@ -335,10 +205,12 @@ public class AnalyticsService {
         
         // Calculate volatility (standard deviation of returns)
         List<PortfolioSnapshot> snapshots = portfolioSnapshotRepository.findByPortfolioIdOrderByDateDesc(portfolioId);
-        BigDecimal volatility = calculateVolatility(snapshots);
+        long[] returns = new long[Math.max(0, snapshots.size() - 1)];
+        int returnCount = calculateReturns(snapshots, returns);
+        BigDecimal volatility = calculateVolatility(returns, returnCount);
         
         // Calculate Sharpe ratio (simplified - assumes risk-free rate of 0)
-        BigDecimal sharpeRatio = calculateSharpeRatio(snapshots, volatility);
+        BigDecimal sharpeRatio = calculateSharpeRatio(returns, returnCount, volatility);
         
         return new RiskMetricsResponse(
             portfolioConcentration,
@@ -349,109 +221,102 @@ public class AnalyticsService {
         );
     }
     
-    private BigDecimal calculateVolatility(List<PortfolioSnapshot> snapshots) {
-        if (snapshots.size() < 2) {
-            return BigDecimal.ZERO;
-        }
-        
-        // Calculate returns
-        List<BigDecimal> returns = new ArrayList<>();
+    /**
+     * Fills {@code returns} with the period returns between consecutive snapshots (newest first), as
+     * {@link Fixed8} values, skipping periods that start from zero
+     *
+     * @return the number of returns written
+     */
+    private int calculateReturns(List<PortfolioSnapshot> snapshots, long[] returns) {
+        int count = 0;
         for (int i = 1; i < snapshots.size(); i++) {
             BigDecimal prevValue = snapshots.get(i).getTotalValue();
             BigDecimal currValue = snapshots.get(i - 1).getTotalValue();
-            if (prevValue.compareTo(BigDecimal.ZERO) > 0) {
-                BigDecimal returnValue = currValue.subtract(prevValue)
-                    .divide(prevValue, 8, RoundingMode.HALF_UP);
-                returns.add(returnValue);
+            if (prevValue.signum() > 0) {
+                returns[count++] = Fixed8.relativeChange(prevValue, currValue, Fixed8.SCALE);
             }
         }
-        
-        if (returns.isEmpty()) {
+        return count;
+    }
+    
+    private BigDecimal calculateVolatility(long[] returns, int count) {
+        if (count == 0) {
             return BigDecimal.ZERO;
         }
         
-        // Calculate mean
-        BigDecimal mean = returns.stream()
-            .reduce(BigDecimal.ZERO, BigDecimal::add)
-            .divide(new BigDecimal(returns.size()), 8, RoundingMode.HALF_UP);
-        
-        // Calculate variance
-        BigDecimal variance = returns.stream()
-            .map(r -> r.subtract(mean).pow(2))
-            .reduce(BigDecimal.ZERO, BigDecimal::add)
-            .divide(new BigDecimal(returns.size()), 8, RoundingMode.HALF_UP);
+        long variance = Fixed8.variance(returns, count, Fixed8.mean(returns, count));
         
         // Standard deviation (volatility)
-        double stdDev = Math.sqrt(variance.doubleValue());
+        double stdDev = Math.sqrt(Fixed8.toDouble(variance));
         return BigDecimal.valueOf(stdDev).multiply(new BigDecimal("100")); // Convert to percentage
     }
     
-    private BigDecimal calculateSharpeRatio(List<PortfolioSnapshot> snapshots, BigDecimal volatility) {
-        if (snapshots.size() < 2 || volatility.compareTo(BigDecimal.ZERO) == 0) {
-            return BigDecimal.ZERO;
-        }
-        
-        // Calculate average return
-        BigDecimal avgReturn = BigDecimal.ZERO;
-        int count = 0;
-        for (int i = 1; i < snapshots.size(); i++) {
-            BigDecimal prevValue = snapshots.get(i).getTotalValue();
-            BigDecimal currValue = snapshots.get(i - 1).getTotalValue();
-            if (prevValue.compareTo(BigDecimal.ZERO) > 0) {
-                BigDecimal returnValue = currValue.subtract(prevValue)
-                    .divide(prevValue, 8, RoundingMode.HALF_UP)
-                    .multiply(new BigDecimal("100")); // Convert to percentage
-                avgReturn = avgReturn.add(returnValue);
-                count++;
-            }
-        }
-        
-        if (count == 0) {
+    private BigDecimal calculateSharpeRatio(long[] returns, int count, BigDecimal volatility) {
+        if (count == 0 || volatility.compareTo(BigDecimal.ZERO) == 0) {
             return BigDecimal.ZERO;
         }
         
-        avgReturn = avgReturn.divide(new BigDecimal(count), 4, RoundingMode.HALF_UP);
+        // Average return as a percentage
+        BigDecimal avgReturn = Fixed8.toBigDecimal(Math.multiplyExact(Fixed8.mean(returns, count), 100), 4);
         
         // Sharpe ratio = (Return - RiskFreeRate) / Volatility
         // Assuming risk-free rate = 0
-        return volatility.compareTo(BigDecimal.ZERO) > 0
-            ? avgReturn.divide(volatility, 4, RoundingMode.HALF_UP)
-            : BigDecimal.ZERO;
+        return avgReturn.divide(volatility, 4, RoundingMode.HALF_UP);
     }
     
+    /**
+     * Totals across all of the user's portfolios. The prices of every held asset are resolved first, in one
+     * batch per quote currency, for at most {@code analytics.dashboard.price-resolve-budget}; the portfolio
+     * summaries are then computed in parallel on the
+     * {@code dashboardExecutor}, alongside the recent transactions. Whatever is not done by
+     * {@code analytics.dashboard.deadline} is left out and its portfolio reported as unavailable, so the
+     * dashboard takes as long as its slowest portfolio, never longer than the deadline.
+     */
     public DashboardResponse getDashboard(UUID userId) {
         List<Portfolio> portfolios = portfolioRepository.findByUserId(userId);
+        long deadlineNanos = System.nanoTime() + analyticsProperties.getDashboard().getDeadline().toNanos();
+        
+        CompletableFuture<List<TransactionResponse>> recentTransactions = submit(
+            () -> transactionService.getRecentUserTransactions(userId, analyticsProperties.getDashboard().getRecentTransactions()));
+        // Summaries wait a short budget for held prices, so they share one batch instead of each fetching
+        waitForPrices(resolveHeldPrices(portfolios), analyticsProperties.getDashboard().getPriceResolveBudget().toNanos());
+        
+        Map<Portfolio, CompletableFuture<PortfolioSummaryResponse>> pendingSummaries = new LinkedHashMap<>();
+        for (Portfolio portfolio : portfolios) {
+            pendingSummaries.put(portfolio, submit(() -> getPortfolioSummary(portfolio.getId(), userId)));
+        }
         
         BigDecimal totalNetWorth = BigDecimal.ZERO;
         BigDecimal totalCost = BigDecimal.ZERO;
         Map<String, Map<String, Object>> assetPerformance = new HashMap<>();
+        List<UUID> unavailablePortfolioIds = new ArrayList<>();
         
         // Aggregate data from all portfolios
-        for (Portfolio portfolio : portfolios) {
-            try {
-                PortfolioSummaryResponse summary = getPortfolioSummary(portfolio.getId(), userId);
-                totalNetWorth = totalNetWorth.add(summary.getTotalValue());
-                totalCost = totalCost.add(summary.getTotalCost());
-                
-                // Track asset performance
-                for (HoldingResponse holding : summary.getHoldings()) {
-                    String symbol = holding.getAssetSymbol();
-                    if (!assetPerformance.containsKey(symbol)) {
-                        Map<String, Object> perf = new HashMap<>();
-                        perf.put("assetSymbol", symbol);
-                        perf.put("assetName", holding.getAssetName());
-                        perf.put("totalValue", BigDecimal.ZERO);
-                        perf.put("totalCost", BigDecimal.ZERO);
-                        perf.put("totalPnL", BigDecimal.ZERO);
-                        assetPerformance.put(symbol, perf);
-                    }
-                    Map<String, Object> perf = assetPerformance.get(symbol);
-                    perf.put("totalValue", ((BigDecimal) perf.get("totalValue")).add(holding.getCurrentValue()));
-                    perf.put("totalCost", ((BigDecimal) perf.get("totalCost")).add(holding.getAverageBuyPrice().multiply(holding.getQuantity())));
-                    perf.put("totalPnL", ((BigDecimal) perf.get("totalPnL")).add(holding.getUnrealizedPnL()));
+        for (Map.Entry<Portfolio, CompletableFuture<PortfolioSummaryResponse>> pending : pendingSummaries.entrySet()) {
+            PortfolioSummaryResponse summary = await(pending.getValue(), deadlineNanos, "summary of portfolio " + pending.getKey().getId());
+            if (summary == null) {
+                unavailablePortfolioIds.add(pending.getKey().getId());
+                continue;
+            }
+            totalNetWorth = totalNetWorth.add(summary.getTotalValue());
+            totalCost = totalCost.add(summary.getTotalCost());
+            
+            // Track asset performance
+            for (HoldingResponse holding : summary.getHoldings()) {
+                String symbol = holding.getAssetSymbol();
+                if (!assetPerformance.containsKey(symbol)) {
+                    Map<String, Object> perf = new HashMap<>();
+                    perf.put("assetSymbol", symbol);
+                    perf.put("assetName", holding.getAssetName());
+                    perf.put("totalValue", BigDecimal.ZERO);
+                    perf.put("totalCost", BigDecimal.ZERO);
+                    perf.put("totalPnL", BigDecimal.ZERO);
+                    assetPerformance.put(symbol, perf);
                 }
-            } catch (Exception e) {
-                // Skip portfolios with errors
+                Map<String, Object> perf = assetPerformance.get(symbol);
+                perf.put("totalValue", ((BigDecimal) perf.get("totalValue")).add(holding.getCurrentValue()));
+                perf.put("totalCost", ((BigDecimal) perf.get("totalCost")).add(holding.getAverageBuyPrice().multiply(holding.getQuantity())));
+                perf.put("totalPnL", ((BigDecimal) perf.get("totalPnL")).add(holding.getUnrealizedPnL()));
             }
         }
         
@@ -482,13 +347,7 @@ public class AnalyticsService {
             .limit(10)
             .collect(Collectors.toList());
         
-        // Recent transactions
-        List<TransactionResponse> recentTransactions = transactionService.getUserTransactionsForExport(
-            userId, null, null, null, null, null
-        ).stream()
-            .sorted((a, b) -> b.getTransactionDate().compareTo(a.getTransactionDate()))
-            .limit(10)
-            .collect(Collectors.toList());
+        List<TransactionResponse> recent = await(recentTransactions, deadlineNanos, "recent transactions");
         
         return new DashboardResponse(
             totalNetWorth,
@@ -497,11 +356,77 @@ public class AnalyticsService {
             overallPnLPercent,
             portfolios.isEmpty() ? "USD" : portfolios.get(0).getBaseCurrency(),
             topPerformingAssets,
-            recentTransactions,
-            portfolios.size()
+            recent != null ? recent : List.of(),
+            portfolios.size(),
+            unavailablePortfolioIds
         );
     }
     
+    /**
+     * Caches the price of every asset held across the portfolios, each once in its quote currency, so the
+     * summaries computed next convert cached prices instead of each fetching its own
+     */
+    private CompletableFuture<Void> resolveHeldPrices(List<Portfolio> portfolios) {
+        if (portfolios.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<UUID> portfolioIds = portfolios.stream().map(Portfolio::getId).collect(Collectors.toList());
+        CompletableFuture<Collection<Asset>> heldAssets = submit(() -> {
+            Map<UUID, Asset> assets = new LinkedHashMap<>();
+            positionRepository.findHeldByPortfolioIdIn(portfolioIds)
+                .forEach(position -> assets.putIfAbsent(position.getAsset().getId(), position.getAsset()));
+            return assets.values();
+        });
+        return heldAssets.thenCompose(marketDataService::resolvePrices);
+    }
+    
+    /**
+     * Waits up to {@code timeoutNanos} for the held prices. A fetch still running carries on and caches its
+     * prices; the summaries started next read what has arrived and fall back to last known prices.
+     */
+    private void waitForPrices(CompletableFuture<Void> prices, long timeoutNanos) {
+        try {
+            prices.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.debug("Dashboard prices not resolved within the budget, starting summaries");
+        } catch (ExecutionException e) {
+            log.warn("Dashboard price resolution failed: {}", e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Starts a dashboard part on the dashboard pool. A saturated pool fails the part at once, so it is
+     * reported unavailable instead of running on the request thread.
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> part) {
+        try {
+            return CompletableFuture.supplyAsync(part, dashboardExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * Result of a dashboard part, or null if it failed or was not done by the deadline; a late part is
+     * cancelled, though a summary already being computed still completes and is cached for the next request
+     */
+    private <T> T await(CompletableFuture<T> part, long deadlineNanos, String description) {
+        try {
+            return part.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            part.cancel(true);
+            log.warn("Dashboard left out {}: not done within the deadline", description);
+        } catch (ExecutionException e) {
+            log.warn("Dashboard left out {}: {}", description, e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            part.cancel(true);
+        }
+        return null;
+    }
+    
     public com.investtracker.analytics.dto.CorrelationResponse calculateCorrelation(UUID portfolioId, UUID userId) {
         Portfolio portfolio = portfolioService.findById(portfolioId)
             .orElseThrow(() -> new IllegalArgumentException("Portfolio not found"));
@@ -512,12 +437,5 @@ public class AnalyticsService {
         
         return correlationService.calculateCorrelation(portfolioId, userId);
     }
-    
-    private static class HoldingCalculation {
-        BigDecimal quantity = BigDecimal.ZERO;
-        BigDecimal totalCost = BigDecimal.ZERO;
-        BigDecimal averagePrice = BigDecimal.ZERO;
-        BigDecimal realizedPnL = BigDecimal.ZERO;
-    }
 }
 
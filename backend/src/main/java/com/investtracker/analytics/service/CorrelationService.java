@@ -1,41 +1,77 @@
 package com.investtracker.analytics.service;
 
 import com.investtracker.analytics.dto.CorrelationResponse;
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.common.math.Fixed8;
+import com.investtracker.marketdata.cache.PriceKey;
 import com.investtracker.marketdata.entity.PriceSnapshot;
+import com.investtracker.marketdata.history.AlignedPriceSeries;
+import com.investtracker.marketdata.history.PriceSeriesStore;
 import com.investtracker.marketdata.repository.PriceSnapshotRepository;
+import com.investtracker.position.repository.PositionRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * Correlation of the daily returns of the assets a portfolio holds, over the last six months.
+ * <p>
+ * Price series come from the {@link PriceSeriesStore}, sampled daily on one grid; when the store is
+ * unavailable they are read from price_snapshots instead and sampled onto the same grid.
+ */
 @Service
 @RequiredArgsConstructor
 public class CorrelationService {
+    private static final Duration STEP = Duration.ofDays(1);
+    private static final int TOP_PAIRS = 5;
+    
+    private final PositionRepository positionRepository;
+    private final PriceSeriesStore priceSeriesStore;
     private final PriceSnapshotRepository priceSnapshotRepository;
     
     public CorrelationResponse calculateCorrelation(UUID portfolioId, java.util.UUID userId) {
-        // This would need portfolio and asset information
-        // For now, return a simplified version
-        
-        // Get price snapshots for assets in portfolio
         LocalDateTime endDate = LocalDateTime.now();
         LocalDateTime startDate = endDate.minusMonths(6);
         
-        // This is a placeholder - would need to get assets from portfolio
-        Map<String, Map<String, BigDecimal>> correlationMatrix = new HashMap<>();
-        List<CorrelationResponse.AssetPair> topCorrelatedPairs = new ArrayList<>();
-        List<CorrelationResponse.AssetPair> topInversePairs = new ArrayList<>();
+        List<Asset> assets = positionRepository.findHeldAssetsByPortfolioId(portfolioId);
+        List<PriceKey> keys = new ArrayList<>(assets.size());
+        for (Asset asset : assets) {
+            keys.add(PriceKey.of(asset, PriceKey.quoteCurrency(asset)));
+        }
+        long[][] prices = loadDailyPrices(assets, keys, toInstant(startDate), toInstant(endDate));
+        
+        Map<String, Map<String, BigDecimal>> correlationMatrix = new LinkedHashMap<>();
+        List<CorrelationResponse.AssetPair> pairs = new ArrayList<>();
+        for (int i = 0; i < assets.size(); i++) {
+            String symbol = assets.get(i).getSymbol();
+            Map<String, BigDecimal> row = correlationMatrix.computeIfAbsent(symbol, s -> new LinkedHashMap<>());
+            row.put(symbol, BigDecimal.ONE);
+            for (int j = i + 1; j < assets.size(); j++) {
+                String otherSymbol = assets.get(j).getSymbol();
+                BigDecimal correlation = calculateCorrelationCoefficient(prices[i], prices[j]);
+                row.put(otherSymbol, correlation);
+                correlationMatrix.computeIfAbsent(otherSymbol, s -> new LinkedHashMap<>()).put(symbol, correlation);
+                pairs.add(new CorrelationResponse.AssetPair(symbol, otherSymbol, correlation));
+            }
+        }
         
-        // Simplified implementation - would need actual asset price data
-        // For a full implementation, we would:
-        // 1. Get all assets in portfolio
-        // 2. Get price history for each asset
-        // 3. Calculate correlation coefficients between pairs
-        // 4. Build correlation matrix
+        List<CorrelationResponse.AssetPair> topCorrelatedPairs = pairs.stream()
+            .filter(pair -> pair.getCorrelation().signum() > 0)
+            .sorted(Comparator.comparing(CorrelationResponse.AssetPair::getCorrelation).reversed())
+            .limit(TOP_PAIRS)
+            .collect(Collectors.toList());
+        List<CorrelationResponse.AssetPair> topInversePairs = pairs.stream()
+            .filter(pair -> pair.getCorrelation().signum() < 0)
+            .sorted(Comparator.comparing(CorrelationResponse.AssetPair::getCorrelation))
+            .limit(TOP_PAIRS)
+            .collect(Collectors.toList());
         
         return new CorrelationResponse(
             correlationMatrix,
@@ -44,67 +80,103 @@ public class CorrelationService {
         );
     }
     
-    private BigDecimal calculateCorrelationCoefficient(
-        List<BigDecimal> prices1, 
-        List<BigDecimal> prices2
-    ) {
-        if (prices1.size() != prices2.size() || prices1.size() < 2) {
+    /**
+     * Daily prices of each key as {@link Fixed8} values, {@link AlignedPriceSeries#NO_PRICE} before a series starts
+     */
+    private long[][] loadDailyPrices(List<Asset> assets, List<PriceKey> keys, Instant from, Instant to) {
+        if (priceSeriesStore.isAvailable()) {
+            return priceSeriesStore.readAligned(keys, from, to, STEP).scaledPrices();
+        }
+        
+        int points = (int) (Duration.between(from, to).getSeconds() / STEP.getSeconds()) + 1;
+        long[][] prices = new long[assets.size()][];
+        for (int s = 0; s < assets.size(); s++) {
+            String currency = keys.get(s).currency();
+            List<PriceSnapshot> snapshots = priceSnapshotRepository.findByAssetIdAndDateRange(
+                assets.get(s).getId(), toLocalDateTime(from), toLocalDateTime(to));
+            long[] column = new long[points];
+            int next = 0;
+            long last = AlignedPriceSeries.NO_PRICE;
+            for (int i = 0; i < points; i++) {
+                Instant gridPoint = from.plus(STEP.multipliedBy(i));
+                while (next < snapshots.size() && !toInstant(snapshots.get(next).getSnapshotDate()).isAfter(gridPoint)) {
+                    PriceSnapshot snapshot = snapshots.get(next++);
+                    if (snapshot.getCurrency().equalsIgnoreCase(currency)) {
+                        last = toFixed8OrNoPrice(snapshot.getPrice());
+                    }
+                }
+                column[i] = last;
+            }
+            prices[s] = column;
+        }
+        return prices;
+    }
+    
+    private static long toFixed8OrNoPrice(BigDecimal price) {
+        try {
+            return Fixed8.of(price);
+        } catch (ArithmeticException e) {
+            return AlignedPriceSeries.NO_PRICE;
+        }
+    }
+    
+    private static Instant toInstant(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant();
+    }
+    
+    private static LocalDateTime toLocalDateTime(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+    
+    /**
+     * Correlation of the period returns of two price series of equal length, prices as {@link Fixed8} values
+     */
+    private BigDecimal calculateCorrelationCoefficient(long[] prices1, long[] prices2) {
+        if (prices1.length != prices2.length || prices1.length < 2) {
             return BigDecimal.ZERO;
         }
         
-        // Calculate returns
-        List<BigDecimal> returns1 = calculateReturns(prices1);
-        List<BigDecimal> returns2 = calculateReturns(prices2);
+        // Calculate returns over the periods where both series start above zero
+        long[] returns1 = new long[prices1.length - 1];
+        long[] returns2 = new long[prices2.length - 1];
+        int count = 0;
+        for (int i = 1; i < prices1.length; i++) {
+            if (prices1[i - 1] > 0 && prices2[i - 1] > 0) {
+                returns1[count] = periodReturn(prices1[i - 1], prices1[i]);
+                returns2[count] = periodReturn(prices2[i - 1], prices2[i]);
+                count++;
+            }
+        }
+        if (count == 0) {
+            return BigDecimal.ZERO;
+        }
         
         // Calculate means
-        BigDecimal mean1 = returns1.stream()
-            .reduce(BigDecimal.ZERO, BigDecimal::add)
-            .divide(new BigDecimal(returns1.size()), 8, RoundingMode.HALF_UP);
-        BigDecimal mean2 = returns2.stream()
-            .reduce(BigDecimal.ZERO, BigDecimal::add)
-            .divide(new BigDecimal(returns2.size()), 8, RoundingMode.HALF_UP);
+        long mean1 = Fixed8.mean(returns1, count);
+        long mean2 = Fixed8.mean(returns2, count);
         
         // Calculate covariance
-        BigDecimal covariance = BigDecimal.ZERO;
-        for (int i = 0; i < returns1.size(); i++) {
-            BigDecimal diff1 = returns1.get(i).subtract(mean1);
-            BigDecimal diff2 = returns2.get(i).subtract(mean2);
-            covariance = covariance.add(diff1.multiply(diff2));
+        long covariance = 0;
+        for (int i = 0; i < count; i++) {
+            covariance = Fixed8.add(covariance,
+                Fixed8.multiply(Fixed8.subtract(returns1[i], mean1), Fixed8.subtract(returns2[i], mean2)));
         }
-        covariance = covariance.divide(new BigDecimal(returns1.size()), 8, RoundingMode.HALF_UP);
+        covariance = Fixed8.divide(covariance, Fixed8.of(count));
         
         // Calculate standard deviations
-        BigDecimal stdDev1 = calculateStandardDeviation(returns1, mean1);
-        BigDecimal stdDev2 = calculateStandardDeviation(returns2, mean2);
+        long stdDev1 = Fixed8.ofDouble(Math.sqrt(Fixed8.toDouble(Fixed8.variance(returns1, count, mean1))));
+        long stdDev2 = Fixed8.ofDouble(Math.sqrt(Fixed8.toDouble(Fixed8.variance(returns2, count, mean2))));
         
         // Correlation = covariance / (stdDev1 * stdDev2)
-        if (stdDev1.compareTo(BigDecimal.ZERO) == 0 || stdDev2.compareTo(BigDecimal.ZERO) == 0) {
+        long denominator = Fixed8.multiply(stdDev1, stdDev2);
+        if (denominator == 0) {
             return BigDecimal.ZERO;
         }
         
-        return covariance.divide(stdDev1.multiply(stdDev2), 4, RoundingMode.HALF_UP);
+        return Fixed8.toBigDecimal(Fixed8.divide(covariance, denominator, 4), 4);
     }
     
-    private List<BigDecimal> calculateReturns(List<BigDecimal> prices) {
-        List<BigDecimal> returns = new ArrayList<>();
-        for (int i = 1; i < prices.size(); i++) {
-            if (prices.get(i - 1).compareTo(BigDecimal.ZERO) > 0) {
-                BigDecimal returnValue = prices.get(i).subtract(prices.get(i - 1))
-                    .divide(prices.get(i - 1), 8, RoundingMode.HALF_UP);
-                returns.add(returnValue);
-            }
-        }
-        return returns;
-    }
-    
-    private BigDecimal calculateStandardDeviation(List<BigDecimal> values, BigDecimal mean) {
-        BigDecimal variance = values.stream()
-            .map(v -> v.subtract(mean).pow(2))
-            .reduce(BigDecimal.ZERO, BigDecimal::add)
-            .divide(new BigDecimal(values.size()), 8, RoundingMode.HALF_UP);
-        
-        double stdDev = Math.sqrt(variance.doubleValue());
-        return BigDecimal.valueOf(stdDev);
+    private static long periodReturn(long previous, long current) {
+        return Fixed8.divide(Fixed8.subtract(current, previous), previous);
     }
 }
-
@@ -0,0 +1,295 @@
+package com.investtracker.analytics.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.investtracker.analytics.config.AnalyticsProperties;
+import com.investtracker.analytics.dto.HoldingResponse;
+import com.investtracker.analytics.dto.PortfolioSummaryResponse;
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.common.concurrent.SingleFlight;
+import com.investtracker.marketdata.cache.CachedPrice;
+import com.investtracker.marketdata.cache.PriceCache;
+import com.investtracker.marketdata.cache.PriceKey;
+import com.investtracker.marketdata.fx.FxRateMatrix;
+import com.investtracker.marketdata.fx.FxRateService;
+import com.investtracker.marketdata.service.MarketDataService;
+import com.investtracker.marketdata.service.PriceQuote;
+import com.investtracker.portfolio.entity.Portfolio;
+import com.investtracker.portfolio.repository.PortfolioRepository;
+import com.investtracker.position.entity.Position;
+import com.investtracker.position.repository.PositionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Portfolio summaries by portfolio id, bounded by {@code analytics.summary-cache.maximum-size} and dropped
+ * after {@code expire-after-access} without reads.
+ * <p>
+ * Each entry keeps the open positions it was valued from, together with the cached price of each of
+ * their assets and the FX matrix it was valued against. When one of those prices or the rates have been
+ * replaced since, the next read revalues the cached positions against current prices without touching
+ * the database; price moves of assets the portfolio does not hold leave it alone. Position changes
+ * {@link #evict(UUID) evict} the entry, both immediately and once the writing transaction completes, so
+ * a summary loaded from not yet committed data is not kept. Concurrent misses for one portfolio share a
+ * single load.
+ */
+@Slf4j
+@Component
+public class PortfolioSummaryCache {
+    private final PortfolioRepository portfolioRepository;
+    private final PositionRepository positionRepository;
+    private final MarketDataService marketDataService;
+    private final FxRateService fxRateService;
+    private final PriceCache priceCache;
+    private final Cache<UUID, CachedSummary> cache;
+    private final SingleFlight<UUID, CachedSummary> loads = new SingleFlight<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Counter fullLoads;
+    private final Counter revaluations;
+    
+    public PortfolioSummaryCache(PortfolioRepository portfolioRepository,
+                                 PositionRepository positionRepository,
+                                 MarketDataService marketDataService,
+                                 FxRateService fxRateService,
+                                 PriceCache priceCache,
+                                 AnalyticsProperties properties,
+                                 MeterRegistry meterRegistry) {
+        this.portfolioRepository = portfolioRepository;
+        this.positionRepository = positionRepository;
+        this.marketDataService = marketDataService;
+        this.fxRateService = fxRateService;
+        this.priceCache = priceCache;
+        AnalyticsProperties.SummaryCache config = properties.getSummaryCache();
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(config.getMaximumSize())
+            .expireAfterAccess(config.getExpireAfterAccess())
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "portfolioSummaries");
+        this.fullLoads = Counter.builder("analytics.summaries.loads").tag("kind", "full").register(meterRegistry);
+        this.revaluations = Counter.builder("analytics.summaries.loads").tag("kind", "revalued").register(meterRegistry);
+    }
+    
+    /**
+     * @throws IllegalArgumentException if the portfolio does not exist or belongs to another user
+     */
+    public PortfolioSummaryResponse get(UUID portfolioId, UUID userId) {
+        CachedSummary cached = cache.getIfPresent(portfolioId);
+        if (cached == null || !isCurrent(cached, fxRateService.currentMatrix())) {
+            cached = loads.execute(portfolioId, () -> load(portfolioId));
+        }
+        if (!cached.ownerId().equals(userId)) {
+            throw new IllegalArgumentException("Portfolio access denied");
+        }
+        return cached.summary();
+    }
+    
+    /**
+     * Drops the summary of a portfolio whose positions or settings are changing. Called inside a
+     * transaction, the entry is dropped again when it completes.
+     */
+    public void evict(UUID portfolioId) {
+        invalidate(portfolioId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(portfolioId);
+                }
+            });
+        }
+    }
+    
+    private void invalidate(UUID portfolioId) {
+        invalidations.incrementAndGet();
+        cache.invalidate(portfolioId);
+    }
+    
+    private CachedSummary load(UUID portfolioId) {
+        long invalidationsBefore = invalidations.get();
+        FxRateMatrix fxRates = fxRateService.currentMatrix();
+        
+        CachedSummary current = cache.getIfPresent(portfolioId);
+        CachedSummary loaded;
+        if (current == null) {
+            Portfolio portfolio = portfolioRepository.findById(portfolioId)
+                .orElseThrow(() -> new IllegalArgumentException("Portfolio not found"));
+            List<CachedPosition> positions = new ArrayList<>();
+            for (Position position : positionRepository.findHeldByPortfolioId(portfolioId)) {
+                Asset asset = position.getAsset();
+                positions.add(new CachedPosition(asset, PriceKey.of(asset, PriceKey.quoteCurrency(asset)),
+                    position.getQuantity(), position.getTotalCost(), position.getAveragePrice(), position.getRealizedPnl()));
+            }
+            loaded = value(portfolio.getUser().getId(), portfolio.getBaseCurrency(), positions, fxRates);
+            fullLoads.increment();
+        } else if (isCurrent(current, fxRates)) {
+            return current;
+        } else {
+            loaded = value(current.ownerId(), current.baseCurrency(), current.positions(), fxRates);
+            revaluations.increment();
+        }
+        
+        // An eviction that raced with this load may have been overtaken by the put; undo it if so
+        cache.put(portfolioId, loaded);
+        if (invalidations.get() != invalidationsBefore) {
+            cache.asMap().remove(portfolioId, loaded);
+        }
+        return loaded;
+    }
+    
+    /**
+     * Whether the summary was valued against the current FX matrix and the currently cached price of every
+     * asset it holds. Cached prices are compared by identity, so any write to one of those keys counts.
+     */
+    private boolean isCurrent(CachedSummary summary, FxRateMatrix currentFxRates) {
+        if (summary.fxRates() != currentFxRates) {
+            return false;
+        }
+        List<CachedPosition> positions = summary.positions();
+        for (int i = 0; i < positions.size(); i++) {
+            if (priceCache.peek(positions.get(i).priceKey()).orElse(null) != summary.prices()[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private CachedSummary value(UUID ownerId, String baseCurrency, List<CachedPosition> positions,
+                                FxRateMatrix fxRates) {
+        // Taken before quoting: a price replaced while this runs makes the entry stale rather than hiding it
+        CachedPrice[] prices = new CachedPrice[positions.size()];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = priceCache.peek(positions.get(i).priceKey()).orElse(null);
+        }
+        
+        List<Asset> assets = positions.stream()
+            .map(CachedPosition::asset)
+            .collect(Collectors.toList());
+        
+        Map<Asset, PriceQuote> currentPrices = marketDataService.getCurrentQuotes(assets, baseCurrency);
+        
+        // Build holdings response
+        List<HoldingResponse> holdingResponses = new ArrayList<>();
+        BigDecimal totalValue = BigDecimal.ZERO;
+        BigDecimal totalCost = BigDecimal.ZERO;
+        
+        for (CachedPosition position : positions) {
+            Asset asset = position.asset();
+            
+            // Prices arrive in the base currency; cost basis is recorded in the asset's currency and is
+            // converted at today's rate, as historical FX rates are not kept
+            Optional<BigDecimal> rate = asset.getCurrency() == null ? Optional.of(BigDecimal.ONE)
+                : fxRates.rate(asset.getCurrency(), baseCurrency);
+            if (rate.isEmpty()) {
+                // Without a rate neither cost nor P&L can be stated in the base currency, so the holding is
+                // reported unpriced and left out of the totals until the rate is known
+                log.warn("No FX rate from {} to {}, reporting {} unpriced", asset.getCurrency(), baseCurrency,
+                    asset.getSymbol());
+                holdingResponses.add(new HoldingResponse(
+                    asset.getId(),
+                    asset.getSymbol(),
+                    asset.getName(),
+                    asset.getAssetType().name(),
+                    position.quantity(),
+                    BigDecimal.ZERO,
+                    BigDecimal.ZERO,
+                    BigDecimal.ZERO,
+                    BigDecimal.ZERO,
+                    BigDecimal.ZERO,
+                    baseCurrency,
+                    null,
+                    true
+                ));
+                continue;
+            }
+            BigDecimal fxRate = rate.get();
+            BigDecimal costBasis = position.totalCost().multiply(fxRate);
+            
+            PriceQuote quote = currentPrices.get(asset);
+            BigDecimal currentPrice = quote != null ? quote.price() : BigDecimal.ZERO;
+            BigDecimal currentValue = position.quantity().multiply(currentPrice);
+            BigDecimal unrealizedPnL = currentValue.subtract(costBasis);
+            
+            totalValue = totalValue.add(currentValue);
+            totalCost = totalCost.add(costBasis);
+            
+            holdingResponses.add(new HoldingResponse(
+                asset.getId(),
+                asset.getSymbol(),
+                asset.getName(),
+                asset.getAssetType().name(),
+                position.quantity(),
+                position.averagePrice().multiply(fxRate),
+                currentPrice,
+                currentValue,
+                unrealizedPnL,
+                position.realizedPnl().multiply(fxRate),
+                baseCurrency,
+                quote != null ? quote.asOfMillis() : null,
+                quote == null || quote.stale()
+            ));
+        }
+        
+        // Calculate allocation
+        Map<String, BigDecimal> allocationByType = holdingResponses.stream()
+            .collect(Collectors.groupingBy(
+                HoldingResponse::getAssetType,
+                Collectors.reducing(BigDecimal.ZERO, HoldingResponse::getCurrentValue, BigDecimal::add)
+            ));
+        
+        // Top 5 assets
+        Map<String, BigDecimal> topAssets = holdingResponses.stream()
+            .sorted((a, b) -> b.getCurrentValue().compareTo(a.getCurrentValue()))
+            .limit(5)
+            .collect(Collectors.toMap(
+                HoldingResponse::getAssetSymbol,
+                HoldingResponse::getCurrentValue,
+                (a, b) -> a,
+                LinkedHashMap::new
+            ));
+        
+        BigDecimal totalPnL = totalValue.subtract(totalCost);
+        BigDecimal totalPnLPercent = totalCost.compareTo(BigDecimal.ZERO) > 0
+            ? totalPnL.divide(totalCost, 4, RoundingMode.HALF_UP).multiply(new BigDecimal("100"))
+            : BigDecimal.ZERO;
+        
+        PortfolioSummaryResponse summary = new PortfolioSummaryResponse(
+            totalValue,
+            totalCost,
+            totalPnL,
+            totalPnLPercent,
+            baseCurrency,
+            holdingResponses,
+            allocationByType,
+            topAssets
+        );
+        return new CachedSummary(ownerId, baseCurrency, List.copyOf(positions), prices, fxRates, summary);
+    }
+    
+    private record CachedPosition(Asset asset,
+                                  PriceKey priceKey,
+                                  BigDecimal quantity,
+                                  BigDecimal totalCost,
+                                  BigDecimal averagePrice,
+                                  BigDecimal realizedPnl) {
+    }
+    
+    private record CachedSummary(UUID ownerId,
+                                 String baseCurrency,
+                                 List<CachedPosition> positions,
+                                 CachedPrice[] prices,
+                                 FxRateMatrix fxRates,
+                                 PortfolioSummaryResponse summary) {
+    }
+}
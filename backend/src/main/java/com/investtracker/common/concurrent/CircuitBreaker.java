@@ -0,0 +1,113 @@
+package com.investtracker.common.concurrent;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Closed / open / half-open circuit breaker.
+ * <p>
+ * The circuit opens after {@code failureThreshold} consecutive failures or when the caller reports that
+ * the failure rate is too high. While open every request is refused. Once the open period has elapsed a
+ * single probe may be started with {@link #tryStartProbe()}; its outcome closes the circuit again or
+ * re-opens it with the open period doubled, up to {@code maxOpenDuration}. Thread-safe.
+ */
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+    
+    private final int failureThreshold;
+    private final long baseOpenNanos;
+    private final long maxOpenNanos;
+    private final LongSupplier nanoClock;
+    
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openNanos;
+    private long openedAtNanos;
+    
+    public CircuitBreaker(int failureThreshold, Duration openDuration, Duration maxOpenDuration) {
+        this(failureThreshold, openDuration, maxOpenDuration, System::nanoTime);
+    }
+    
+    CircuitBreaker(int failureThreshold, Duration openDuration, Duration maxOpenDuration, LongSupplier nanoClock) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("Failure threshold must be at least 1");
+        }
+        this.failureThreshold = failureThreshold;
+        this.baseOpenNanos = openDuration.toNanos();
+        this.maxOpenNanos = Math.max(baseOpenNanos, maxOpenDuration.toNanos());
+        this.nanoClock = nanoClock;
+        this.openNanos = baseOpenNanos;
+    }
+    
+    public synchronized State getState() {
+        return state;
+    }
+    
+    /**
+     * Whether ordinary traffic may be sent; false while open and while a probe is in flight
+     */
+    public synchronized boolean allowsRequests() {
+        return state == State.CLOSED;
+    }
+    
+    /**
+     * Moves an open circuit whose open period has elapsed to half-open. Returns true if the caller
+     * now owns the probe and must report its outcome.
+     */
+    public synchronized boolean tryStartProbe() {
+        if (state != State.OPEN || nanoClock.getAsLong() - openedAtNanos < openNanos) {
+            return false;
+        }
+        state = State.HALF_OPEN;
+        return true;
+    }
+    
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+        openNanos = baseOpenNanos;
+    }
+    
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN) {
+            openNanos = Math.min(maxOpenNanos, openNanos * 2);
+            open();
+        } else if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+            open();
+        }
+    }
+    
+    /**
+     * Gives up a probe that could not be sent; the circuit waits another open period without backing off
+     */
+    public synchronized void abandonProbe() {
+        if (state == State.HALF_OPEN) {
+            open();
+        }
+    }
+    
+    /**
+     * Opens a closed circuit regardless of the consecutive-failure count
+     */
+    public synchronized void trip() {
+        if (state == State.CLOSED) {
+            open();
+        }
+    }
+    
+    /**
+     * Time left before a probe may be started; zero unless open
+     */
+    public synchronized Duration remainingOpenTime() {
+        if (state != State.OPEN) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(Math.max(0, openNanos - (nanoClock.getAsLong() - openedAtNanos)));
+    }
+    
+    private void open() {
+        state = State.OPEN;
+        openedAtNanos = nanoClock.getAsLong();
+    }
+}
@@ -0,0 +1,125 @@
+package com.investtracker.common.concurrent;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent loads of the same key into a single call.
+ * <p>
+ * The first caller for a key (the leader) runs the loader on its own thread; callers arriving while
+ * that load is in flight wait for and share its result instead of starting their own. Once the load
+ * completes the key is released, so the next caller starts a fresh load. A {@code null} result is
+ * shared like any other value, and a loader exception is rethrown to every waiter.
+ */
+public class SingleFlight<K, V> {
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder leaderCalls = new LongAdder();
+    private final LongAdder coalescedCalls = new LongAdder();
+    
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> claim = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, claim);
+        if (existing != null) {
+            coalescedCalls.increment();
+            return await(existing);
+        }
+        
+        leaderCalls.increment();
+        try {
+            V value = loader.get();
+            claim.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            claim.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, claim);
+        }
+    }
+    
+    /**
+     * Batch form of {@link #execute}: keys not already in flight are claimed and handed to the loader
+     * in one call, keys that are in flight are awaited. Keys the loader leaves out of its result map
+     * resolve to {@code null} and are omitted from the returned map.
+     */
+    public Map<K, V> executeAll(Collection<K> keys, Function<List<K>, Map<K, V>> loader) {
+        Map<K, CompletableFuture<V>> claimed = new LinkedHashMap<>();
+        Map<K, CompletableFuture<V>> awaited = new LinkedHashMap<>();
+        
+        for (K key : new LinkedHashSet<>(keys)) {
+            CompletableFuture<V> claim = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, claim);
+            if (existing != null) {
+                coalescedCalls.increment();
+                awaited.put(key, existing);
+            } else {
+                leaderCalls.increment();
+                claimed.put(key, claim);
+            }
+        }
+        
+        Map<K, V> results = new HashMap<>();
+        if (!claimed.isEmpty()) {
+            try {
+                Map<K, V> loaded = loader.apply(new ArrayList<>(claimed.keySet()));
+                claimed.forEach((key, claim) -> {
+                    V value = loaded.get(key);
+                    claim.complete(value);
+                    if (value != null) {
+                        results.put(key, value);
+                    }
+                });
+            } catch (RuntimeException | Error e) {
+                claimed.values().forEach(claim -> claim.completeExceptionally(e));
+                throw e;
+            } finally {
+                claimed.forEach(inFlight::remove);
+            }
+        }
+        
+        awaited.forEach((key, future) -> {
+            V value = await(future);
+            if (value != null) {
+                results.put(key, value);
+            }
+        });
+        return results;
+    }
+    
+    /**
+     * Number of calls that started a load
+     */
+    public long getLeaderCalls() {
+        return leaderCalls.sum();
+    }
+    
+    /**
+     * Number of calls that joined a load already in flight instead of starting their own
+     */
+    public long getCoalescedCalls() {
+        return coalescedCalls.sum();
+    }
+    
+    public int getInFlight() {
+        return inFlight.size();
+    }
+    
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
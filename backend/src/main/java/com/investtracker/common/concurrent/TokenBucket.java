@@ -0,0 +1,54 @@
+package com.investtracker.common.concurrent;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Classic token bucket: holds up to {@code capacity} permits and refills continuously at
+ * {@code permitsPerPeriod / period}. Thread-safe.
+ */
+public class TokenBucket {
+    private final double capacity;
+    private final double permitsPerNano;
+    private final LongSupplier nanoClock;
+    private double available;
+    private long lastRefillNanos;
+    
+    public TokenBucket(int capacity, int permitsPerPeriod, Duration period) {
+        this(capacity, permitsPerPeriod, period, System::nanoTime);
+    }
+    
+    TokenBucket(int capacity, int permitsPerPeriod, Duration period, LongSupplier nanoClock) {
+        if (capacity < 1 || permitsPerPeriod < 1 || period.isZero() || period.isNegative()) {
+            throw new IllegalArgumentException("Token bucket needs a positive capacity, rate and period");
+        }
+        this.capacity = capacity;
+        this.permitsPerNano = (double) permitsPerPeriod / period.toNanos();
+        this.nanoClock = nanoClock;
+        this.available = capacity;
+        this.lastRefillNanos = nanoClock.getAsLong();
+    }
+    
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (available >= 1) {
+            available -= 1;
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Time until the next permit can be acquired; zero if one is available now
+     */
+    public synchronized long nanosUntilAvailable() {
+        refill();
+        return available >= 1 ? 0 : (long) Math.ceil((1 - available) / permitsPerNano);
+    }
+    
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        available = Math.min(capacity, available + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,190 @@
+package com.investtracker.common.math;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Decimal arithmetic on plain {@code long}s that hold a value times 10^8, the scale of the DECIMAL(20,8)
+ * columns. Loops over long arrays therefore allocate nothing, unlike the same loops over {@link BigDecimal}.
+ * <p>
+ * Addition and subtraction are exact; multiplication and division round half up at the 8th decimal,
+ * as {@code BigDecimal} does with {@link RoundingMode#HALF_UP}. The range is about ±92 billion, less than
+ * the columns allow: a result outside it throws {@link ArithmeticException} rather than wrapping, and so
+ * does {@link #of(BigDecimal)} for a value that does not fit. Convert at the edges: {@link #of(BigDecimal)}
+ * when reading entities, {@link #toBigDecimal(long)} when building responses.
+ */
+public final class Fixed8 {
+    public static final int SCALE = 8;
+    public static final long ONE = 100_000_000L;
+    
+    private static final long[] POWERS_OF_TEN = {
+        1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L
+    };
+    
+    private Fixed8() {
+    }
+    
+    /**
+     * @throws ArithmeticException if the value is outside the range once rounded to 8 decimals
+     */
+    public static long of(BigDecimal value) {
+        return value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+    
+    public static long of(long units) {
+        return Math.multiplyExact(units, ONE);
+    }
+    
+    public static BigDecimal toBigDecimal(long value) {
+        return BigDecimal.valueOf(value, SCALE);
+    }
+    
+    /**
+     * The value rounded half up to {@code scale} decimals, with that scale
+     */
+    public static BigDecimal toBigDecimal(long value, int scale) {
+        return BigDecimal.valueOf(round(value, scale) / POWERS_OF_TEN[SCALE - scale], scale);
+    }
+    
+    public static double toDouble(long value) {
+        return (double) value / ONE;
+    }
+    
+    public static long ofDouble(double value) {
+        double scaled = Math.rint(value * ONE);
+        if (Double.isNaN(scaled) || Math.abs(scaled) >= 0x1p63) {
+            throw new ArithmeticException("Fixed-point overflow: " + value);
+        }
+        return (long) scaled;
+    }
+    
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+    
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+    
+    public static long multiply(long a, long b) {
+        // (ai + af)(bi + bf) with the integer parts in units of 10^-8: every partial product has the sign
+        // of the result, so only the last one needs rounding and any overflow is an overflow of the result
+        long aInt = a / ONE;
+        long aFrac = a % ONE;
+        long bInt = b / ONE;
+        long bFrac = b % ONE;
+        long fractions = aFrac * bFrac;
+        long rounded = fractions / ONE;
+        if (Math.abs(fractions % ONE) * 2 >= ONE) {
+            rounded += Long.signum(fractions);
+        }
+        long result = Math.multiplyExact(Math.multiplyExact(aInt, bInt), ONE);
+        result = Math.addExact(result, Math.multiplyExact(aInt, bFrac));
+        result = Math.addExact(result, Math.multiplyExact(aFrac, bInt));
+        return Math.addExact(result, rounded);
+    }
+    
+    public static long divide(long a, long b) {
+        return divide(a, b, SCALE);
+    }
+    
+    /**
+     * {@code a / b} rounded half up to {@code scale} decimals, {@code 0 <= scale <= 8}. Rounding once at
+     * the target scale avoids the double rounding of {@code round(divide(a, b), scale)}.
+     */
+    public static long divide(long a, long b, int scale) {
+        if (b == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        long dividend = Math.absExact(a);
+        long divisor = Math.absExact(b);
+        if (divisor > Long.MAX_VALUE / 10) {
+            BigDecimal quotient = BigDecimal.valueOf(a).divide(BigDecimal.valueOf(b), scale, RoundingMode.HALF_UP);
+            return of(quotient);
+        }
+        
+        // Long division one decimal digit at a time keeps every intermediate below 10 * divisor
+        long result = dividend / divisor;
+        long remainder = dividend % divisor;
+        for (int i = 0; i < scale; i++) {
+            remainder *= 10;
+            result = Math.addExact(Math.multiplyExact(result, 10), remainder / divisor);
+            remainder %= divisor;
+        }
+        if (remainder >= divisor - remainder) {
+            result = Math.addExact(result, 1);
+        }
+        result = Math.multiplyExact(result, POWERS_OF_TEN[SCALE - scale]);
+        return (a < 0) != (b < 0) ? -result : result;
+    }
+    
+    /**
+     * {@code (to - from) / from} rounded half up to {@code scale} decimals. Portfolio totals can be outside
+     * the range, so when either value does not fit the change is computed in {@code BigDecimal} instead;
+     * only the ratio itself has to fit.
+     */
+    public static long relativeChange(BigDecimal from, BigDecimal to, int scale) {
+        try {
+            long fromValue = of(from);
+            return divide(subtract(of(to), fromValue), fromValue, scale);
+        } catch (ArithmeticException e) {
+            return of(to.subtract(from).divide(from, scale, RoundingMode.HALF_UP));
+        }
+    }
+    
+    /**
+     * The value rounded half up to {@code scale} decimals, still as a scale-8 long
+     */
+    public static long round(long value, int scale) {
+        long unit = POWERS_OF_TEN[SCALE - scale];
+        long quotient = value / unit;
+        if (Math.abs(value % unit) * 2 >= unit) {
+            quotient += Long.signum(value);
+        }
+        return Math.multiplyExact(quotient, unit);
+    }
+    
+    /**
+     * Mean of the first {@code count} values
+     */
+    public static long mean(long[] values, int count) {
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum = Math.addExact(sum, values[i]);
+        }
+        return divide(sum, of(count));
+    }
+    
+    /**
+     * Population variance of the first {@code count} values around {@code mean}. The squared deviations
+     * are summed exactly, at scale 16 in 128 bits, and only the final division rounds, so the result is
+     * the same as summing {@code BigDecimal} squares and dividing half up at scale 8.
+     */
+    public static long variance(long[] values, int count, long mean) {
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < count; i++) {
+            long deviation = Math.subtractExact(values[i], mean);
+            long sumLow = low + deviation * deviation;
+            high += Math.multiplyHigh(deviation, deviation) + (Long.compareUnsigned(sumLow, low) < 0 ? 1 : 0);
+            low = sumLow;
+        }
+        
+        long divisor = Math.multiplyExact(count, ONE);
+        if (divisor == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        if (high == 0 && low >= 0) {
+            long quotient = low / divisor;
+            long remainder = low % divisor;
+            return remainder >= divisor - remainder ? quotient + 1 : quotient;
+        }
+        BigInteger sum = BigInteger.valueOf(high).shiftLeft(64).add(new BigInteger(Long.toUnsignedString(low)));
+        BigInteger[] quotient = sum.divideAndRemainder(BigInteger.valueOf(divisor));
+        if (quotient[1].shiftLeft(1).compareTo(BigInteger.valueOf(divisor)) >= 0) {
+            quotient[0] = quotient[0].add(BigInteger.ONE);
+        }
+        return quotient[0].longValueExact();
+    }
+}
@@ -16,7 +16,6 @@ public class CacheConfig {
         // In production, replace with RedisCacheManager
         ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
         cacheManager.setCacheNames(java.util.Arrays.asList(
-            "portfolioSummaries",
             "assetPrices",
             "portfolioSnapshots",
             "userPortfolios"
@@ -0,0 +1,16 @@
+package com.investtracker.marketdata.cache;
+
+import com.investtracker.asset.entity.Asset;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+/**
+ * A quote held in the {@link PriceCache}, stamped with the wall-clock time it was fetched.
+ */
+public record CachedPrice(BigDecimal price, String source, Asset.AssetType assetType, long fetchedAtMillis) {
+    
+    public boolean isOlderThan(Duration age, long nowMillis) {
+        return nowMillis - fetchedAtMillis > age.toMillis();
+    }
+}
@@ -0,0 +1,9 @@
+package com.investtracker.marketdata.cache;
+
+import java.math.BigDecimal;
+
+/**
+ * The most recent price seen for an asset, in the currency it was fetched in.
+ */
+public record LastKnownPrice(BigDecimal price, String currency, String source, long asOfMillis) {
+}
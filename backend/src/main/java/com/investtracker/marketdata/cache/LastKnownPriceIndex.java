@@ -0,0 +1,49 @@
+package com.investtracker.marketdata.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.investtracker.marketdata.config.MarketDataProperties;
+import com.investtracker.marketdata.repository.PriceSnapshotRepository;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneId;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Last price seen for each asset, kept beyond the {@link PriceCache} hard TTL so requests can still be
+ * answered when every provider is failing or slow. Fed by every fetched quote; assets not seen since
+ * start-up are seeded from their latest price snapshot on first use.
+ */
+@Component
+public class LastKnownPriceIndex {
+    private final PriceSnapshotRepository priceSnapshotRepository;
+    
+    // Empty values remember assets without any snapshot until a live price arrives
+    private final Cache<UUID, Optional<LastKnownPrice>> prices;
+    
+    public LastKnownPriceIndex(PriceSnapshotRepository priceSnapshotRepository, MarketDataProperties properties) {
+        this.priceSnapshotRepository = priceSnapshotRepository;
+        this.prices = Caffeine.newBuilder()
+            .maximumSize(properties.getCache().getMaximumSize())
+            .build();
+    }
+    
+    public void record(UUID assetId, LastKnownPrice price) {
+        prices.asMap().merge(assetId, Optional.of(price), (current, update) ->
+            current.isPresent() && current.get().asOfMillis() > price.asOfMillis() ? current : update);
+    }
+    
+    public Optional<LastKnownPrice> get(UUID assetId) {
+        return prices.get(assetId, this::loadFromSnapshots);
+    }
+    
+    private Optional<LastKnownPrice> loadFromSnapshots(UUID assetId) {
+        return priceSnapshotRepository.findFirstByAssetIdOrderBySnapshotDateDesc(assetId)
+            .map(snapshot -> new LastKnownPrice(
+                snapshot.getPrice(),
+                snapshot.getCurrency(),
+                snapshot.getSource(),
+                snapshot.getSnapshotDate().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()));
+    }
+}
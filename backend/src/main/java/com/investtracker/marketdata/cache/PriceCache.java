@@ -0,0 +1,94 @@
+package com.investtracker.marketdata.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.marketdata.config.MarketDataProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Bounded in-memory quote cache.
+ * <p>
+ * Entries are evicted by size (W-TinyLFU) and expire after the hard TTL of their asset type.
+ * Between the soft and hard TTL an entry is still returned, but {@link #isStale(CachedPrice)}
+ * reports true so that callers can serve it immediately and refresh it off the request thread.
+ */
+@Component
+public class PriceCache {
+    private final MarketDataProperties.Cache config;
+    private final Cache<PriceKey, CachedPrice> cache;
+    
+    public PriceCache(MarketDataProperties properties, MeterRegistry meterRegistry) {
+        this.config = properties.getCache();
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(config.getMaximumSize())
+            .expireAfter(new HardTtlExpiry())
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "priceCache");
+    }
+    
+    public Optional<CachedPrice> get(PriceKey key) {
+        return Optional.ofNullable(cache.getIfPresent(key));
+    }
+    
+    /**
+     * Reads an entry without counting it as a hit or miss, for housekeeping that should not skew cache stats
+     */
+    public Optional<CachedPrice> peek(PriceKey key) {
+        return Optional.ofNullable(cache.policy().getIfPresentQuietly(key));
+    }
+    
+    /**
+     * Age after which an entry of this type should be refreshed ahead of going stale
+     */
+    public Duration refreshAfter(Asset.AssetType assetType, double refreshAhead) {
+        return Duration.ofMillis((long) (config.ttlFor(assetType).getSoft().toMillis() * refreshAhead));
+    }
+    
+    public CachedPrice put(PriceKey key, Asset.AssetType assetType, BigDecimal price, String source) {
+        CachedPrice cached = new CachedPrice(price, source, assetType, System.currentTimeMillis());
+        cache.put(key, cached);
+        return cached;
+    }
+    
+    public boolean isStale(CachedPrice cached) {
+        return cached.isOlderThan(config.ttlFor(cached.assetType()).getSoft(), System.currentTimeMillis());
+    }
+    
+    public void invalidate(PriceKey key) {
+        cache.invalidate(key);
+    }
+    
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+    
+    public long size() {
+        return cache.estimatedSize();
+    }
+    
+    private class HardTtlExpiry implements Expiry<PriceKey, CachedPrice> {
+        @Override
+        public long expireAfterCreate(PriceKey key, CachedPrice value, long currentTime) {
+            return config.ttlFor(value.assetType()).getHard().toNanos();
+        }
+        
+        @Override
+        public long expireAfterUpdate(PriceKey key, CachedPrice value, long currentTime, long currentDuration) {
+            return config.ttlFor(value.assetType()).getHard().toNanos();
+        }
+        
+        @Override
+        public long expireAfterRead(PriceKey key, CachedPrice value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
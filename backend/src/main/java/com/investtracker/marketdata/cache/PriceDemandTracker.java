@@ -0,0 +1,46 @@
+package com.investtracker.marketdata.cache;
+
+import com.investtracker.marketdata.config.MarketDataProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how often each (asset, currency) price is read by users, so the prefetcher can warm the most
+ * viewed prices first. Counts are halved on every {@link #decay()}, so they track recent demand.
+ */
+@Component
+public class PriceDemandTracker {
+    private final long maximumKeys;
+    private final Map<PriceKey, LongAdder> views = new ConcurrentHashMap<>();
+    
+    public PriceDemandTracker(MarketDataProperties properties) {
+        this.maximumKeys = properties.getCache().getMaximumSize();
+    }
+    
+    public void recordView(PriceKey key) {
+        LongAdder counter = views.get(key);
+        if (counter == null) {
+            if (views.size() >= maximumKeys) {
+                return;
+            }
+            counter = views.computeIfAbsent(key, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+    
+    public long views(PriceKey key) {
+        LongAdder counter = views.get(key);
+        return counter == null ? 0 : counter.sum();
+    }
+    
+    public void decay() {
+        views.entrySet().removeIf(entry -> {
+            long halved = entry.getValue().sumThenReset() / 2;
+            entry.getValue().add(halved);
+            return halved == 0;
+        });
+    }
+}
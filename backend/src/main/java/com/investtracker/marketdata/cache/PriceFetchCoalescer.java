@@ -0,0 +1,40 @@
+package com.investtracker.marketdata.cache;
+
+import com.investtracker.common.concurrent.SingleFlight;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Ensures at most one provider fetch per (asset, currency) is in flight; concurrent cache misses wait
+ * for and share that fetch's result, so a popular asset expiring costs one provider call and one snapshot.
+ */
+@Component
+public class PriceFetchCoalescer {
+    private final SingleFlight<PriceKey, BigDecimal> singleFlight = new SingleFlight<>();
+    
+    public PriceFetchCoalescer(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("marketdata.price.fetch.calls", singleFlight, SingleFlight::getLeaderCalls)
+            .tag("result", "fetched")
+            .description("Price lookups that started a provider fetch")
+            .register(meterRegistry);
+        FunctionCounter.builder("marketdata.price.fetch.calls", singleFlight, SingleFlight::getCoalescedCalls)
+            .tag("result", "coalesced")
+            .description("Price lookups that joined a provider fetch already in flight")
+            .register(meterRegistry);
+        Gauge.builder("marketdata.price.fetch.in.flight", singleFlight, SingleFlight::getInFlight)
+            .register(meterRegistry);
+    }
+    
+    public Map<PriceKey, BigDecimal> fetchAll(Collection<PriceKey> keys,
+                                              Function<List<PriceKey>, Map<PriceKey, BigDecimal>> fetcher) {
+        return singleFlight.executeAll(keys, fetcher);
+    }
+}
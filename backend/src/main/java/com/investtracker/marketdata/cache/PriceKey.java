@@ -0,0 +1,24 @@
+package com.investtracker.marketdata.cache;
+
+import com.investtracker.asset.entity.Asset;
+
+import java.util.UUID;
+
+/**
+ * Identity of a cached quote: one asset priced in one currency.
+ */
+public record PriceKey(UUID assetId, String currency) {
+    
+    public static PriceKey of(Asset asset, String currency) {
+        return new PriceKey(asset.getId(), currency.toUpperCase());
+    }
+    
+    /**
+     * Currency an asset is quoted in by its market; prices are fetched and cached in this currency and
+     * converted for display
+     */
+    public static String quoteCurrency(Asset asset) {
+        String currency = asset.getCurrency();
+        return currency == null || currency.isBlank() ? "USD" : currency.toUpperCase();
+    }
+}
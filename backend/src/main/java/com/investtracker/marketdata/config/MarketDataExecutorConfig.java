@@ -0,0 +1,64 @@
+package com.investtracker.marketdata.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class MarketDataExecutorConfig {
+    
+    /**
+     * Runs provider chunks of a batched fetch in parallel. When saturated the submitting thread runs the
+     * chunk itself, which slows that caller down instead of failing its lookup.
+     */
+    @Bean(name = "priceFetchExecutor")
+    public ThreadPoolTaskExecutor priceFetchExecutor(MarketDataProperties properties) {
+        int parallelism = properties.getFetch().getParallelism();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(parallelism * 16);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("price-fetch-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * Runs stale-while-revalidate refreshes so request threads never wait on a provider for a cached asset.
+     * When the queue is full the refresh is dropped; the stale entry will trigger another attempt on its next read.
+     */
+    @Bean(name = "priceRefreshExecutor")
+    public ThreadPoolTaskExecutor priceRefreshExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(500);
+        executor.setThreadNamePrefix("price-refresh-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * Runs the provider fetches that user requests wait on for at most the interactive deadline. When
+     * saturated the fetch is refused and the request is answered from the last known prices at once.
+     */
+    @Bean(name = "priceResolveExecutor")
+    public ThreadPoolTaskExecutor priceResolveExecutor(MarketDataProperties properties) {
+        int parallelism = properties.getFetch().getParallelism();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism * 4);
+        executor.setQueueCapacity(parallelism * 4);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("price-resolve-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,549 @@
+package com.investtracker.marketdata.config;
+
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.marketdata.provider.FetchPriority;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tunables for the market data subsystem, bound from the {@code marketdata.*} keys in application.yml.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "marketdata")
+public class MarketDataProperties {
+    private Cache cache = new Cache();
+    private Fetch fetch = new Fetch();
+    private Snapshots snapshots = new Snapshots();
+    private Candles candles = new Candles();
+    private HistoryStore historyStore = new HistoryStore();
+    private Synthetic synthetic = new Synthetic();
+    private Stream stream = new Stream();
+    private Providers providers = new Providers();
+    private Prefetch prefetch = new Prefetch();
+    private Fx fx = new Fx();
+    
+    /**
+     * Request quotas keyed by provider name (see PriceProvider.getName())
+     */
+    private Map<String, RateLimit> rateLimits = new HashMap<>();
+    
+    public RateLimit rateLimitFor(String providerName) {
+        return rateLimits.getOrDefault(providerName, new RateLimit());
+    }
+    
+    /**
+     * Connection pool and timeouts of each provider's HTTP client, by provider name
+     */
+    private Map<String, HttpClientSettings> httpClients = new HashMap<>();
+    
+    public HttpClientSettings httpClientFor(String providerName) {
+        return httpClients.getOrDefault(providerName, new HttpClientSettings());
+    }
+    
+    @Data
+    public static class Cache {
+        /**
+         * Upper bound on cached (asset, currency) prices; least valuable entries are evicted first
+         */
+        private long maximumSize = 10_000;
+        
+        /**
+         * TTLs used for asset types without an explicit entry in {@link #ttl}
+         */
+        private Ttl defaultTtl = new Ttl(Duration.ofMinutes(1), Duration.ofMinutes(5));
+        
+        private Map<Asset.AssetType, Ttl> ttl = new EnumMap<>(Asset.AssetType.class);
+        
+        /**
+         * Minimum gap between two user-triggered refreshes of the same portfolio; refreshes inside the
+         * window share the previous result
+         */
+        private Duration portfolioRefreshCooldown = Duration.ofSeconds(30);
+        
+        public Ttl ttlFor(Asset.AssetType assetType) {
+            return ttl.getOrDefault(assetType, defaultTtl);
+        }
+    }
+    
+    @Data
+    public static class Fetch {
+        /**
+         * Overall time budget for one batched fetch across all providers and fallback rounds
+         */
+        private Duration deadline = Duration.ofSeconds(15);
+        
+        /**
+         * How long a user request waits for uncached prices before answering from the last known prices;
+         * the fetch keeps running and fills the cache for later requests
+         */
+        private Duration interactiveDeadline = Duration.ofSeconds(2);
+        
+        /**
+         * Maximum number of provider chunks fetched concurrently
+         */
+        private int parallelism = 16;
+        
+        private Hedging hedging = new Hedging();
+    }
+    
+    @Data
+    public static class Hedging {
+        /**
+         * Re-send interactive requests that are slower than usual to the next provider in the chain
+         */
+        private boolean enabled = true;
+        
+        /**
+         * A request is hedged once it has been running longer than this quantile of the provider's recent latency
+         */
+        private double percentile = 0.9;
+        
+        /**
+         * Successful calls a provider needs before its requests are hedged
+         */
+        private int minimumCalls = 20;
+        
+        /**
+         * Lower bound on the hedge delay, so fast providers are not hedged on noise
+         */
+        private Duration minimumDelay = Duration.ofMillis(50);
+        
+        /**
+         * Hedges allowed per primary request (0.1 = at most 10% extra provider load)
+         */
+        private double budgetRatio = 0.1;
+        
+        /**
+         * Unused hedge allowance that may build up for bursts
+         */
+        private int budgetBurst = 10;
+    }
+    
+    @Data
+    public static class Candles {
+        /**
+         * How often in-memory candles are merged into price_candles
+         */
+        private Duration flushInterval = Duration.ofSeconds(5);
+        
+        /**
+         * Upper bound on candles returned by the price history endpoint; longer ranges use a coarser resolution
+         */
+        private int maxPoints = 1500;
+    }
+    
+    @Data
+    public static class HistoryStore {
+        private boolean enabled = true;
+        
+        /**
+         * Directory holding the memory-mapped price series files
+         */
+        private String directory = "data/price-series";
+        
+        /**
+         * How often new price_snapshots rows are appended to the store
+         */
+        private Duration syncInterval = Duration.ofMinutes(1);
+        
+        /**
+         * How far behind the newest stored snapshot each sync starts reading, to pick up rows committed late
+         * by the write-behind writer
+         */
+        private Duration syncOverlap = Duration.ofMinutes(5);
+    }
+    
+    @Data
+    public static class Stream {
+        /**
+         * Subscribe the registered streaming sources to held and alerted assets
+         */
+        private boolean enabled = true;
+        
+        /**
+         * Ticks kept per (asset, currency) between dispatches; older ticks are overwritten
+         */
+        private int bufferCapacity = 256;
+        
+        /**
+         * How often buffered ticks are applied to the cache, alerts and websocket subscribers
+         */
+        private Duration dispatchInterval = Duration.ofMillis(250);
+        
+        /**
+         * How often the set of streamed assets is re-read
+         */
+        private Duration targetRefresh = Duration.ofMinutes(1);
+        
+        private Duration reconnectMinBackoff = Duration.ofSeconds(1);
+        private Duration reconnectMaxBackoff = Duration.ofMinutes(1);
+    }
+    
+    @Data
+    public static class Synthetic {
+        /**
+         * Registers the Synthetic provider and stream; add the provider to {@code providers.chain} to route
+         * traffic to it. The stream pushes a tick per subscribed asset every {@code step}.
+         */
+        private boolean enabled = false;
+        
+        private long seed = 42;
+        
+        /**
+         * Time between random-walk steps; each asset's path depends only on the seed and the step index
+         */
+        private Duration step = Duration.ofSeconds(1);
+        
+        /**
+         * Time of step zero; defaults to provider start-up
+         */
+        private Instant start;
+        
+        private int maxBatchSize = 100;
+        
+        /**
+         * Median simulated latency per call; actual latencies are log-normal around it
+         */
+        private Duration latencyMedian = Duration.ZERO;
+        
+        /**
+         * Log-normal spread of the simulated latency (0 = constant)
+         */
+        private double latencySigma = 0.5;
+        
+        /**
+         * Share of calls that fail (0.0 - 1.0)
+         */
+        private double errorRate = 0.0;
+        
+        /**
+         * Random-walk parameters for asset types without an explicit entry in {@link #assetTypes}
+         */
+        private GbmParameters defaultParameters = new GbmParameters(null, 0.05, 0.3);
+        
+        private Map<Asset.AssetType, GbmParameters> assetTypes = new EnumMap<>(Asset.AssetType.class);
+        
+        /**
+         * Per-symbol overrides
+         */
+        private Map<String, GbmParameters> symbols = new HashMap<>();
+        
+        public GbmParameters parametersFor(Asset.AssetType assetType, String symbol) {
+            GbmParameters bySymbol = symbols.get(symbol);
+            return bySymbol != null ? bySymbol : assetTypes.getOrDefault(assetType, defaultParameters);
+        }
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class GbmParameters {
+        /**
+         * Price at step zero; derived from the seed and symbol when not set
+         */
+        private BigDecimal initialPrice;
+        
+        /**
+         * Annualised drift
+         */
+        private double drift;
+        
+        /**
+         * Annualised volatility
+         */
+        private double volatility;
+    }
+    
+    @Data
+    public static class Fx {
+        /**
+         * FX rate source: {@code static} (built-in table) or {@code frankfurter} (ECB reference rates)
+         */
+        private String provider = "static";
+        
+        /**
+         * Pivot currency the rate matrix is stored against
+         */
+        private String base = "USD";
+        
+        private Duration refreshInterval = Duration.ofHours(1);
+        
+        /**
+         * Units per USD overriding or extending the static provider's table
+         */
+        private Map<String, BigDecimal> staticRates = new HashMap<>();
+    }
+    
+    @Data
+    public static class Prefetch {
+        private boolean enabled = true;
+        
+        /**
+         * Delay between prefetch passes
+         */
+        private Duration interval = Duration.ofSeconds(15);
+        
+        /**
+         * How often the set of held and alerted assets is re-read from the database
+         */
+        private Duration targetRefresh = Duration.ofMinutes(1);
+        
+        /**
+         * Fraction of the soft TTL after which a prefetched entry is renewed, so it is replaced before
+         * readers see it as stale
+         */
+        private double refreshAhead = 0.8;
+        
+        /**
+         * Upper bound on assets refreshed per pass; the most held and most viewed go first
+         */
+        private int maxAssetsPerPass = 1000;
+    }
+    
+    @Data
+    public static class Providers {
+        /**
+         * Provider names to try for each asset type, most preferred first. Providers that support a type
+         * but are not listed are tried after the listed ones, in registration order.
+         */
+        private Map<Asset.AssetType, List<String>> chain = new EnumMap<>(Asset.AssetType.class);
+        
+        /**
+         * Smoothing factor for the latency and error-rate moving averages; higher reacts faster
+         */
+        private double ewmaAlpha = 0.2;
+        
+        /**
+         * Providers whose average latency exceeds this are tried after healthy ones in the same chain
+         */
+        private Duration slowCallThreshold = Duration.ofSeconds(3);
+        
+        private CircuitBreakerSettings circuitBreaker = new CircuitBreakerSettings();
+    }
+    
+    @Data
+    public static class CircuitBreakerSettings {
+        /**
+         * Consecutive failures that open the circuit
+         */
+        private int failureThreshold = 5;
+        
+        /**
+         * Average error rate that opens the circuit once {@link #minimumCalls} have been observed
+         */
+        private double errorRateThreshold = 0.5;
+        private int minimumCalls = 10;
+        
+        /**
+         * How long an open circuit refuses traffic before a background probe is sent; doubles after
+         * each failed probe up to {@link #maxOpenDuration}
+         */
+        private Duration openDuration = Duration.ofSeconds(30);
+        private Duration maxOpenDuration = Duration.ofMinutes(5);
+    }
+    
+    @Data
+    public static class RateLimit {
+        /**
+         * Sustained rate: {@code permits} requests per {@code period}
+         */
+        private int permits = 5;
+        private Duration period = Duration.ofMinutes(1);
+        
+        /**
+         * Requests that may be sent back-to-back after an idle spell
+         */
+        private int burst = 5;
+        
+        /**
+         * How long a request may wait for a permit before it fails, per priority
+         */
+        private Duration interactiveMaxWait = Duration.ofSeconds(30);
+        private Duration backgroundMaxWait = Duration.ofMinutes(5);
+        
+        public Duration maxWait(FetchPriority priority) {
+            return priority == FetchPriority.INTERACTIVE ? interactiveMaxWait : backgroundMaxWait;
+        }
+    }
+    
+    @Data
+    public static class HttpClientSettings {
+        /**
+         * Connections kept open to the provider; with HTTP/2 each one carries many concurrent requests
+         */
+        private int maxConnections = 50;
+        
+        /**
+         * Requests that may queue for a connection, and how long they wait before failing
+         */
+        private int pendingAcquireMaxCount = 500;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+        
+        /**
+         * Idle connections are closed after {@code max-idle-time}, and every connection is renewed after
+         * {@code max-life-time} so DNS changes are picked up
+         */
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        
+        private Duration connectTimeout = Duration.ofSeconds(3);
+        
+        /**
+         * Longest wait for the response after the request was sent
+         */
+        private Duration responseTimeout = Duration.ofSeconds(8);
+        
+        /**
+         * Offer HTTP/2 to https endpoints, falling back to HTTP/1.1 when the server does not accept it
+         */
+        private boolean http2 = true;
+        
+        /**
+         * Ask for gzip-compressed responses
+         */
+        private boolean compression = true;
+    }
+    
+    @Data
+    public static class Snapshots {
+        private WriteBehind writeBehind = new WriteBehind();
+        private Throttle throttle = new Throttle();
+        private Retention retention = new Retention();
+    }
+    
+    @Data
+    public static class Retention {
+        private boolean enabled = true;
+        
+        /**
+         * When the partition maintenance job runs
+         */
+        private String cron = "0 30 3 * * *";
+        
+        /**
+         * Monthly partitions created ahead of the current month
+         */
+        private int premakeMonths = 2;
+        
+        /**
+         * Policy used for asset types without an explicit entry in {@link #policy}
+         */
+        private RetentionPolicy defaultPolicy = new RetentionPolicy(Duration.ofDays(90), Duration.ofDays(730));
+        
+        private Map<Asset.AssetType, RetentionPolicy> policy = new EnumMap<>(Asset.AssetType.class);
+        
+        public RetentionPolicy policyFor(Asset.AssetType assetType) {
+            return policy.getOrDefault(assetType, defaultPolicy);
+        }
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RetentionPolicy {
+        /**
+         * How long snapshots are kept at full resolution; older months are compacted to one row per asset per day
+         */
+        private Duration raw;
+        
+        /**
+         * How long compacted snapshots are kept; older rows are deleted and only their candles remain
+         */
+        private Duration compacted;
+    }
+    
+    @Data
+    public static class Throttle {
+        /**
+         * Policy used for asset types without an explicit entry in {@link #policy}
+         */
+        private ThrottlePolicy defaultPolicy = new ThrottlePolicy(new BigDecimal("0.001"), Duration.ofMinutes(15));
+        
+        private Map<Asset.AssetType, ThrottlePolicy> policy = new EnumMap<>(Asset.AssetType.class);
+        
+        public ThrottlePolicy policyFor(Asset.AssetType assetType) {
+            return policy.getOrDefault(assetType, defaultPolicy);
+        }
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ThrottlePolicy {
+        /**
+         * Relative move since the last persisted price that triggers a new row (0.001 = 0.1%)
+         */
+        private BigDecimal minChange;
+        
+        /**
+         * A row is written at least this often even if the price has not moved
+         */
+        private Duration maxInterval;
+    }
+    
+    @Data
+    public static class WriteBehind {
+        private int queueCapacity = 10_000;
+        
+        /**
+         * Rows per JDBC batch insert
+         */
+        private int batchSize = 500;
+        
+        /**
+         * Maximum time a queued row waits before its batch is flushed
+         */
+        private Duration flushInterval = Duration.ofSeconds(1);
+        
+        /**
+         * How long a caller waits for queue space before the overflow policy applies
+         */
+        private Duration enqueueTimeout = Duration.ofMillis(50);
+        
+        private OverflowPolicy overflow = OverflowPolicy.DROP;
+        
+        /**
+         * How long shutdown waits for the queue to drain
+         */
+        private Duration shutdownTimeout = Duration.ofSeconds(10);
+    }
+    
+    public enum OverflowPolicy {
+        /**
+         * Discard the row; price history loses a point but callers never wait on the database
+         */
+        DROP,
+        
+        /**
+         * Write the row synchronously on the caller's thread
+         */
+        SPILL
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Ttl {
+        /**
+         * Age after which a cached price is still served but refreshed in the background
+         */
+        private Duration soft;
+        
+        /**
+         * Age after which a cached price is dropped and callers must wait for a fetch
+         */
+        private Duration hard;
+    }
+}
@@ -2,14 +2,15 @@ package com.investtracker.marketdata.controller;
 
 import com.investtracker.asset.entity.Asset;
 import com.investtracker.asset.service.AssetService;
+import com.investtracker.marketdata.cache.PriceKey;
 import com.investtracker.marketdata.dto.*;
-import com.investtracker.marketdata.entity.PriceSnapshot;
+import com.investtracker.marketdata.entity.CandleResolution;
 import com.investtracker.marketdata.service.MarketDataService;
+import com.investtracker.marketdata.service.PortfolioPriceRefresher;
+import com.investtracker.marketdata.service.PriceQuote;
 import com.investtracker.portfolio.entity.Portfolio;
 import com.investtracker.portfolio.service.PortfolioService;
 import com.investtracker.security.UserPrincipal;
-import com.investtracker.transaction.entity.Transaction;
-import com.investtracker.transaction.repository.TransactionRepository;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -17,6 +18,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -28,7 +30,7 @@ public class MarketDataController {
     private final MarketDataService marketDataService;
     private final AssetService assetService;
     private final PortfolioService portfolioService;
-    private final TransactionRepository transactionRepository;
+    private final PortfolioPriceRefresher portfolioPriceRefresher;
     
     @GetMapping("/asset/{assetId}/price")
     public ResponseEntity<?> getAssetPrice(
@@ -58,18 +60,24 @@ public class MarketDataController {
     public ResponseEntity<?> getBulkPrices(
         @Valid @RequestBody BulkPriceRequest request
     ) {
-        Map<java.util.UUID, java.math.BigDecimal> prices = new HashMap<>();
+        Map<UUID, PriceQuote> quotes = marketDataService.getBulkPrices(request.getAssetIds(), request.getCurrency());
         
-        for (java.util.UUID assetId : request.getAssetIds()) {
-            Asset asset = assetService.findById(assetId).orElse(null);
-            if (asset != null) {
-                marketDataService.getCurrentPrice(asset, request.getCurrency())
-                    .ifPresent(price -> prices.put(assetId, price));
-            }
-        }
+        Map<UUID, BigDecimal> prices = new LinkedHashMap<>();
+        Map<UUID, BulkPriceResponse.QuoteInfo> quoteInfo = new LinkedHashMap<>();
+        quotes.forEach((assetId, quote) -> {
+            prices.put(assetId, quote.price());
+            quoteInfo.put(assetId, new BulkPriceResponse.QuoteInfo(
+                quote.source(), quote.asOfMillis(), quote.stale(), quote.quoteCurrency()));
+        });
+        List<UUID> missing = request.getAssetIds().stream()
+            .distinct()
+            .filter(assetId -> !quotes.containsKey(assetId))
+            .collect(Collectors.toList());
         
         return ResponseEntity.ok(new BulkPriceResponse(
             prices,
+            quoteInfo,
+            missing,
             request.getCurrency(),
             System.currentTimeMillis()
         ));
@@ -80,7 +88,7 @@ public class MarketDataController {
         @PathVariable java.util.UUID assetId,
         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
-        @RequestParam(defaultValue = "daily") String interval
+        @RequestParam(defaultValue = "auto") String interval
     ) {
         Asset asset = assetService.findById(assetId)
             .orElse(null);
@@ -96,21 +104,23 @@ public class MarketDataController {
             endDate = LocalDateTime.now();
         }
         
-        List<PriceSnapshot> snapshots = marketDataService.getHistoricalPrices(assetId, startDate, endDate);
-        
-        // Group by interval if needed
-        List<HistoricalPriceResponse.PricePoint> pricePoints = snapshots.stream()
-            .map(snapshot -> new HistoricalPriceResponse.PricePoint(
-                snapshot.getSnapshotDate(),
-                snapshot.getPrice(),
-                snapshot.getSource()
+        CandleResolution resolution = marketDataService.resolveCandleResolution(startDate, endDate, interval);
+        List<HistoricalPriceResponse.PricePoint> pricePoints = marketDataService.getPriceCandles(asset, resolution, startDate, endDate).stream()
+            .map(candle -> new HistoricalPriceResponse.PricePoint(
+                candle.bucketStart(),
+                candle.close(),
+                candle.open(),
+                candle.high(),
+                candle.low(),
+                candle.tickCount()
             ))
             .collect(Collectors.toList());
         
         return ResponseEntity.ok(new HistoricalPriceResponse(
             assetId,
             asset.getSymbol(),
-            asset.getCurrency(),
+            PriceKey.quoteCurrency(asset),
+            resolution.getCode(),
             pricePoints
         ));
     }
@@ -136,17 +146,12 @@ public class MarketDataController {
                 return ResponseEntity.badRequest().body(new ErrorResponse("Portfolio access denied"));
             }
             
-            // Get all assets in portfolio
-            List<Transaction> transactions = transactionRepository.findByPortfolioIdOrderByTransactionDateDesc(portfolioId);
-            Set<Asset> assets = transactions.stream()
-                .map(Transaction::getAsset)
-                .collect(Collectors.toSet());
-            
-            // Refresh prices for all assets
-            marketDataService.getCurrentPrices(assets, portfolio.getBaseCurrency());
-            marketDataService.clearCache();
+            // Re-fetch only this portfolio's holdings; other users' cached prices stay warm
+            PortfolioPriceRefresher.RefreshResult result = portfolioPriceRefresher.refresh(portfolio);
             
-            return ResponseEntity.ok(new MessageResponse("Prices refreshed successfully"));
+            return ResponseEntity.ok(new MessageResponse(result.coalesced()
+                ? "Prices were refreshed recently"
+                : "Prices refreshed successfully"));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
         }
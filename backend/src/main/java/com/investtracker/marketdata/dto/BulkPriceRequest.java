@@ -1,6 +1,7 @@
 package com.investtracker.marketdata.dto;
 
 import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
 import lombok.Data;
 
 import java.util.List;
@@ -9,6 +10,7 @@ import java.util.UUID;
 @Data
 public class BulkPriceRequest {
     @NotEmpty(message = "Asset IDs are required")
+    @Size(max = 1000, message = "At most 1000 asset IDs per request")
     private List<UUID> assetIds;
     
     private String currency = "USD";
@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -13,7 +14,38 @@ import java.util.UUID;
 @AllArgsConstructor
 public class BulkPriceResponse {
     private Map<UUID, BigDecimal> prices;
+    
+    /**
+     * Source and freshness of each price in {@link #prices}
+     */
+    private Map<UUID, QuoteInfo> quotes;
+    
+    /**
+     * Requested ids that are unknown or could not be priced
+     */
+    private List<UUID> missing;
     private String currency;
     private Long timestamp;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class QuoteInfo {
+        private String source;
+        
+        /**
+         * When the underlying quote was fetched (epoch millis)
+         */
+        private Long asOf;
+        
+        /**
+         * Whether the quote is past its freshness window and being refreshed
+         */
+        private boolean stale;
+        
+        /**
+         * Currency the price was fetched in before conversion
+         */
+        private String quoteCurrency;
+    }
 }
-
@@ -16,15 +16,30 @@ public class HistoricalPriceResponse {
     private UUID assetId;
     private String assetSymbol;
     private String currency;
+    
+    /**
+     * Candle resolution of the points: 1m, 1h or 1d
+     */
+    private String interval;
     private List<PricePoint> prices;
     
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
     public static class PricePoint {
+        /**
+         * Start of the candle
+         */
         private LocalDateTime date;
+        
+        /**
+         * Closing price of the candle
+         */
         private BigDecimal price;
-        private String source;
+        private BigDecimal open;
+        private BigDecimal high;
+        private BigDecimal low;
+        private int samples;
     }
 }
 
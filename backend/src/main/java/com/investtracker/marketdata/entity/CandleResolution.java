@@ -0,0 +1,75 @@
+package com.investtracker.marketdata.entity;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+/**
+ * Bucket widths of the price_candles rollups, finest first.
+ */
+public enum CandleResolution {
+    ONE_MINUTE("1m", ChronoUnit.MINUTES),
+    ONE_HOUR("1h", ChronoUnit.HOURS),
+    ONE_DAY("1d", ChronoUnit.DAYS);
+    
+    private final String code;
+    private final ChronoUnit unit;
+    
+    CandleResolution(String code, ChronoUnit unit) {
+        this.code = code;
+        this.unit = unit;
+    }
+    
+    public String getCode() {
+        return code;
+    }
+    
+    public Duration getDuration() {
+        return unit.getDuration();
+    }
+    
+    public LocalDateTime bucketStart(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+    
+    /**
+     * Parses an {@code interval} request parameter; empty for {@code auto} and unknown values
+     */
+    public static Optional<CandleResolution> fromInterval(String interval) {
+        if (interval == null) {
+            return Optional.empty();
+        }
+        return switch (interval.trim().toLowerCase()) {
+            case "1m", "minute" -> Optional.of(ONE_MINUTE);
+            case "1h", "hourly", "hour" -> Optional.of(ONE_HOUR);
+            case "1d", "daily", "day" -> Optional.of(ONE_DAY);
+            default -> Optional.empty();
+        };
+    }
+    
+    public static CandleResolution fromCode(String code) {
+        for (CandleResolution resolution : values()) {
+            if (resolution.code.equals(code)) {
+                return resolution;
+            }
+        }
+        throw new IllegalArgumentException("Unknown candle resolution: " + code);
+    }
+    
+    /**
+     * Finest resolution, no finer than {@code requested}, that covers {@code range} in at most
+     * {@code maxPoints} candles. Falls back to daily candles for very long ranges.
+     */
+    public static CandleResolution forRange(Duration range, int maxPoints, CandleResolution requested) {
+        for (CandleResolution resolution : values()) {
+            if (requested != null && resolution.ordinal() < requested.ordinal()) {
+                continue;
+            }
+            if (range.dividedBy(resolution.getDuration()) <= maxPoints) {
+                return resolution;
+            }
+        }
+        return ONE_DAY;
+    }
+}
@@ -0,0 +1,11 @@
+package com.investtracker.marketdata.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A price_snapshots row waiting in the write-behind queue.
+ */
+public record PendingPriceSnapshot(UUID assetId, BigDecimal price, String currency, String source, LocalDateTime snapshotDate) {
+}
@@ -0,0 +1,39 @@
+package com.investtracker.marketdata.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One OHLC bucket of price_candles. {@code firstAt} and {@code lastAt} are the times of the opening and
+ * closing prices, so partial candles from different flushes merge in time order.
+ */
+public record PriceCandle(UUID assetId,
+                          String currency,
+                          CandleResolution resolution,
+                          LocalDateTime bucketStart,
+                          BigDecimal open,
+                          BigDecimal high,
+                          BigDecimal low,
+                          BigDecimal close,
+                          int tickCount,
+                          LocalDateTime firstAt,
+                          LocalDateTime lastAt) {
+    
+    public static PriceCandle of(UUID assetId, String currency, CandleResolution resolution, BigDecimal price, LocalDateTime at) {
+        return new PriceCandle(assetId, currency, resolution, resolution.bucketStart(at), price, price, price, price, 1, at, at);
+    }
+    
+    public PriceCandle merge(PriceCandle other) {
+        boolean otherOpensFirst = other.firstAt.isBefore(firstAt);
+        boolean otherClosesLast = !other.lastAt.isBefore(lastAt);
+        return new PriceCandle(assetId, currency, resolution, bucketStart,
+            otherOpensFirst ? other.open : open,
+            high.max(other.high),
+            low.min(other.low),
+            otherClosesLast ? other.close : close,
+            tickCount + other.tickCount,
+            otherOpensFirst ? other.firstAt : firstAt,
+            otherClosesLast ? other.lastAt : lastAt);
+    }
+}
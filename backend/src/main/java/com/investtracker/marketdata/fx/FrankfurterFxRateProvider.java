@@ -0,0 +1,52 @@
+package com.investtracker.marketdata.fx;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.investtracker.marketdata.provider.ProviderHttpClientFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ECB reference rates from the Frankfurter API (no key required, refreshed once per working day)
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "marketdata.fx.provider", havingValue = "frankfurter")
+public class FrankfurterFxRateProvider implements FxRateProvider {
+    private static final String BASE_URL = "https://api.frankfurter.app";
+    
+    private final WebClient webClient;
+    
+    public FrankfurterFxRateProvider(ProviderHttpClientFactory httpClientFactory) {
+        this.webClient = httpClientFactory.create(getName(), BASE_URL);
+    }
+    
+    @Override
+    public Map<String, BigDecimal> getRates(String base) {
+        JsonNode body = webClient.get()
+            .uri(uriBuilder -> uriBuilder
+                .path("/latest")
+                .queryParam("from", base)
+                .build())
+            .retrieve()
+            .bodyToMono(JsonNode.class)
+            .block(Duration.ofSeconds(10));
+        
+        Map<String, BigDecimal> rates = new HashMap<>();
+        if (body != null && body.has("rates")) {
+            body.get("rates").fields().forEachRemaining(entry -> rates.put(entry.getKey(), entry.getValue().decimalValue()));
+        }
+        return rates;
+    }
+    
+    @Override
+    public String getName() {
+        return "frankfurter";
+    }
+}
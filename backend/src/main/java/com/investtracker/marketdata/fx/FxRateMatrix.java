@@ -0,0 +1,53 @@
+package com.investtracker.marketdata.fx;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Immutable snapshot of exchange rates against one pivot currency. Any cross rate is derived from the
+ * two pivot rates, so N currencies need N stored rates rather than N².
+ */
+public record FxRateMatrix(String base, Map<String, BigDecimal> ratesPerBase, String source, long fetchedAtMillis) {
+    private static final MathContext PRECISION = MathContext.DECIMAL64;
+    
+    public static FxRateMatrix empty(String base) {
+        return new FxRateMatrix(base, Map.of(base, BigDecimal.ONE), "none", 0);
+    }
+    
+    public static FxRateMatrix of(String base, Map<String, BigDecimal> rates, String source, long fetchedAtMillis) {
+        Map<String, BigDecimal> normalised = new HashMap<>();
+        rates.forEach((currency, rate) -> {
+            if (rate != null && rate.signum() > 0) {
+                normalised.put(currency.toUpperCase(), rate);
+            }
+        });
+        normalised.put(base, BigDecimal.ONE);
+        return new FxRateMatrix(base, Map.copyOf(normalised), source, fetchedAtMillis);
+    }
+    
+    /**
+     * Units of {@code to} per one unit of {@code from}
+     */
+    public Optional<BigDecimal> rate(String from, String to) {
+        if (from.equalsIgnoreCase(to)) {
+            return Optional.of(BigDecimal.ONE);
+        }
+        BigDecimal fromRate = ratesPerBase.get(from.toUpperCase());
+        BigDecimal toRate = ratesPerBase.get(to.toUpperCase());
+        if (fromRate == null || toRate == null) {
+            return Optional.empty();
+        }
+        return Optional.of(toRate.divide(fromRate, PRECISION));
+    }
+    
+    public Optional<BigDecimal> convert(BigDecimal amount, String from, String to) {
+        return rate(from, to).map(rate -> rate.compareTo(BigDecimal.ONE) == 0 ? amount : amount.multiply(rate, PRECISION));
+    }
+    
+    public boolean isEmpty() {
+        return fetchedAtMillis == 0;
+    }
+}
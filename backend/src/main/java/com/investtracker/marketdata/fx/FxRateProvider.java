@@ -0,0 +1,17 @@
+package com.investtracker.marketdata.fx;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Source of currency exchange rates for the {@link FxRateService}
+ */
+public interface FxRateProvider {
+    /**
+     * Rates for every currency the provider knows, as units of that currency per one unit of {@code base}.
+     * The base itself may be omitted.
+     */
+    Map<String, BigDecimal> getRates(String base);
+    
+    String getName();
+}
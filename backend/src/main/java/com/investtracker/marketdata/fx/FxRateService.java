@@ -0,0 +1,82 @@
+package com.investtracker.marketdata.fx;
+
+import com.investtracker.marketdata.config.MarketDataProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory exchange rate matrix, refreshed from the configured {@link FxRateProvider} every
+ * {@code marketdata.fx.refresh-interval}. Conversions never call the provider; if a refresh fails the
+ * previous matrix stays in use.
+ */
+@Slf4j
+@Service
+public class FxRateService {
+    private static final long INLINE_RETRY_MILLIS = 30_000;
+    
+    private final FxRateProvider fxRateProvider;
+    private final String base;
+    private volatile FxRateMatrix matrix;
+    private volatile long lastAttemptMillis;
+    
+    public FxRateService(FxRateProvider fxRateProvider, MarketDataProperties properties, MeterRegistry meterRegistry) {
+        this.fxRateProvider = fxRateProvider;
+        this.base = properties.getFx().getBase().toUpperCase();
+        this.matrix = FxRateMatrix.empty(base);
+        
+        Gauge.builder("marketdata.fx.rates.age", this,
+                service -> service.matrix.isEmpty() ? Double.NaN : (System.currentTimeMillis() - service.matrix.fetchedAtMillis()) / 1000.0)
+            .baseUnit("seconds")
+            .register(meterRegistry);
+        Gauge.builder("marketdata.fx.rates.currencies", this, service -> service.matrix.ratesPerBase().size())
+            .register(meterRegistry);
+    }
+    
+    @Scheduled(fixedDelayString = "#{@marketDataProperties.fx.refreshInterval.toMillis()}")
+    public void refreshRates() {
+        lastAttemptMillis = System.currentTimeMillis();
+        try {
+            Map<String, BigDecimal> rates = fxRateProvider.getRates(base);
+            if (rates.isEmpty()) {
+                log.warn("FX provider {} returned no rates for {}; keeping previous rates", fxRateProvider.getName(), base);
+                return;
+            }
+            matrix = FxRateMatrix.of(base, rates, fxRateProvider.getName(), System.currentTimeMillis());
+            log.debug("Loaded {} FX rates against {} from {}", rates.size(), base, fxRateProvider.getName());
+        } catch (Exception e) {
+            log.error("Error refreshing FX rates from {}: {}", fxRateProvider.getName(), e.getMessage());
+        }
+    }
+    
+    public Optional<BigDecimal> rate(String from, String to) {
+        return currentMatrix().rate(from, to);
+    }
+    
+    /**
+     * Converts {@code amount} from one currency to another; empty if either currency has no known rate
+     */
+    public Optional<BigDecimal> convert(BigDecimal amount, String from, String to) {
+        return currentMatrix().convert(amount, from, to);
+    }
+    
+    public FxRateMatrix currentMatrix() {
+        FxRateMatrix current = matrix;
+        if (current.isEmpty() && System.currentTimeMillis() - lastAttemptMillis > INLINE_RETRY_MILLIS) {
+            // First use before the scheduled refresh has run
+            synchronized (this) {
+                if (matrix.isEmpty() && System.currentTimeMillis() - lastAttemptMillis > INLINE_RETRY_MILLIS) {
+                    refreshRates();
+                }
+                current = matrix;
+            }
+        }
+        return current;
+    }
+}
@@ -0,0 +1,57 @@
+package com.investtracker.marketdata.fx;
+
+import com.investtracker.marketdata.config.MarketDataProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Local stand-in with fixed USD rates, for development and offline use. Entries under
+ * {@code marketdata.fx.static-rates} (units per USD) override or extend the built-in table.
+ */
+@Component
+@ConditionalOnProperty(name = "marketdata.fx.provider", havingValue = "static", matchIfMissing = true)
+public class StaticFxRateProvider implements FxRateProvider {
+    private static final Map<String, BigDecimal> USD_RATES = new HashMap<>();
+    
+    static {
+        USD_RATES.put("USD", BigDecimal.ONE);
+        USD_RATES.put("EUR", new BigDecimal("0.92"));
+        USD_RATES.put("GBP", new BigDecimal("0.79"));
+        USD_RATES.put("JPY", new BigDecimal("151.50"));
+        USD_RATES.put("CHF", new BigDecimal("0.88"));
+        USD_RATES.put("CAD", new BigDecimal("1.36"));
+        USD_RATES.put("AUD", new BigDecimal("1.52"));
+        USD_RATES.put("SGD", new BigDecimal("1.34"));
+        USD_RATES.put("CNY", new BigDecimal("7.23"));
+        USD_RATES.put("INR", new BigDecimal("83.30"));
+        USD_RATES.put("VND", new BigDecimal("25400"));
+    }
+    
+    private final Map<String, BigDecimal> usdRates;
+    
+    public StaticFxRateProvider(MarketDataProperties properties) {
+        this.usdRates = new HashMap<>(USD_RATES);
+        properties.getFx().getStaticRates().forEach((currency, rate) -> usdRates.put(currency.toUpperCase(), rate));
+    }
+    
+    @Override
+    public Map<String, BigDecimal> getRates(String base) {
+        BigDecimal basePerUsd = usdRates.get(base.toUpperCase());
+        if (basePerUsd == null) {
+            return Map.of();
+        }
+        Map<String, BigDecimal> rates = new HashMap<>();
+        usdRates.forEach((currency, perUsd) -> rates.put(currency, perUsd.divide(basePerUsd, MathContext.DECIMAL64)));
+        return rates;
+    }
+    
+    @Override
+    public String getName() {
+        return "static";
+    }
+}
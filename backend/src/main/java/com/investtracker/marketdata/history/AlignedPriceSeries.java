@@ -0,0 +1,42 @@
+package com.investtracker.marketdata.history;
+
+import com.investtracker.marketdata.cache.PriceKey;
+
+import java.util.List;
+
+/**
+ * Several price series sampled on one shared time grid, ready for correlation and risk maths. Each
+ * grid point carries the last price at or before it; {@link #NO_PRICE} marks points before a series starts.
+ */
+public record AlignedPriceSeries(List<PriceKey> keys, long[] epochSeconds, long[][] scaledPrices) {
+    public static final long NO_PRICE = Long.MIN_VALUE;
+    
+    static AlignedPriceSeries align(List<PriceKey> keys, List<PriceSeriesView> views,
+                                    long fromEpochSecond, long toEpochSecond, long stepSeconds) {
+        int points = (int) ((toEpochSecond - fromEpochSecond) / stepSeconds) + 1;
+        long[] grid = new long[points];
+        for (int i = 0; i < points; i++) {
+            grid[i] = fromEpochSecond + i * stepSeconds;
+        }
+        
+        long[][] prices = new long[views.size()][];
+        for (int s = 0; s < views.size(); s++) {
+            PriceSeriesView view = views.get(s);
+            long[] column = new long[points];
+            int next = view.indexAfter(grid[0]);
+            long last = next == 0 ? NO_PRICE : view.scaledPrice(next - 1);
+            for (int i = 0; i < points; i++) {
+                while (next < view.size() && view.epochSecond(next) <= grid[i]) {
+                    last = view.scaledPrice(next++);
+                }
+                column[i] = last;
+            }
+            prices[s] = column;
+        }
+        return new AlignedPriceSeries(List.copyOf(keys), grid, prices);
+    }
+    
+    public long[] scaledPrices(PriceKey key) {
+        return scaledPrices[keys.indexOf(key)];
+    }
+}
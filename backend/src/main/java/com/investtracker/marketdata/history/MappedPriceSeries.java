@@ -0,0 +1,128 @@
+package com.investtracker.marketdata.history;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One append-only price series stored as two memory-mapped columns: {@code .ts} holds a small header and
+ * the epoch-second times, {@code .px} the fixed-point prices.
+ * <p>
+ * There is a single writer; readers run concurrently without locking. The writer fills a slot before
+ * publishing the new count, and a reader reads the count before the columns, so it never sees a slot that
+ * is not yet written. Growing the files maps a larger region; readers still holding the old mapping keep
+ * reading valid data.
+ */
+final class MappedPriceSeries {
+    private static final int MAGIC = 0x50585453;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int COUNT_OFFSET = 8;
+    private static final int INITIAL_CAPACITY = 1024;
+    
+    private final Path timesPath;
+    private final Path pricesPath;
+    private volatile Columns columns;
+    private volatile int count;
+    
+    private MappedPriceSeries(Path timesPath, Path pricesPath, Columns columns, int count) {
+        this.timesPath = timesPath;
+        this.pricesPath = pricesPath;
+        this.columns = columns;
+        this.count = count;
+    }
+    
+    static MappedPriceSeries open(Path timesPath, Path pricesPath) throws IOException {
+        boolean exists = Files.exists(timesPath) && Files.size(timesPath) >= HEADER_BYTES;
+        int capacity = exists
+            ? (int) Math.min((Files.size(timesPath) - HEADER_BYTES) / Long.BYTES, Files.size(pricesPath) / Long.BYTES)
+            : INITIAL_CAPACITY;
+        Columns columns = map(timesPath, pricesPath, Math.max(capacity, INITIAL_CAPACITY));
+        
+        int count = 0;
+        if (exists) {
+            if (columns.timesFile.getInt(0) != MAGIC) {
+                throw new IOException("Not a price series file: " + timesPath);
+            }
+            // Slots past the stored count were never flushed and are overwritten
+            count = (int) Math.min(columns.timesFile.getLong(COUNT_OFFSET), capacity);
+        } else {
+            columns.timesFile.putInt(0, MAGIC);
+            columns.timesFile.putInt(4, VERSION);
+            columns.timesFile.putLong(COUNT_OFFSET, 0);
+        }
+        return new MappedPriceSeries(timesPath, pricesPath, columns, count);
+    }
+    
+    int size() {
+        return count;
+    }
+    
+    long lastEpochSecond() {
+        int n = count;
+        return n == 0 ? Long.MIN_VALUE : columns.times.get(n - 1);
+    }
+    
+    /**
+     * Appends a point; points not later than the last one are ignored
+     */
+    boolean append(long epochSecond, long scaledPrice) throws IOException {
+        int n = count;
+        if (n > 0 && epochSecond <= columns.times.get(n - 1)) {
+            return false;
+        }
+        if (n == columns.times.capacity()) {
+            columns = map(timesPath, pricesPath, n * 2);
+        }
+        Columns current = columns;
+        current.times.put(n, epochSecond);
+        current.prices.put(n, scaledPrice);
+        count = n + 1;
+        return true;
+    }
+    
+    /**
+     * Persists the points appended so far; the stored count is written after the data it covers
+     */
+    void flush() {
+        Columns current = columns;
+        current.timesFile.force();
+        current.pricesFile.force();
+        current.timesFile.putLong(COUNT_OFFSET, count);
+        current.timesFile.force();
+    }
+    
+    PriceSeriesView view(long fromEpochSecond, long toEpochSecond) {
+        int n = count;
+        Columns current = columns;
+        PriceSeriesView all = new PriceSeriesView(
+            current.times.asReadOnlyBuffer().limit(n), current.prices.asReadOnlyBuffer().limit(n));
+        int from = fromEpochSecond == Long.MIN_VALUE ? 0 : all.indexAfter(fromEpochSecond - 1);
+        int to = all.indexAfter(toEpochSecond);
+        return all.slice(from, Math.max(from, to));
+    }
+    
+    private static Columns map(Path timesPath, Path pricesPath, int capacity) throws IOException {
+        MappedByteBuffer timesFile = mapFile(timesPath, HEADER_BYTES + (long) capacity * Long.BYTES);
+        MappedByteBuffer pricesFile = mapFile(pricesPath, (long) capacity * Long.BYTES);
+        LongBuffer times = timesFile.slice(HEADER_BYTES, capacity * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        LongBuffer prices = pricesFile.duplicate().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        return new Columns(timesFile, times, pricesFile, prices);
+    }
+    
+    private static MappedByteBuffer mapFile(Path path, long bytes) throws IOException {
+        // The mapping stays valid after the channel is closed, so no file handle is held per series
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        }
+    }
+    
+    private record Columns(MappedByteBuffer timesFile, LongBuffer times, MappedByteBuffer pricesFile, LongBuffer prices) {
+    }
+}
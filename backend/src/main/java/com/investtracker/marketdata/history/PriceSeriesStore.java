@@ -0,0 +1,203 @@
+package com.investtracker.marketdata.history;
+
+import com.investtracker.marketdata.cache.PriceKey;
+import com.investtracker.marketdata.config.MarketDataProperties;
+import com.investtracker.marketdata.entity.PendingPriceSnapshot;
+import com.investtracker.marketdata.repository.PriceSnapshotBatchRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Local columnar copy of the price history for analytics reads.
+ * <p>
+ * Each (asset, currency) series is an append-only pair of memory-mapped files under
+ * {@code marketdata.history-store.directory}: one column of epoch seconds and one of fixed-point prices.
+ * New price_snapshots rows are appended every {@code sync-interval}. Reads return views over the mapped
+ * files, so scanning years of history allocates neither entities nor per-point objects and never touches
+ * Postgres. The store keeps its own copy of every point, including rows the snapshot retention job later
+ * compacts in the database.
+ */
+@Slf4j
+@Component
+public class PriceSeriesStore {
+    private static final String TIMES_SUFFIX = ".ts";
+    private static final String PRICES_SUFFIX = ".px";
+    private static final int MAX_ALIGNED_POINTS = 1_000_000;
+    
+    private final PriceSnapshotBatchRepository snapshotRepository;
+    private final MarketDataProperties.HistoryStore config;
+    private final Path directory;
+    private final Map<PriceKey, MappedPriceSeries> series = new ConcurrentHashMap<>();
+    private volatile long watermarkEpochSecond = Long.MIN_VALUE;
+    private volatile boolean available;
+    
+    public PriceSeriesStore(PriceSnapshotBatchRepository snapshotRepository,
+                            MarketDataProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.snapshotRepository = snapshotRepository;
+        this.config = properties.getHistoryStore();
+        this.directory = Paths.get(config.getDirectory());
+        
+        Gauge.builder("marketdata.history.series", series, Map::size).register(meterRegistry);
+        Gauge.builder("marketdata.history.points", series,
+                all -> all.values().stream().mapToLong(MappedPriceSeries::size).sum())
+            .register(meterRegistry);
+    }
+    
+    @PostConstruct
+    public void open() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path timesPath : files.filter(path -> path.toString().endsWith(TIMES_SUFFIX)).toList()) {
+                    PriceKey key = parseKey(timesPath.getFileName().toString());
+                    if (key != null) {
+                        MappedPriceSeries opened = openSeries(key);
+                        series.put(key, opened);
+                        watermarkEpochSecond = Math.max(watermarkEpochSecond, opened.lastEpochSecond());
+                    }
+                }
+            }
+            available = true;
+            log.info("Opened price series store at {} with {} series", directory.toAbsolutePath(), series.size());
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Price series store at {} is unavailable: {}", directory.toAbsolutePath(), e.getMessage());
+        }
+    }
+    
+    /**
+     * Appends price_snapshots rows newer than the store's watermark, less {@code sync-overlap}. Rows already
+     * in a series are skipped, so the overlap only picks up late commits.
+     */
+    @Scheduled(fixedDelayString = "#{@marketDataProperties.historyStore.syncInterval.toMillis()}")
+    public synchronized void sync() {
+        if (!available) {
+            return;
+        }
+        
+        LocalDateTime since = watermarkEpochSecond == Long.MIN_VALUE
+            ? LocalDateTime.of(1970, 1, 1, 0, 0)
+            : toLocalDateTime(watermarkEpochSecond).minus(config.getSyncOverlap());
+        Set<MappedPriceSeries> touched = new HashSet<>();
+        long[] appended = {0};
+        try {
+            snapshotRepository.forEachSince(since, row -> {
+                if (append(row, touched)) {
+                    appended[0]++;
+                }
+            });
+        } catch (Exception e) {
+            log.error("Error syncing price series store: {}", e.getMessage());
+        } finally {
+            touched.forEach(MappedPriceSeries::flush);
+        }
+        if (appended[0] > 0) {
+            log.debug("Appended {} points to {} price series", appended[0], touched.size());
+        }
+    }
+    
+    /**
+     * Points of one series with times in {@code [from, to]}
+     */
+    public PriceSeriesView read(PriceKey key, Instant from, Instant to) {
+        MappedPriceSeries found = series.get(key);
+        return found == null ? PriceSeriesView.empty() : found.view(from.getEpochSecond(), to.getEpochSecond());
+    }
+    
+    /**
+     * The given series sampled every {@code step} from {@code from} to {@code to}, each point carrying the
+     * last known price at that time
+     */
+    public AlignedPriceSeries readAligned(List<PriceKey> keys, Instant from, Instant to, Duration step) {
+        long fromEpochSecond = from.getEpochSecond();
+        long toEpochSecond = to.getEpochSecond();
+        long stepSeconds = step.getSeconds();
+        if (stepSeconds <= 0 || toEpochSecond < fromEpochSecond) {
+            throw new IllegalArgumentException("Invalid range or step for aligned price series");
+        }
+        if ((toEpochSecond - fromEpochSecond) / stepSeconds >= MAX_ALIGNED_POINTS) {
+            throw new IllegalArgumentException("Aligned price series would exceed " + MAX_ALIGNED_POINTS + " points");
+        }
+        
+        List<PriceSeriesView> views = new ArrayList<>(keys.size());
+        for (PriceKey key : keys) {
+            MappedPriceSeries found = series.get(key);
+            // Start from the beginning so the first grid point can carry an earlier price
+            views.add(found == null ? PriceSeriesView.empty() : found.view(Long.MIN_VALUE, toEpochSecond));
+        }
+        return AlignedPriceSeries.align(keys, views, fromEpochSecond, toEpochSecond, stepSeconds);
+    }
+    
+    /**
+     * Whether the store is enabled and opened; readers fall back to price_snapshots otherwise
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+    
+    public Set<PriceKey> keys() {
+        return Collections.unmodifiableSet(series.keySet());
+    }
+    
+    private boolean append(PendingPriceSnapshot row, Set<MappedPriceSeries> touched) {
+        PriceKey key = new PriceKey(row.assetId(), row.currency().toUpperCase());
+        long epochSecond = row.snapshotDate().atZone(ZoneId.systemDefault()).toEpochSecond();
+        try {
+            MappedPriceSeries target = series.computeIfAbsent(key, this::openSeries);
+            if (!target.append(epochSecond, PriceSeriesView.toScaled(row.price()))) {
+                return false;
+            }
+            touched.add(target);
+            watermarkEpochSecond = Math.max(watermarkEpochSecond, epochSecond);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ArithmeticException e) {
+            log.debug("Price {} of asset {} does not fit the price series store", row.price(), row.assetId());
+            return false;
+        }
+    }
+    
+    private MappedPriceSeries openSeries(PriceKey key) {
+        String name = key.assetId() + "_" + key.currency();
+        try {
+            return MappedPriceSeries.open(directory.resolve(name + TIMES_SUFFIX), directory.resolve(name + PRICES_SUFFIX));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private static PriceKey parseKey(String fileName) {
+        String name = fileName.substring(0, fileName.length() - TIMES_SUFFIX.length());
+        int separator = name.lastIndexOf('_');
+        if (separator < 0) {
+            return null;
+        }
+        try {
+            return new PriceKey(UUID.fromString(name.substring(0, separator)), name.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    private static LocalDateTime toLocalDateTime(long epochSecond) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,87 @@
+package com.investtracker.marketdata.history;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.LongBuffer;
+
+/**
+ * Read-only window onto one price series, backed directly by the memory-mapped columns. Times are epoch
+ * seconds in ascending order; prices are fixed-point longs with {@link #SCALE} decimal places.
+ */
+public final class PriceSeriesView {
+    public static final int SCALE = 8;
+    
+    private static final PriceSeriesView EMPTY = new PriceSeriesView(LongBuffer.allocate(0), LongBuffer.allocate(0));
+    
+    private final LongBuffer epochSeconds;
+    private final LongBuffer scaledPrices;
+    
+    PriceSeriesView(LongBuffer epochSeconds, LongBuffer scaledPrices) {
+        this.epochSeconds = epochSeconds;
+        this.scaledPrices = scaledPrices;
+    }
+    
+    public static PriceSeriesView empty() {
+        return EMPTY;
+    }
+    
+    public int size() {
+        return epochSeconds.limit();
+    }
+    
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+    
+    public long epochSecond(int index) {
+        return epochSeconds.get(index);
+    }
+    
+    public long scaledPrice(int index) {
+        return scaledPrices.get(index);
+    }
+    
+    public BigDecimal price(int index) {
+        return fromScaled(scaledPrices.get(index));
+    }
+    
+    /**
+     * The time column of the window; reads go straight to the mapped file
+     */
+    public LongBuffer epochSeconds() {
+        return epochSeconds.duplicate();
+    }
+    
+    public LongBuffer scaledPrices() {
+        return scaledPrices.duplicate();
+    }
+    
+    /**
+     * Index of the first point later than {@code epochSecond}, or {@link #size()} if there is none
+     */
+    public int indexAfter(long epochSecond) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochSeconds.get(mid) <= epochSecond) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    public PriceSeriesView slice(int from, int to) {
+        return new PriceSeriesView(epochSeconds.slice(from, to - from), scaledPrices.slice(from, to - from));
+    }
+    
+    public static long toScaled(BigDecimal price) {
+        return price.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+    
+    public static BigDecimal fromScaled(long scaledPrice) {
+        return BigDecimal.valueOf(scaledPrice, SCALE);
+    }
+}
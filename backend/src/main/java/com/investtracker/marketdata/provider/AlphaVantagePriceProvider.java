@@ -1,84 +1,154 @@
 package com.investtracker.marketdata.provider;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.investtracker.asset.entity.Asset;
+import com.investtracker.marketdata.config.MarketDataProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.time.Duration;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
 
 @Slf4j
 @Component
 public class AlphaVantagePriceProvider implements PriceProvider {
     private final WebClient webClient;
     private final String apiKey;
+    private final RateLimitedRequestScheduler requestScheduler;
     private static final String BASE_URL = "https://www.alphavantage.co/query";
+    // GLOBAL_QUOTE has no currency parameter and quotes the US listings this provider is used for in USD
+    private static final String QUOTE_CURRENCY = "USD";
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
     
-    public AlphaVantagePriceProvider(@Value("${alphavantage.api.key:demo}") String apiKey) {
+    public AlphaVantagePriceProvider(@Value("${alphavantage.api.key:demo}") String apiKey,
+                                     MarketDataProperties properties,
+                                     ProviderHttpClientFactory httpClientFactory,
+                                     MeterRegistry meterRegistry) {
         this.apiKey = apiKey;
-        this.webClient = WebClient.builder()
-            .baseUrl(BASE_URL)
-            .build();
+        this.webClient = httpClientFactory.create(getName(), BASE_URL);
+        // One quota shared by every caller in the process
+        this.requestScheduler = new RateLimitedRequestScheduler(getName(), properties.rateLimitFor(getName()), meterRegistry);
+    }
+    
+    @PreDestroy
+    public void close() {
+        requestScheduler.close();
     }
     
     @Override
     public Optional<BigDecimal> getPrice(Asset asset, String currency) {
+        return logAndSkipErrors(getPriceAsync(asset, currency), asset).blockOptional();
+    }
+    
+    @Override
+    public Mono<BigDecimal> getPriceAsync(Asset asset, String currency) {
         if (!supports(asset.getAssetType())) {
-            return Optional.empty();
+            return Mono.empty();
+        }
+        if (!QUOTE_CURRENCY.equalsIgnoreCase(currency)) {
+            // A USD price would be cached under the requested currency; leave the asset to other providers
+            log.debug("Alpha Vantage only quotes in {}, skipping {} in {}", QUOTE_CURRENCY, asset.getSymbol(), currency);
+            return Mono.empty();
         }
         
-        try {
-            Map<String, Object> response = webClient.get()
+        return requestScheduler.submit(() -> DataBufferUtils.join(webClient.get()
                 .uri(uriBuilder -> uriBuilder
                     .queryParam("function", "GLOBAL_QUOTE")
                     .queryParam("symbol", asset.getSymbol())
                     .queryParam("apikey", apiKey)
                     .build())
                 .retrieve()
-                .bodyToMono(Map.class)
-                .retryWhen(Retry.backoff(3, Duration.ofSeconds(1)))
-                .timeout(Duration.ofSeconds(10))
-                .block();
-            
-            if (response != null && response.containsKey("Global Quote")) {
-                @SuppressWarnings("unchecked")
-                Map<String, String> quote = (Map<String, String>) response.get("Global Quote");
-                String priceStr = quote.get("05. price");
-                if (priceStr != null && !priceStr.isEmpty()) {
-                    return Optional.of(new BigDecimal(priceStr));
+                .bodyToFlux(DataBuffer.class))
+                // Time the HTTP exchange only; queueing for a permit is bounded by the scheduler's max wait
+                .timeout(Duration.ofSeconds(10)))
+            .flatMap(buffer -> {
+                try (InputStream body = buffer.asInputStream(true)) {
+                    return Mono.justOrEmpty(parseGlobalQuotePrice(body));
+                } catch (IOException e) {
+                    throw Exceptions.propagate(e);
                 }
-            }
-            
-            log.warn("No price data found for {} from Alpha Vantage", asset.getSymbol());
-            return Optional.empty();
-        } catch (Exception e) {
-            log.error("Error fetching price from Alpha Vantage for {}: {}", asset.getSymbol(), e.getMessage());
-            return Optional.empty();
-        }
+            })
+            .retryWhen(Retry.backoff(2, Duration.ofMillis(500))
+                .filter(e -> !(e instanceof ProviderThrottledException)))
+            .switchIfEmpty(Mono.fromRunnable(() ->
+                log.warn("No price data found for {} from Alpha Vantage", asset.getSymbol())));
     }
     
     @Override
     public Map<Asset, BigDecimal> getPrices(Iterable<Asset> assets, String currency) {
-        Map<Asset, BigDecimal> prices = new HashMap<>();
-        // Alpha Vantage has rate limits, so we fetch one at a time
-        // In production, consider batching or using premium API
-        for (Asset asset : assets) {
-            getPrice(asset, currency).ifPresent(price -> prices.put(asset, price));
-            // Add delay to respect rate limits (5 calls per minute for free tier)
-            try {
-                Thread.sleep(12000); // 12 seconds between calls
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+        List<Asset> assetList = new ArrayList<>();
+        assets.forEach(assetList::add);
+        return getPricesAsync(assetList, currency).blockOptional().orElseGet(HashMap::new);
+    }
+    
+    @Override
+    public Mono<Map<Asset, BigDecimal>> getPricesAsync(Collection<Asset> assets, String currency) {
+        // GLOBAL_QUOTE is one symbol per call; the request scheduler paces them against the free-tier quota
+        return Flux.fromIterable(assets)
+            .flatMap(asset -> logAndSkipErrors(getPriceAsync(asset, currency), asset).map(price -> Map.entry(asset, price)))
+            .collectMap(Map.Entry::getKey, Map.Entry::getValue, HashMap::new);
+    }
+    
+    private static Mono<BigDecimal> logAndSkipErrors(Mono<BigDecimal> price, Asset asset) {
+        return price.onErrorResume(e -> {
+            log.error("Error fetching price from Alpha Vantage for {}: {}", asset.getSymbol(), e.getMessage());
+            return Mono.empty();
+        });
+    }
+    
+    /**
+     * Extracts {@code "05. price"} from a GLOBAL_QUOTE body without materialising the rest of the quote.
+     * Rate-limit notices come back as {@code {"Note": ...}} with no quote and yield an empty result.
+     */
+    static Optional<BigDecimal> parseGlobalQuotePrice(InputStream body) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return Optional.empty();
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                if (parser.nextToken() != JsonToken.START_OBJECT || !"Global Quote".equals(field)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String quoteField = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if ("05. price".equals(quoteField) && value == JsonToken.VALUE_STRING) {
+                        String price = parser.getText();
+                        return price.isEmpty() ? Optional.empty() : Optional.of(new BigDecimal(price));
+                    }
+                    parser.skipChildren();
+                }
             }
         }
-        return prices;
+        return Optional.empty();
+    }
+    
+    @Override
+    public boolean isNonBlocking() {
+        return true;
+    }
+    
+    @Override
+    public int getMaxBatchSize() {
+        // GLOBAL_QUOTE only accepts one symbol per request
+        return 1;
     }
     
     @Override
@@ -91,4 +161,3 @@ public class AlphaVantagePriceProvider implements PriceProvider {
         return "AlphaVantage";
     }
 }
-
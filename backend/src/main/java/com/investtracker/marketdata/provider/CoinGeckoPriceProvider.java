@@ -1,22 +1,30 @@
 package com.investtracker.marketdata.provider;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.investtracker.asset.entity.Asset;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.time.Duration;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
 
 @Slf4j
 @Component
 public class CoinGeckoPriceProvider implements PriceProvider {
     private final WebClient webClient;
     private static final String BASE_URL = "https://api.coingecko.com/api/v3";
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
     
     // Symbol to CoinGecko ID mapping
     private static final Map<String, String> SYMBOL_TO_ID = new HashMap<>();
@@ -34,120 +42,131 @@ public class CoinGeckoPriceProvider implements PriceProvider {
         SYMBOL_TO_ID.put("AVAX", "avalanche-2");
     }
     
-    public CoinGeckoPriceProvider() {
-        this.webClient = WebClient.builder()
-            .baseUrl(BASE_URL)
-            .build();
+    public CoinGeckoPriceProvider(ProviderHttpClientFactory httpClientFactory) {
+        this.webClient = httpClientFactory.create(getName(), BASE_URL);
     }
     
     @Override
     public Optional<BigDecimal> getPrice(Asset asset, String currency) {
+        return Optional.ofNullable(getPrices(List.of(asset), currency).get(asset));
+    }
+    
+    @Override
+    public Map<Asset, BigDecimal> getPrices(Iterable<Asset> assets, String currency) {
+        List<Asset> assetList = new ArrayList<>();
+        assets.forEach(assetList::add);
+        return getPricesAsync(assetList, currency)
+            .onErrorResume(e -> {
+                log.error("Error fetching prices from CoinGecko for {} assets: {}", assetList.size(), e.getMessage());
+                return Mono.empty();
+            })
+            .blockOptional()
+            .orElseGet(HashMap::new);
+    }
+    
+    @Override
+    public Mono<BigDecimal> getPriceAsync(Asset asset, String currency) {
         if (!supports(asset.getAssetType())) {
-            return Optional.empty();
+            return Mono.empty();
         }
         
-        String coinId = SYMBOL_TO_ID.getOrDefault(asset.getSymbol().toUpperCase(), 
-            asset.getSymbol().toLowerCase());
-        String currencyLower = currency.toLowerCase();
-        
-        try {
-            Map<String, Object> response = webClient.get()
-                .uri(uriBuilder -> uriBuilder
-                    .path("/simple/price")
-                    .queryParam("ids", coinId)
-                    .queryParam("vs_currencies", currencyLower)
-                    .build())
-                .retrieve()
-                .bodyToMono(Map.class)
-                .retryWhen(Retry.backoff(3, Duration.ofSeconds(1)))
-                .timeout(Duration.ofSeconds(10))
-                .block();
-            
-            if (response != null && response.containsKey(coinId)) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> coinData = (Map<String, Object>) response.get(coinId);
-                Object priceObj = coinData.get(currencyLower);
-                if (priceObj != null) {
-                    BigDecimal price;
-                    if (priceObj instanceof Number) {
-                        price = BigDecimal.valueOf(((Number) priceObj).doubleValue());
-                    } else {
-                        price = new BigDecimal(priceObj.toString());
-                    }
-                    return Optional.of(price);
-                }
-            }
-            
-            log.warn("No price data found for {} from CoinGecko", asset.getSymbol());
-            return Optional.empty();
-        } catch (Exception e) {
-            log.error("Error fetching price from CoinGecko for {}: {}", asset.getSymbol(), e.getMessage());
-            return Optional.empty();
-        }
+        return getPricesAsync(List.of(asset), currency)
+            .flatMap(prices -> Mono.justOrEmpty(prices.get(asset)));
     }
     
     @Override
-    public Map<Asset, BigDecimal> getPrices(Iterable<Asset> assets, String currency) {
-        Map<Asset, BigDecimal> prices = new HashMap<>();
+    public Mono<Map<Asset, BigDecimal>> getPricesAsync(Collection<Asset> assets, String currency) {
         // CoinGecko supports batch requests
-        StringBuilder ids = new StringBuilder();
-        Map<String, Asset> idToAsset = new HashMap<>();
-        
+        Map<String, List<Asset>> assetsByCoinId = new LinkedHashMap<>();
         for (Asset asset : assets) {
-            String coinId = SYMBOL_TO_ID.getOrDefault(asset.getSymbol().toUpperCase(), 
-                asset.getSymbol().toLowerCase());
-            if (ids.length() > 0) {
-                ids.append(",");
+            if (supports(asset.getAssetType())) {
+                assetsByCoinId.computeIfAbsent(coinId(asset), id -> new ArrayList<>()).add(asset);
             }
-            ids.append(coinId);
-            idToAsset.put(coinId, asset);
         }
         
-        if (ids.length() == 0) {
-            return prices;
+        if (assetsByCoinId.isEmpty()) {
+            return Mono.just(new HashMap<>());
         }
         
-        try {
-            String currencyLower = currency.toLowerCase();
-            Map<String, Object> response = webClient.get()
+        String ids = String.join(",", assetsByCoinId.keySet());
+        String currencyLower = currency.toLowerCase();
+        
+        return DataBufferUtils.join(webClient.get()
                 .uri(uriBuilder -> uriBuilder
                     .path("/simple/price")
-                    .queryParam("ids", ids.toString())
+                    .queryParam("ids", ids)
                     .queryParam("vs_currencies", currencyLower)
                     .build())
                 .retrieve()
-                .bodyToMono(Map.class)
-                .retryWhen(Retry.backoff(3, Duration.ofSeconds(1)))
-                .timeout(Duration.ofSeconds(10))
-                .block();
-            
-            if (response != null) {
-                for (Map.Entry<String, Asset> entry : idToAsset.entrySet()) {
-                    String coinId = entry.getKey();
-                    Asset asset = entry.getValue();
-                    if (response.containsKey(coinId)) {
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> coinData = (Map<String, Object>) response.get(coinId);
-                        Object priceObj = coinData.get(currencyLower);
-                        if (priceObj != null) {
-                            BigDecimal price;
-                            if (priceObj instanceof Number) {
-                                price = BigDecimal.valueOf(((Number) priceObj).doubleValue());
-                            } else {
-                                price = new BigDecimal(priceObj.toString());
-                            }
-                            prices.put(asset, price);
-                        }
+                .bodyToFlux(DataBuffer.class))
+            .map(buffer -> {
+                try (InputStream body = buffer.asInputStream(true)) {
+                    return parseSimplePrice(body, currencyLower);
+                } catch (IOException e) {
+                    throw Exceptions.propagate(e);
+                }
+            })
+            .retryWhen(Retry.backoff(2, Duration.ofMillis(500)))
+            .timeout(Duration.ofSeconds(10))
+            .map(pricesByCoinId -> {
+                Map<Asset, BigDecimal> prices = new HashMap<>();
+                assetsByCoinId.forEach((coinId, coinAssets) -> {
+                    BigDecimal price = pricesByCoinId.get(coinId);
+                    if (price != null) {
+                        coinAssets.forEach(asset -> prices.put(asset, price));
+                    } else {
+                        log.warn("No price data found for {} from CoinGecko", coinId);
+                    }
+                });
+                return prices;
+            });
+    }
+    
+    /**
+     * Reads a {@code /simple/price} body such as {@code {"bitcoin":{"usd":43500.12}}} token by token,
+     * taking each quote straight from the JSON text into a BigDecimal.
+     */
+    static Map<String, BigDecimal> parseSimplePrice(InputStream body, String currency) throws IOException {
+        Map<String, BigDecimal> prices = new HashMap<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return prices;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String coinId = parser.currentName();
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if (field.equals(currency) && value.isNumeric()) {
+                        prices.put(coinId, parser.getDecimalValue());
+                    } else {
+                        parser.skipChildren();
                     }
                 }
             }
-        } catch (Exception e) {
-            log.error("Error fetching batch prices from CoinGecko: {}", e.getMessage());
         }
-        
         return prices;
     }
     
+    private static String coinId(Asset asset) {
+        return SYMBOL_TO_ID.getOrDefault(asset.getSymbol().toUpperCase(), asset.getSymbol().toLowerCase());
+    }
+    
+    @Override
+    public boolean isNonBlocking() {
+        return true;
+    }
+    
+    @Override
+    public int getMaxBatchSize() {
+        // Keeps the ids query parameter well under URL length limits
+        return 100;
+    }
+    
     @Override
     public boolean supports(Asset.AssetType assetType) {
         return assetType == Asset.AssetType.CRYPTO;
@@ -158,4 +177,3 @@ public class CoinGeckoPriceProvider implements PriceProvider {
         return "CoinGecko";
     }
 }
-
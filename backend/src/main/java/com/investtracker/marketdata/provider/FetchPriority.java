@@ -0,0 +1,23 @@
+package com.investtracker.marketdata.provider;
+
+import reactor.util.context.ContextView;
+
+/**
+ * Who is waiting on a provider request. Carried in the Reactor context so that rate-limited providers
+ * can serve users ahead of cache warming without every SPI method taking an extra parameter.
+ */
+public enum FetchPriority {
+    /**
+     * A user request is blocked on the result
+     */
+    INTERACTIVE,
+    
+    /**
+     * Background refresh or prefetch; may wait behind interactive requests
+     */
+    BACKGROUND;
+    
+    public static FetchPriority from(ContextView context) {
+        return context.getOrDefault(FetchPriority.class, INTERACTIVE);
+    }
+}
@@ -0,0 +1,89 @@
+package com.investtracker.marketdata.provider;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Log-bucketed histogram of recent call latencies, from 100µs up to about two minutes with 20% wide
+ * buckets. Every {@code decayEvery} recordings all counts are halved, so percentiles follow the
+ * provider's recent behaviour rather than its whole history. Thread-safe.
+ */
+public class LatencyHistogram {
+    private static final long FIRST_BOUND_NANOS = 100_000;
+    private static final double GROWTH = 1.2;
+    private static final long[] UPPER_BOUNDS_NANOS = buildBounds();
+    
+    private final long[] counts = new long[UPPER_BOUNDS_NANOS.length + 1];
+    private final int decayEvery;
+    private long total;
+    private long sinceDecay;
+    
+    public LatencyHistogram(int decayEvery) {
+        this.decayEvery = decayEvery;
+    }
+    
+    public synchronized void record(long elapsedNanos) {
+        counts[bucketOf(elapsedNanos)]++;
+        total++;
+        if (++sinceDecay >= decayEvery) {
+            decay();
+        }
+    }
+    
+    public synchronized long count() {
+        return total;
+    }
+    
+    /**
+     * Upper bound of the bucket holding the {@code quantile} (0.0 - 1.0); empty if nothing is recorded
+     */
+    public synchronized Optional<Duration> percentile(double quantile) {
+        if (total == 0) {
+            return Optional.empty();
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                long bound = i < UPPER_BOUNDS_NANOS.length ? UPPER_BOUNDS_NANOS[i] : UPPER_BOUNDS_NANOS[i - 1];
+                return Optional.of(Duration.ofNanos(bound));
+            }
+        }
+        return Optional.of(Duration.ofNanos(UPPER_BOUNDS_NANOS[UPPER_BOUNDS_NANOS.length - 1]));
+    }
+    
+    private void decay() {
+        total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] /= 2;
+            total += counts[i];
+        }
+        sinceDecay = 0;
+    }
+    
+    private static int bucketOf(long elapsedNanos) {
+        int low = 0;
+        int high = UPPER_BOUNDS_NANOS.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (UPPER_BOUNDS_NANOS[mid] < elapsedNanos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    private static long[] buildBounds() {
+        int buckets = (int) Math.ceil(Math.log(120e9 / FIRST_BOUND_NANOS) / Math.log(GROWTH)) + 1;
+        long[] bounds = new long[buckets];
+        double bound = FIRST_BOUND_NANOS;
+        for (int i = 0; i < buckets; i++) {
+            bounds[i] = (long) bound;
+            bound *= GROWTH;
+        }
+        return bounds;
+    }
+}
@@ -1,8 +1,10 @@
 package com.investtracker.marketdata.provider;
 
 import com.investtracker.asset.entity.Asset;
+import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
 
@@ -17,6 +19,38 @@ public interface PriceProvider {
      */
     Map<Asset, BigDecimal> getPrices(Iterable<Asset> assets, String currency);
     
+    /**
+     * Non-blocking variant of {@link #getPrice}; completes empty when no price is available and signals an
+     * error when the provider could not be reached, so callers can track provider health. The default wraps
+     * the blocking call, so callers must subscribe it on a scheduler that may block unless
+     * {@link #isNonBlocking()} is true.
+     */
+    default Mono<BigDecimal> getPriceAsync(Asset asset, String currency) {
+        return Mono.fromCallable(() -> getPrice(asset, currency)).flatMap(Mono::justOrEmpty);
+    }
+    
+    /**
+     * Non-blocking variant of {@link #getPrices}; see {@link #getPriceAsync} for the blocking caveat
+     */
+    default Mono<Map<Asset, BigDecimal>> getPricesAsync(Collection<Asset> assets, String currency) {
+        return Mono.fromCallable(() -> getPrices(assets, currency));
+    }
+    
+    /**
+     * Whether {@link #getPriceAsync} and {@link #getPricesAsync} are implemented without blocking
+     */
+    default boolean isNonBlocking() {
+        return false;
+    }
+    
+    /**
+     * Maximum number of assets to pass to a single {@link #getPrices} call.
+     * Providers without a real batch endpoint should return 1 so callers use {@link #getPrice} instead.
+     */
+    default int getMaxBatchSize() {
+        return Integer.MAX_VALUE;
+    }
+    
     /**
      * Check if this provider supports the given asset type
      */
@@ -0,0 +1,150 @@
+package com.investtracker.marketdata.provider;
+
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.common.concurrent.CircuitBreaker;
+import com.investtracker.marketdata.config.MarketDataProperties;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Circuit breaker plus exponentially weighted latency and error-rate averages for one provider.
+ * Also remembers the most recent asset requested from the provider, which background probes reuse.
+ */
+@Slf4j
+public class ProviderHealth {
+    private final String providerName;
+    private final CircuitBreaker circuitBreaker;
+    private final MarketDataProperties.CircuitBreakerSettings settings;
+    private final double alpha;
+    private final LatencyHistogram latencyHistogram = new LatencyHistogram(1000);
+    
+    private double averageLatencyMillis = Double.NaN;
+    private double errorRate;
+    private long callsSinceClosed;
+    private long calls;
+    private long failures;
+    private String lastError;
+    private Instant lastFailureAt;
+    private Asset probeAsset;
+    private String probeCurrency;
+    
+    public ProviderHealth(String providerName, MarketDataProperties.Providers config) {
+        this.providerName = providerName;
+        this.settings = config.getCircuitBreaker();
+        this.alpha = config.getEwmaAlpha();
+        this.circuitBreaker = new CircuitBreaker(settings.getFailureThreshold(),
+            settings.getOpenDuration(), settings.getMaxOpenDuration());
+    }
+    
+    public boolean allowsRequests() {
+        return circuitBreaker.allowsRequests();
+    }
+    
+    public CircuitBreaker.State getState() {
+        return circuitBreaker.getState();
+    }
+    
+    public synchronized boolean isSlow(Duration threshold) {
+        return !Double.isNaN(averageLatencyMillis) && averageLatencyMillis > threshold.toMillis();
+    }
+    
+    public synchronized double getAverageLatencyMillis() {
+        return Double.isNaN(averageLatencyMillis) ? 0 : averageLatencyMillis;
+    }
+    
+    public synchronized double getErrorRate() {
+        return errorRate;
+    }
+    
+    /**
+     * Latency of recent successful calls at the given quantile, once at least {@code minimumCalls} are recorded
+     */
+    public Optional<Duration> latencyPercentile(double quantile, long minimumCalls) {
+        return latencyHistogram.count() < minimumCalls ? Optional.empty() : latencyHistogram.percentile(quantile);
+    }
+    
+    public synchronized void rememberProbeTarget(Asset asset, String currency) {
+        this.probeAsset = asset;
+        this.probeCurrency = currency;
+    }
+    
+    public synchronized Asset getProbeAsset() {
+        return probeAsset;
+    }
+    
+    public synchronized String getProbeCurrency() {
+        return probeCurrency;
+    }
+    
+    public boolean tryStartProbe() {
+        return circuitBreaker.tryStartProbe();
+    }
+    
+    public void abandonProbe() {
+        circuitBreaker.abandonProbe();
+    }
+    
+    public synchronized void recordSuccess(long elapsedNanos) {
+        CircuitBreaker.State before = circuitBreaker.getState();
+        record(elapsedNanos, 0);
+        latencyHistogram.record(elapsedNanos);
+        circuitBreaker.onSuccess();
+        if (before != CircuitBreaker.State.CLOSED) {
+            callsSinceClosed = 0;
+            log.info("Price provider {} recovered; circuit closed", providerName);
+        }
+    }
+    
+    /**
+     * A call cancelled before it answered, e.g. the loser of a hedged request. Its elapsed time is a lower
+     * bound on its latency, so it is kept in the latency distribution but says nothing about errors.
+     */
+    public void recordAbandoned(long elapsedNanos) {
+        latencyHistogram.record(elapsedNanos);
+    }
+    
+    public synchronized void recordFailure(long elapsedNanos, Throwable error) {
+        CircuitBreaker.State before = circuitBreaker.getState();
+        record(elapsedNanos, 1);
+        failures++;
+        lastError = error.getClass().getSimpleName() + ": " + error.getMessage();
+        lastFailureAt = Instant.now();
+        
+        circuitBreaker.onFailure();
+        if (callsSinceClosed >= settings.getMinimumCalls() && errorRate >= settings.getErrorRateThreshold()) {
+            circuitBreaker.trip();
+        }
+        if (before != CircuitBreaker.State.OPEN && circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+            log.warn("Price provider {} circuit opened for {} after {}", providerName,
+                circuitBreaker.remainingOpenTime(), lastError);
+        }
+    }
+    
+    public synchronized Status status() {
+        return new Status(circuitBreaker.getState(), getAverageLatencyMillis(), errorRate, calls, failures,
+            lastError, lastFailureAt, circuitBreaker.remainingOpenTime().toMillis());
+    }
+    
+    private void record(long elapsedNanos, double failed) {
+        double latencyMillis = elapsedNanos / 1_000_000.0;
+        averageLatencyMillis = Double.isNaN(averageLatencyMillis)
+            ? latencyMillis
+            : alpha * latencyMillis + (1 - alpha) * averageLatencyMillis;
+        errorRate = alpha * failed + (1 - alpha) * errorRate;
+        calls++;
+        callsSinceClosed++;
+    }
+    
+    public record Status(CircuitBreaker.State state,
+                         double averageLatencyMillis,
+                         double errorRate,
+                         long calls,
+                         long failures,
+                         String lastError,
+                         Instant lastFailureAt,
+                         long probeInMillis) {
+    }
+}
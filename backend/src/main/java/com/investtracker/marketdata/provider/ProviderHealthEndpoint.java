@@ -0,0 +1,23 @@
+package com.investtracker.marketdata.provider;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code /actuator/marketdataproviders}: circuit state, average latency and error rate per price provider
+ */
+@Component
+@Endpoint(id = "marketdataproviders")
+@RequiredArgsConstructor
+public class ProviderHealthEndpoint {
+    private final ProviderHealthRegistry providerHealthRegistry;
+    
+    @ReadOperation
+    public Map<String, ProviderHealth.Status> providers() {
+        return providerHealthRegistry.status();
+    }
+}
@@ -0,0 +1,180 @@
+package com.investtracker.marketdata.provider;
+
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.marketdata.config.MarketDataProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the health of every {@link PriceProvider} and decides the order in which they are tried.
+ * <p>
+ * Each asset type has a fallback chain taken from {@code marketdata.providers.chain}. Providers whose
+ * circuit is open are left out of the chain, so callers skip them without waiting on a timeout, and
+ * providers whose average latency is above {@code slow-call-threshold} move behind healthy ones. Open
+ * circuits are probed from a background task rather than by user requests.
+ */
+@Slf4j
+@Component
+public class ProviderHealthRegistry {
+    private final List<PriceProvider> priceProviders;
+    private final MarketDataProperties properties;
+    private final Map<PriceProvider, ProviderHealth> health = new LinkedHashMap<>();
+    private final Map<PriceProvider, Timer> successLatency = new HashMap<>();
+    private final Map<PriceProvider, Timer> failureLatency = new HashMap<>();
+    
+    public ProviderHealthRegistry(List<PriceProvider> priceProviders,
+                                  MarketDataProperties properties,
+                                  MeterRegistry meterRegistry) {
+        this.priceProviders = priceProviders;
+        this.properties = properties;
+        for (PriceProvider provider : priceProviders) {
+            ProviderHealth providerHealth = new ProviderHealth(provider.getName(), properties.getProviders());
+            health.put(provider, providerHealth);
+            
+            Gauge.builder("marketdata.provider.circuit.state", providerHealth, h -> h.getState().ordinal())
+                .description("0 = closed, 1 = open, 2 = half-open")
+                .tag("provider", provider.getName())
+                .register(meterRegistry);
+            Gauge.builder("marketdata.provider.latency.average", providerHealth, ProviderHealth::getAverageLatencyMillis)
+                .baseUnit("milliseconds")
+                .tag("provider", provider.getName())
+                .register(meterRegistry);
+            Gauge.builder("marketdata.provider.error.rate", providerHealth, ProviderHealth::getErrorRate)
+                .tag("provider", provider.getName())
+                .register(meterRegistry);
+            successLatency.put(provider, latencyTimer(meterRegistry, provider, "success"));
+            failureLatency.put(provider, latencyTimer(meterRegistry, provider, "failure"));
+        }
+    }
+    
+    /**
+     * Providers to try for the given asset type right now, most preferred first
+     */
+    public List<PriceProvider> chainFor(Asset.AssetType assetType) {
+        List<PriceProvider> ordered = new ArrayList<>();
+        for (String name : properties.getProviders().getChain().getOrDefault(assetType, List.of())) {
+            priceProviders.stream()
+                .filter(provider -> provider.getName().equals(name))
+                .findFirst()
+                .ifPresentOrElse(ordered::add,
+                    () -> log.warn("Unknown price provider {} in the {} chain", name, assetType));
+        }
+        for (PriceProvider provider : priceProviders) {
+            if (!ordered.contains(provider)) {
+                ordered.add(provider);
+            }
+        }
+        
+        List<PriceProvider> healthy = new ArrayList<>();
+        List<PriceProvider> slow = new ArrayList<>();
+        for (PriceProvider provider : ordered) {
+            ProviderHealth providerHealth = health.get(provider);
+            if (!provider.supports(assetType) || !providerHealth.allowsRequests()) {
+                continue;
+            }
+            if (providerHealth.isSlow(properties.getProviders().getSlowCallThreshold())) {
+                slow.add(provider);
+            } else {
+                healthy.add(provider);
+            }
+        }
+        healthy.addAll(slow);
+        return healthy;
+    }
+    
+    /**
+     * Records the latency and outcome of a request to the provider. Requests refused by a local rate
+     * limiter say nothing about the provider and are not counted; cancelled requests only count towards
+     * the latency distribution.
+     */
+    public <T> Mono<T> track(PriceProvider provider, List<Asset> assets, String currency, Mono<T> request) {
+        ProviderHealth providerHealth = health.get(provider);
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            providerHealth.rememberProbeTarget(assets.get(0), currency);
+            return request
+                .doOnSuccess(result -> {
+                    long elapsed = System.nanoTime() - start;
+                    providerHealth.recordSuccess(elapsed);
+                    successLatency.get(provider).record(elapsed, TimeUnit.NANOSECONDS);
+                })
+                .doOnError(e -> {
+                    if (!(e instanceof ProviderThrottledException)) {
+                        long elapsed = System.nanoTime() - start;
+                        providerHealth.recordFailure(elapsed, e);
+                        failureLatency.get(provider).record(elapsed, TimeUnit.NANOSECONDS);
+                    }
+                })
+                .doOnCancel(() -> providerHealth.recordAbandoned(System.nanoTime() - start));
+        });
+    }
+    
+    /**
+     * How long to wait on the provider before hedging a request to the next one: its recent latency at
+     * {@code hedging.percentile}, but no less than {@code minimum-delay}. Empty while the provider has too
+     * few recorded calls to judge.
+     */
+    public Optional<Duration> hedgeDelay(PriceProvider provider) {
+        MarketDataProperties.Hedging hedging = properties.getFetch().getHedging();
+        return health.get(provider).latencyPercentile(hedging.getPercentile(), hedging.getMinimumCalls())
+            .map(delay -> delay.compareTo(hedging.getMinimumDelay()) < 0 ? hedging.getMinimumDelay() : delay);
+    }
+    
+    /**
+     * Sends one request to each provider whose open period has elapsed, re-using the last asset it was
+     * asked for. The outcome closes the circuit or keeps it open for longer.
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void probeOpenCircuits() {
+        health.forEach((provider, providerHealth) -> {
+            if (!providerHealth.tryStartProbe()) {
+                return;
+            }
+            Asset asset = providerHealth.getProbeAsset();
+            String currency = providerHealth.getProbeCurrency();
+            if (asset == null) {
+                providerHealth.abandonProbe();
+                return;
+            }
+            log.debug("Probing price provider {} with {}", provider.getName(), asset.getSymbol());
+            
+            Mono<?> probe = provider.getPriceAsync(asset, currency);
+            if (!provider.isNonBlocking()) {
+                probe = probe.subscribeOn(Schedulers.boundedElastic());
+            }
+            track(provider, List.of(asset), currency, probe)
+                .contextWrite(context -> context.put(FetchPriority.class, FetchPriority.BACKGROUND))
+                .subscribe(result -> { }, e -> {
+                    if (e instanceof ProviderThrottledException) {
+                        providerHealth.abandonProbe();
+                    } else {
+                        log.debug("Probe of {} failed: {}", provider.getName(), e.getMessage());
+                    }
+                });
+        });
+    }
+    
+    private static Timer latencyTimer(MeterRegistry meterRegistry, PriceProvider provider, String outcome) {
+        return Timer.builder("marketdata.provider.latency")
+            .tag("provider", provider.getName())
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+    
+    public Map<String, ProviderHealth.Status> status() {
+        Map<String, ProviderHealth.Status> status = new LinkedHashMap<>();
+        health.forEach((provider, providerHealth) -> status.put(provider.getName(), providerHealth.status()));
+        return status;
+    }
+}
@@ -0,0 +1,102 @@
+package com.investtracker.marketdata.provider;
+
+import com.investtracker.marketdata.config.MarketDataProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the {@link WebClient} of each external market data API from {@code marketdata.http-clients.<name>}.
+ * <p>
+ * Every client gets its own bounded, keep-alive connection pool, so one slow provider cannot hold the
+ * connections of another, plus HTTP/2 for https endpoints, gzip and connect and response timeouts.
+ * Requests are timed as {@code marketdata.provider.http.requests} by provider, endpoint path and status;
+ * pool usage is published by Reactor Netty as {@code reactor.netty.connection.provider.*}, tagged with
+ * the provider name.
+ */
+@Slf4j
+@Component
+public class ProviderHttpClientFactory {
+    private final MarketDataProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final List<ConnectionProvider> connectionProviders = new CopyOnWriteArrayList<>();
+    
+    public ProviderHttpClientFactory(MarketDataProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+    
+    public WebClient create(String providerName, String baseUrl) {
+        MarketDataProperties.HttpClientSettings settings = properties.httpClientFor(providerName);
+        ConnectionProvider connectionProvider = ConnectionProvider.builder(providerName)
+            .maxConnections(settings.getMaxConnections())
+            .pendingAcquireMaxCount(settings.getPendingAcquireMaxCount())
+            .pendingAcquireTimeout(settings.getPendingAcquireTimeout())
+            .maxIdleTime(settings.getMaxIdleTime())
+            .maxLifeTime(settings.getMaxLifeTime())
+            .evictInBackground(settings.getMaxIdleTime())
+            .metrics(true)
+            .build();
+        connectionProviders.add(connectionProvider);
+        
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, Math.toIntExact(settings.getConnectTimeout().toMillis()))
+            .responseTimeout(settings.getResponseTimeout())
+            .keepAlive(true)
+            .compress(settings.isCompression());
+        if (settings.isHttp2() && baseUrl.startsWith("https:")) {
+            // Negotiated through ALPN; servers without HTTP/2 are spoken to over HTTP/1.1
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11).secure();
+        }
+        log.debug("HTTP client for {}: {} connections, HTTP/2 {}, gzip {}", providerName,
+            settings.getMaxConnections(), settings.isHttp2(), settings.isCompression());
+        
+        return WebClient.builder()
+            .baseUrl(baseUrl)
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            .filter(timed(providerName))
+            .build();
+    }
+    
+    /**
+     * Times each exchange up to the response headers; body decoding is part of the caller's own timeout
+     */
+    private ExchangeFilterFunction timed(String providerName) {
+        return (request, next) -> Mono.defer(() -> {
+            long start = System.nanoTime();
+            String endpoint = request.url().getPath();
+            return next.exchange(request)
+                .doOnSuccess(response -> record(providerName, endpoint, String.valueOf(response.statusCode().value()), start))
+                .doOnError(e -> record(providerName, endpoint, "IO_ERROR", start));
+        });
+    }
+    
+    private void record(String providerName, String endpoint, String status, long start) {
+        Timer.builder("marketdata.provider.http.requests")
+            .tag("provider", providerName)
+            .tag("endpoint", endpoint.isEmpty() ? "/" : endpoint)
+            .tag("status", status)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+    
+    @PreDestroy
+    public void close() {
+        connectionProviders.forEach(ConnectionProvider::dispose);
+    }
+}
@@ -0,0 +1,11 @@
+package com.investtracker.marketdata.provider;
+
+import com.investtracker.asset.entity.Asset;
+
+import java.math.BigDecimal;
+
+/**
+ * A price returned by a {@link PriceProvider}, tagged with the provider that produced it.
+ */
+public record ProviderQuote(Asset asset, BigDecimal price, String source) {
+}
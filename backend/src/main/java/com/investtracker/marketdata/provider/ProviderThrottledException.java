@@ -0,0 +1,11 @@
+package com.investtracker.marketdata.provider;
+
+/**
+ * A provider request never got a rate-limit permit, either because it waited past its deadline or because
+ * the limiter shut down, and was never sent.
+ */
+public class ProviderThrottledException extends RuntimeException {
+    public ProviderThrottledException(String message) {
+        super(message);
+    }
+}
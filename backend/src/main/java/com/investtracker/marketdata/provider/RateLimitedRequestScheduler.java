@@ -0,0 +1,172 @@
+package com.investtracker.marketdata.provider;
+
+import com.investtracker.common.concurrent.TokenBucket;
+import com.investtracker.marketdata.config.MarketDataProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Paces every request to one provider through a shared token bucket.
+ * <p>
+ * Requests wait in a queue ordered by {@link FetchPriority} and then arrival, so interactive lookups
+ * overtake background refreshes. Each waiting request has a deadline taken from its priority; requests
+ * that are still queued at their deadline fail with {@link ProviderThrottledException} without ever
+ * being sent, and cancelled requests leave the queue immediately. Nothing blocks while waiting: permits
+ * are handed out from a single timer thread, which {@link #close()} stops.
+ */
+public class RateLimitedRequestScheduler {
+    private final String providerName;
+    private final TokenBucket bucket;
+    private final MarketDataProperties.RateLimit config;
+    private final PriorityQueue<Pending> queue = new PriorityQueue<>(
+        Comparator.comparing(Pending::priority).thenComparingLong(Pending::sequence));
+    private final AtomicLong sequence = new AtomicLong();
+    private final ScheduledExecutorService timer;
+    private ScheduledFuture<?> scheduledDrain;
+    private boolean closed;
+    
+    private final Map<FetchPriority, Counter> dispatched = new EnumMap<>(FetchPriority.class);
+    private final Map<FetchPriority, Counter> expired = new EnumMap<>(FetchPriority.class);
+    
+    public RateLimitedRequestScheduler(String providerName, MarketDataProperties.RateLimit config, MeterRegistry meterRegistry) {
+        this.providerName = providerName;
+        this.config = config;
+        this.bucket = new TokenBucket(config.getBurst(), config.getPermits(), config.getPeriod());
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-" + providerName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        for (FetchPriority priority : FetchPriority.values()) {
+            dispatched.put(priority, Counter.builder("marketdata.provider.rate.limit.requests")
+                .tag("provider", providerName)
+                .tag("priority", priority.name())
+                .tag("result", "dispatched")
+                .register(meterRegistry));
+            expired.put(priority, Counter.builder("marketdata.provider.rate.limit.requests")
+                .tag("provider", providerName)
+                .tag("priority", priority.name())
+                .tag("result", "expired")
+                .register(meterRegistry));
+        }
+        Gauge.builder("marketdata.provider.rate.limit.queue.size", this, RateLimitedRequestScheduler::queueSize)
+            .tag("provider", providerName)
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Defers the request until a permit is available. The request supplier is invoked once per
+     * subscription, so retries re-enter the queue and consume another permit.
+     */
+    public <T> Mono<T> submit(Supplier<Mono<T>> request) {
+        return Mono.<Void>create(sink -> {
+                FetchPriority priority = FetchPriority.from(sink.contextView());
+                long deadline = System.nanoTime() + config.maxWait(priority).toNanos();
+                Pending pending = new Pending(priority, sequence.incrementAndGet(), deadline, sink);
+                sink.onCancel(() -> remove(pending));
+                enqueue(pending);
+            })
+            .then(Mono.defer(request));
+    }
+    
+    public synchronized int queueSize() {
+        return queue.size();
+    }
+    
+    /**
+     * Stops the timer thread. Requests still waiting for a permit, and any submitted afterwards, fail with
+     * {@link ProviderThrottledException} without being sent.
+     */
+    public void close() {
+        List<Pending> abandoned;
+        synchronized (this) {
+            closed = true;
+            abandoned = new ArrayList<>(queue);
+            queue.clear();
+            scheduledDrain = null;
+        }
+        timer.shutdownNow();
+        abandoned.forEach(this::rejectClosed);
+    }
+    
+    private void enqueue(Pending pending) {
+        boolean accepted;
+        synchronized (this) {
+            accepted = !closed && queue.add(pending);
+        }
+        if (!accepted) {
+            rejectClosed(pending);
+            return;
+        }
+        drain();
+    }
+    
+    private void rejectClosed(Pending pending) {
+        pending.sink().error(new ProviderThrottledException(providerName + " rate limiter is shut down"));
+    }
+    
+    private synchronized void remove(Pending pending) {
+        queue.remove(pending);
+    }
+    
+    private void drain() {
+        List<Pending> released = new ArrayList<>();
+        List<Pending> timedOut = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            queue.removeIf(pending -> {
+                if (now - pending.deadlineNanos() >= 0) {
+                    timedOut.add(pending);
+                    return true;
+                }
+                return false;
+            });
+            while (!queue.isEmpty() && bucket.tryAcquire()) {
+                released.add(queue.poll());
+            }
+            scheduleNextDrain(now);
+        }
+        
+        // Complete sinks outside the lock; subscribers start their HTTP call on this thread
+        for (Pending pending : timedOut) {
+            expired.get(pending.priority()).increment();
+            pending.sink().error(new ProviderThrottledException(
+                providerName + " rate limit: no permit within " + config.maxWait(pending.priority())));
+        }
+        for (Pending pending : released) {
+            dispatched.get(pending.priority()).increment();
+            pending.sink().success();
+        }
+    }
+    
+    private void scheduleNextDrain(long now) {
+        if (scheduledDrain != null) {
+            scheduledDrain.cancel(false);
+            scheduledDrain = null;
+        }
+        if (queue.isEmpty()) {
+            return;
+        }
+        long wakeAt = now + bucket.nanosUntilAvailable();
+        for (Pending pending : queue) {
+            wakeAt = Math.min(wakeAt, pending.deadlineNanos());
+        }
+        scheduledDrain = timer.schedule(this::drain, Math.max(0, wakeAt - now), TimeUnit.NANOSECONDS);
+    }
+    
+    private record Pending(FetchPriority priority, long sequence, long deadlineNanos, MonoSink<Void> sink) {
+    }
+}
@@ -0,0 +1,187 @@
+package com.investtracker.marketdata.provider;
+
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.marketdata.config.MarketDataProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Offline price provider for load tests and benchmarks.
+ * <p>
+ * Every asset follows a geometric Brownian motion with its own drift and volatility, stepped every
+ * {@code marketdata.synthetic.step} from {@code start}. Each path is driven by a random stream seeded from
+ * the configured seed and the asset's type and symbol, so the price at a given step is the same across
+ * runs and independent of which other assets are queried or how often. Any symbol of any asset type is
+ * priced. Calls are delayed by a log-normal latency and fail at {@code error-rate}, so the fetch pipeline,
+ * circuit breakers and deadlines can be exercised without network access. Prices are returned as-is in
+ * whatever currency is requested.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "marketdata.synthetic", name = "enabled", havingValue = "true")
+public class SyntheticPriceProvider implements PriceProvider {
+    private static final double SECONDS_PER_YEAR = 365.25 * 24 * 3600;
+    
+    private final MarketDataProperties.Synthetic config;
+    private final LongSupplier millisClock;
+    private final long startMillis;
+    private final Map<String, PricePath> paths = new ConcurrentHashMap<>();
+    private final SplittableRandom faultRandom;
+    
+    public SyntheticPriceProvider(MarketDataProperties properties) {
+        this(properties.getSynthetic(), System::currentTimeMillis);
+    }
+    
+    SyntheticPriceProvider(MarketDataProperties.Synthetic config, LongSupplier millisClock) {
+        this.config = config;
+        this.millisClock = millisClock;
+        this.startMillis = config.getStart() != null ? config.getStart().toEpochMilli() : millisClock.getAsLong();
+        this.faultRandom = new SplittableRandom(config.getSeed());
+    }
+    
+    @Override
+    public Optional<BigDecimal> getPrice(Asset asset, String currency) {
+        try {
+            simulateCall();
+            return Optional.of(priceNow(asset));
+        } catch (Exception e) {
+            log.debug("Synthetic price call failed for {}: {}", asset.getSymbol(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+    
+    @Override
+    public Map<Asset, BigDecimal> getPrices(Iterable<Asset> assets, String currency) {
+        try {
+            simulateCall();
+            Map<Asset, BigDecimal> prices = new HashMap<>();
+            assets.forEach(asset -> prices.put(asset, priceNow(asset)));
+            return prices;
+        } catch (Exception e) {
+            log.debug("Synthetic batch price call failed: {}", e.getMessage());
+            return new HashMap<>();
+        }
+    }
+    
+    @Override
+    public Mono<BigDecimal> getPriceAsync(Asset asset, String currency) {
+        return simulatedCall().then(Mono.fromSupplier(() -> priceNow(asset)));
+    }
+    
+    @Override
+    public Mono<Map<Asset, BigDecimal>> getPricesAsync(Collection<Asset> assets, String currency) {
+        return simulatedCall().then(Mono.fromSupplier(() -> {
+            Map<Asset, BigDecimal> prices = new HashMap<>();
+            assets.forEach(asset -> prices.put(asset, priceNow(asset)));
+            return prices;
+        }));
+    }
+    
+    @Override
+    public boolean isNonBlocking() {
+        return true;
+    }
+    
+    @Override
+    public int getMaxBatchSize() {
+        return config.getMaxBatchSize();
+    }
+    
+    @Override
+    public boolean supports(Asset.AssetType assetType) {
+        return true;
+    }
+    
+    @Override
+    public String getName() {
+        return "Synthetic";
+    }
+    
+    /**
+     * Price of the asset at the current step of its path
+     */
+    public BigDecimal priceNow(Asset asset) {
+        long step = Math.max(0, (millisClock.getAsLong() - startMillis) / config.getStep().toMillis());
+        String symbol = asset.getSymbol().toUpperCase();
+        PricePath path = paths.computeIfAbsent(asset.getAssetType() + ":" + symbol,
+            key -> new PricePath(key, config.parametersFor(asset.getAssetType(), symbol)));
+        int scale = asset.getAssetType() == Asset.AssetType.CRYPTO ? 8 : 4;
+        return BigDecimal.valueOf(path.priceAt(step)).setScale(scale, RoundingMode.HALF_UP);
+    }
+    
+    private void simulateCall() throws InterruptedException {
+        Duration latency = sampleLatency();
+        if (!latency.isZero()) {
+            Thread.sleep(latency.toMillis());
+        }
+        if (sampleFailure()) {
+            throw new IllegalStateException("Simulated synthetic provider failure");
+        }
+    }
+    
+    private Mono<Void> simulatedCall() {
+        return Mono.defer(() -> {
+            Duration latency = sampleLatency();
+            Mono<Void> call = latency.isZero() ? Mono.empty() : Mono.delay(latency).then();
+            return sampleFailure()
+                ? call.then(Mono.error(new IllegalStateException("Simulated synthetic provider failure")))
+                : call;
+        });
+    }
+    
+    private synchronized Duration sampleLatency() {
+        long medianMillis = config.getLatencyMedian().toMillis();
+        if (medianMillis <= 0) {
+            return Duration.ZERO;
+        }
+        return Duration.ofMillis(Math.round(medianMillis * Math.exp(config.getLatencySigma() * faultRandom.nextGaussian())));
+    }
+    
+    private synchronized boolean sampleFailure() {
+        return config.getErrorRate() > 0 && faultRandom.nextDouble() < config.getErrorRate();
+    }
+    
+    /**
+     * One asset's random walk, advanced lazily to the requested step. The log price moves by
+     * (mu - sigma^2 / 2) dt + sigma sqrt(dt) Z per step.
+     */
+    private final class PricePath {
+        private final SplittableRandom random;
+        private final double driftPerStep;
+        private final double volatilityPerStep;
+        private long step;
+        private double logPrice;
+        
+        PricePath(String key, MarketDataProperties.GbmParameters parameters) {
+            long pathSeed = config.getSeed() * 0x9E3779B97F4A7C15L ^ key.hashCode();
+            this.random = new SplittableRandom(pathSeed);
+            double dt = config.getStep().toMillis() / 1000.0 / SECONDS_PER_YEAR;
+            double sigma = parameters.getVolatility();
+            this.driftPerStep = (parameters.getDrift() - sigma * sigma / 2) * dt;
+            this.volatilityPerStep = sigma * Math.sqrt(dt);
+            
+            // Unconfigured symbols start somewhere between 10 and 1000, fixed by the seed
+            double initialPrice = parameters.getInitialPrice() != null
+                ? parameters.getInitialPrice().doubleValue()
+                : Math.pow(10, 1 + 2 * random.nextDouble());
+            this.logPrice = Math.log(initialPrice);
+        }
+        
+        synchronized double priceAt(long targetStep) {
+            while (step < targetStep) {
+                logPrice += driftPerStep + volatilityPerStep * random.nextGaussian();
+                step++;
+            }
+            return Math.exp(logPrice);
+        }
+    }
+}
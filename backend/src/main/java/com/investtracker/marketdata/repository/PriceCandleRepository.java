@@ -0,0 +1,82 @@
+package com.investtracker.marketdata.repository;
+
+import com.investtracker.marketdata.entity.CandleResolution;
+import com.investtracker.marketdata.entity.PriceCandle;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Plain JDBC access to price_candles. Upserts merge a partial candle into the stored one, so each
+ * bucket is updated in place as prices arrive.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PriceCandleRepository {
+    private static final String UPSERT_SQL =
+        "INSERT INTO price_candles (asset_id, currency, resolution, bucket_start, open, high, low, close, tick_count, first_at, last_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+        "ON CONFLICT (asset_id, currency, resolution, bucket_start) DO UPDATE SET " +
+        "open = CASE WHEN EXCLUDED.first_at < price_candles.first_at THEN EXCLUDED.open ELSE price_candles.open END, " +
+        "high = GREATEST(price_candles.high, EXCLUDED.high), " +
+        "low = LEAST(price_candles.low, EXCLUDED.low), " +
+        "close = CASE WHEN EXCLUDED.last_at >= price_candles.last_at THEN EXCLUDED.close ELSE price_candles.close END, " +
+        "tick_count = price_candles.tick_count + EXCLUDED.tick_count, " +
+        "first_at = LEAST(price_candles.first_at, EXCLUDED.first_at), " +
+        "last_at = GREATEST(price_candles.last_at, EXCLUDED.last_at)";
+    
+    private static final String SELECT_RANGE_SQL =
+        "SELECT asset_id, currency, resolution, bucket_start, open, high, low, close, tick_count, first_at, last_at " +
+        "FROM price_candles " +
+        "WHERE asset_id = ? AND currency = ? AND resolution = ? AND bucket_start >= ? AND bucket_start <= ? " +
+        "ORDER BY bucket_start";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    /**
+     * All or nothing, so a failed batch can be retried without counting any candle twice
+     */
+    @Transactional
+    public void upsertAll(List<PriceCandle> candles) {
+        jdbcTemplate.batchUpdate(UPSERT_SQL, candles, candles.size(), (ps, candle) -> {
+            ps.setObject(1, candle.assetId());
+            ps.setString(2, candle.currency());
+            ps.setString(3, candle.resolution().getCode());
+            ps.setTimestamp(4, Timestamp.valueOf(candle.bucketStart()));
+            ps.setBigDecimal(5, candle.open());
+            ps.setBigDecimal(6, candle.high());
+            ps.setBigDecimal(7, candle.low());
+            ps.setBigDecimal(8, candle.close());
+            ps.setInt(9, candle.tickCount());
+            ps.setTimestamp(10, Timestamp.valueOf(candle.firstAt()));
+            ps.setTimestamp(11, Timestamp.valueOf(candle.lastAt()));
+        });
+    }
+    
+    /**
+     * Candles whose bucket starts within the range, including the bucket containing {@code start}
+     */
+    public List<PriceCandle> findRange(UUID assetId, String currency, CandleResolution resolution,
+                                       LocalDateTime start, LocalDateTime end) {
+        return jdbcTemplate.query(SELECT_RANGE_SQL, (rs, rowNum) -> new PriceCandle(
+                rs.getObject("asset_id", UUID.class),
+                rs.getString("currency"),
+                CandleResolution.fromCode(rs.getString("resolution")),
+                rs.getTimestamp("bucket_start").toLocalDateTime(),
+                rs.getBigDecimal("open"),
+                rs.getBigDecimal("high"),
+                rs.getBigDecimal("low"),
+                rs.getBigDecimal("close"),
+                rs.getInt("tick_count"),
+                rs.getTimestamp("first_at").toLocalDateTime(),
+                rs.getTimestamp("last_at").toLocalDateTime()),
+            assetId, currency, resolution.getCode(),
+            Timestamp.valueOf(resolution.bucketStart(start)), Timestamp.valueOf(end));
+    }
+}
@@ -0,0 +1,60 @@
+package com.investtracker.marketdata.repository;
+
+import com.investtracker.marketdata.entity.PendingPriceSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Plain JDBC batch inserts for price_snapshots, bypassing the JPA persistence context for bulk writes.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PriceSnapshotBatchRepository {
+    private static final String INSERT_SQL =
+        "INSERT INTO price_snapshots (id, asset_id, price, currency, snapshot_date, source) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_SINCE_SQL =
+        "SELECT asset_id, price, currency, source, snapshot_date FROM price_snapshots WHERE snapshot_date > ? ORDER BY snapshot_date";
+    private static final int STREAM_FETCH_SIZE = 10_000;
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    public void insertAll(List<PendingPriceSnapshot> snapshots) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, snapshots, snapshots.size(), (ps, snapshot) -> {
+            ps.setObject(1, UUID.randomUUID());
+            ps.setObject(2, snapshot.assetId());
+            ps.setBigDecimal(3, snapshot.price());
+            ps.setString(4, snapshot.currency());
+            ps.setTimestamp(5, Timestamp.valueOf(snapshot.snapshotDate()));
+            ps.setString(6, snapshot.source());
+        });
+    }
+    
+    /**
+     * Streams every snapshot newer than {@code since} in time order without loading the result into memory.
+     * The driver only uses a cursor inside a transaction, hence the read-only transaction.
+     */
+    @Transactional(readOnly = true)
+    public void forEachSince(LocalDateTime since, Consumer<PendingPriceSnapshot> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(SELECT_SINCE_SQL);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            ps.setTimestamp(1, Timestamp.valueOf(since));
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(new PendingPriceSnapshot(
+            rs.getObject("asset_id", UUID.class),
+            rs.getBigDecimal("price"),
+            rs.getString("currency"),
+            rs.getString("source"),
+            rs.getTimestamp("snapshot_date").toLocalDateTime())));
+    }
+}
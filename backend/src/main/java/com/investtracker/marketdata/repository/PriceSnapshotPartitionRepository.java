@@ -0,0 +1,148 @@
+package com.investtracker.marketdata.repository;
+
+import com.investtracker.asset.entity.Asset;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * DDL and bulk maintenance for the monthly partitions of price_snapshots. Partitions are named
+ * {@code price_snapshots_pYYYYMM} and cover one calendar month each.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PriceSnapshotPartitionRepository {
+    private static final String PARTITION_PREFIX = "price_snapshots_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final Pattern PARTITION_NAME = Pattern.compile("price_snapshots_p\\d{6}");
+    
+    private static final String LIST_PARTITIONS_SQL =
+        "SELECT child.relname FROM pg_inherits " +
+        "JOIN pg_class parent ON parent.oid = pg_inherits.inhparent " +
+        "JOIN pg_class child ON child.oid = pg_inherits.inhrelid " +
+        "WHERE parent.relname = 'price_snapshots' AND child.relname LIKE 'price_snapshots_p%'";
+    
+    // Fills gaps only: buckets already built from live prices are left as they are
+    private static final String ROLL_UP_SQL =
+        "INSERT INTO price_candles (asset_id, currency, resolution, bucket_start, open, high, low, close, tick_count, first_at, last_at) " +
+        "SELECT s.asset_id, s.currency, buckets.resolution, date_trunc(buckets.unit, s.snapshot_date), " +
+        "(array_agg(s.price ORDER BY s.snapshot_date))[1], MAX(s.price), MIN(s.price), " +
+        "(array_agg(s.price ORDER BY s.snapshot_date DESC))[1], COUNT(*), MIN(s.snapshot_date), MAX(s.snapshot_date) " +
+        "FROM %s s JOIN assets a ON a.id = s.asset_id " +
+        "CROSS JOIN (VALUES ('1m', 'minute'), ('1h', 'hour'), ('1d', 'day')) AS buckets(resolution, unit) " +
+        "WHERE a.asset_type = ? " +
+        "GROUP BY s.asset_id, s.currency, buckets.resolution, date_trunc(buckets.unit, s.snapshot_date) " +
+        "ON CONFLICT DO NOTHING";
+    
+    // Keeps the last snapshot of each asset, currency and day
+    private static final String COMPACT_SQL =
+        "DELETE FROM %1$s WHERE id IN (" +
+        "SELECT id FROM (SELECT s.id, ROW_NUMBER() OVER (" +
+        "PARTITION BY s.asset_id, s.currency, date_trunc('day', s.snapshot_date) ORDER BY s.snapshot_date DESC) AS rn " +
+        "FROM %1$s s JOIN assets a ON a.id = s.asset_id WHERE a.asset_type = ?) ranked " +
+        "WHERE rn > 1)";
+    
+    private static final String DELETE_ASSET_TYPE_SQL =
+        "DELETE FROM %s s USING assets a WHERE a.id = s.asset_id AND a.asset_type = ?";
+    
+    private static final String RECORD_RETENTION_SQL =
+        "INSERT INTO price_snapshot_retention (partition_month, asset_type, stage) VALUES (?, ?, ?) " +
+        "ON CONFLICT (partition_month, asset_type) DO UPDATE SET stage = EXCLUDED.stage, applied_at = CURRENT_TIMESTAMP";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    public List<YearMonth> findMonthlyPartitions() {
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class)) {
+            String suffix = name.substring(PARTITION_PREFIX.length());
+            if (suffix.matches("\\d{6}")) {
+                months.add(YearMonth.parse(suffix, PARTITION_SUFFIX));
+            }
+        }
+        months.sort(null);
+        return months;
+    }
+    
+    /**
+     * Creates the partition for {@code month}, moving any of its rows that already landed in the default
+     * partition, which would otherwise block the attach. The default partition stays locked from the move
+     * until the attach commits, so no row for the month can land there in between.
+     */
+    @Transactional
+    public void createPartition(YearMonth month) {
+        String table = partitionTable(month);
+        // ISO dates only, so the bounds are safe to inline; DDL takes no bind parameters
+        String from = month.atDay(1).toString();
+        String to = month.plusMonths(1).atDay(1).toString();
+        
+        jdbcTemplate.execute("CREATE TABLE " + table + " (LIKE price_snapshots INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        jdbcTemplate.execute("LOCK TABLE price_snapshots_default IN ACCESS EXCLUSIVE MODE");
+        jdbcTemplate.update("WITH moved AS (DELETE FROM price_snapshots_default WHERE snapshot_date >= ?::timestamp AND snapshot_date < ?::timestamp RETURNING *) " +
+            "INSERT INTO " + table + " SELECT * FROM moved", from, to);
+        jdbcTemplate.execute(String.format("ALTER TABLE price_snapshots ATTACH PARTITION %s FOR VALUES FROM ('%s') TO ('%s')",
+            table, from, to));
+    }
+    
+    /**
+     * Makes sure every snapshot of the asset type in {@code month} is covered by price_candles
+     */
+    public int rollUp(YearMonth month, Asset.AssetType assetType) {
+        return jdbcTemplate.update(String.format(ROLL_UP_SQL, partitionTable(month)), assetType.name());
+    }
+    
+    public int compact(YearMonth month, Asset.AssetType assetType) {
+        return jdbcTemplate.update(String.format(COMPACT_SQL, partitionTable(month)), assetType.name());
+    }
+    
+    public int deleteAssetType(YearMonth month, Asset.AssetType assetType) {
+        return jdbcTemplate.update(String.format(DELETE_ASSET_TYPE_SQL, partitionTable(month)), assetType.name());
+    }
+    
+    @Transactional
+    public void dropPartition(YearMonth month) {
+        jdbcTemplate.execute("DROP TABLE " + partitionTable(month));
+        jdbcTemplate.update("DELETE FROM price_snapshot_retention WHERE partition_month = ?", month.atDay(1));
+    }
+    
+    /**
+     * Retention stage already applied per month and asset type; pairs without a stage hold raw rows
+     */
+    public Map<YearMonth, Map<Asset.AssetType, RetentionStage>> findRetentionStages() {
+        Map<YearMonth, Map<Asset.AssetType, RetentionStage>> stages = new HashMap<>();
+        jdbcTemplate.query("SELECT partition_month, asset_type, stage FROM price_snapshot_retention", rs -> {
+            stages.computeIfAbsent(YearMonth.from(rs.getDate("partition_month").toLocalDate()), m -> new EnumMap<>(Asset.AssetType.class))
+                .put(Asset.AssetType.valueOf(rs.getString("asset_type")), RetentionStage.valueOf(rs.getString("stage")));
+        });
+        return stages;
+    }
+    
+    public void recordRetentionStage(YearMonth month, Asset.AssetType assetType, RetentionStage stage) {
+        jdbcTemplate.update(RECORD_RETENTION_SQL, month.atDay(1), assetType.name(), stage.name());
+    }
+    
+    public enum RetentionStage {
+        COMPACTED,
+        DELETED
+    }
+    
+    /**
+     * Quoted partition name for {@code month}, checked against the naming scheme before it is spliced into SQL
+     */
+    private static String partitionTable(YearMonth month) {
+        String name = PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+        if (!PARTITION_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("No price_snapshots partition for " + month);
+        }
+        return '"' + name + '"';
+    }
+}
@@ -0,0 +1,85 @@
+package com.investtracker.marketdata.service;
+
+import com.investtracker.marketdata.entity.CandleResolution;
+import com.investtracker.marketdata.entity.PriceCandle;
+import com.investtracker.marketdata.repository.PriceCandleRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rolls every fetched price into 1-minute, 1-hour and 1-day OHLC candles.
+ * <p>
+ * Prices are merged into in-memory partial candles and upserted into price_candles every
+ * {@code marketdata.candles.flush-interval}; the upsert merges each partial candle into the stored
+ * bucket, so a bucket is built up incrementally across flushes. Candles see every price, including
+ * those the snapshot throttle does not persist. A batch that fails to upsert is merged back into the
+ * pending candles and retried on the next flush.
+ */
+@Slf4j
+@Component
+public class CandleAggregator {
+    private final PriceCandleRepository priceCandleRepository;
+    private final Map<CandleKey, PriceCandle> pending = new ConcurrentHashMap<>();
+    
+    private final Counter written;
+    private final Counter failed;
+    
+    public CandleAggregator(PriceCandleRepository priceCandleRepository, MeterRegistry meterRegistry) {
+        this.priceCandleRepository = priceCandleRepository;
+        this.written = Counter.builder("marketdata.candles.upserts").tag("result", "written").register(meterRegistry);
+        this.failed = Counter.builder("marketdata.candles.upserts").tag("result", "failed").register(meterRegistry);
+        Gauge.builder("marketdata.candles.pending", pending, Map::size).register(meterRegistry);
+    }
+    
+    public void record(UUID assetId, String currency, BigDecimal price, LocalDateTime at) {
+        for (CandleResolution resolution : CandleResolution.values()) {
+            PriceCandle tick = PriceCandle.of(assetId, currency, resolution, price, at);
+            pending.merge(new CandleKey(assetId, currency, resolution, tick.bucketStart()), tick, PriceCandle::merge);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "#{@marketDataProperties.candles.flushInterval.toMillis()}")
+    @PreDestroy
+    public void flush() {
+        List<PriceCandle> batch = new ArrayList<>();
+        // remove() is atomic, so a price recorded while flushing starts a new partial candle for the next flush
+        for (CandleKey key : pending.keySet()) {
+            PriceCandle candle = pending.remove(key);
+            if (candle != null) {
+                batch.add(candle);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        
+        try {
+            priceCandleRepository.upsertAll(batch);
+            written.increment(batch.size());
+        } catch (Exception e) {
+            failed.increment(batch.size());
+            log.error("Error writing {} price candles, retrying on the next flush: {}", batch.size(), e.getMessage());
+            // Merged back rather than put, as prices recorded since the removal have started new partial candles
+            for (PriceCandle candle : batch) {
+                pending.merge(new CandleKey(candle.assetId(), candle.currency(), candle.resolution(), candle.bucketStart()),
+                    candle, PriceCandle::merge);
+            }
+        }
+    }
+    
+    private record CandleKey(UUID assetId, String currency, CandleResolution resolution, LocalDateTime bucketStart) {
+    }
+}
@@ -0,0 +1,30 @@
+package com.investtracker.marketdata.service;
+
+/**
+ * Token bucket that caps hedged requests at a fraction of primary requests. Every primary request earns
+ * {@code ratio} of a token, a hedge spends a whole one, and at most {@code burst} tokens are saved up, so a
+ * provider slowdown cannot multiply the load on the fallback provider.
+ */
+class HedgeBudget {
+    private final double ratio;
+    private final double burst;
+    private double tokens;
+    
+    HedgeBudget(double ratio, int burst) {
+        this.ratio = ratio;
+        this.burst = burst;
+        this.tokens = burst;
+    }
+    
+    synchronized void onPrimary() {
+        tokens = Math.min(burst, tokens + ratio);
+    }
+    
+    synchronized boolean tryAcquire() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+}
@@ -1,160 +1,395 @@
 package com.investtracker.marketdata.service;
 
 import com.investtracker.asset.entity.Asset;
-import com.investtracker.marketdata.entity.PriceSnapshot;
-import com.investtracker.marketdata.provider.PriceProvider;
-import com.investtracker.marketdata.repository.PriceSnapshotRepository;
+import com.investtracker.asset.repository.AssetRepository;
+import com.investtracker.marketdata.cache.CachedPrice;
+import com.investtracker.marketdata.cache.LastKnownPrice;
+import com.investtracker.marketdata.cache.LastKnownPriceIndex;
+import com.investtracker.marketdata.cache.PriceCache;
+import com.investtracker.marketdata.cache.PriceDemandTracker;
+import com.investtracker.marketdata.cache.PriceFetchCoalescer;
+import com.investtracker.marketdata.cache.PriceKey;
+import com.investtracker.marketdata.config.MarketDataProperties;
+import com.investtracker.marketdata.entity.CandleResolution;
+import com.investtracker.marketdata.entity.PendingPriceSnapshot;
+import com.investtracker.marketdata.entity.PriceCandle;
+import com.investtracker.marketdata.fx.FxRateService;
+import com.investtracker.marketdata.provider.FetchPriority;
+import com.investtracker.marketdata.provider.ProviderQuote;
+import com.investtracker.marketdata.repository.PriceCandleRepository;
+import com.investtracker.marketdata.stream.PriceTick;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.scheduling.annotation.Async;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class MarketDataService {
-    private final List<PriceProvider> priceProviders;
-    private final PriceSnapshotRepository priceSnapshotRepository;
+    private final PriceFetchPipeline priceFetchPipeline;
+    private final AssetRepository assetRepository;
+    private final PriceSnapshotWriter priceSnapshotWriter;
+    private final SnapshotThrottle snapshotThrottle;
+    private final CandleAggregator candleAggregator;
+    private final PriceCandleRepository priceCandleRepository;
+    private final PriceCache priceCache;
+    private final PriceFetchCoalescer priceFetchCoalescer;
+    private final PriceDemandTracker priceDemandTracker;
+    private final LastKnownPriceIndex lastKnownPriceIndex;
+    private final FxRateService fxRateService;
+    private final MarketDataProperties properties;
+    private final MeterRegistry meterRegistry;
+    @Qualifier("priceRefreshExecutor")
+    private final Executor priceRefreshExecutor;
+    @Qualifier("priceResolveExecutor")
+    private final Executor priceResolveExecutor;
     
-    // In-memory cache (TTL: 5 minutes)
-    private final Map<String, CachedPrice> priceCache = new ConcurrentHashMap<>();
-    private static final long CACHE_TTL_MS = 5 * 60 * 1000; // 5 minutes
+    // Keys with a background refresh already queued, so a hot stale entry is refreshed once
+    private final Set<PriceKey> refreshesInFlight = ConcurrentHashMap.newKeySet();
     
+    /**
+     * Current price of the asset in {@code currency}. The price is fetched and cached in the asset's quote
+     * currency and converted with the in-memory FX rates, so every currency shares one provider fetch.
+     * Pairs without a known rate are requested from the providers in the target currency instead. Like
+     * {@link #getCurrentQuotes}, an uncached price is waited for up to the interactive deadline and then
+     * answered from the last known price.
+     */
     public Optional<BigDecimal> getCurrentPrice(Asset asset, String currency) {
-        String cacheKey = asset.getId().toString() + ":" + currency;
-        CachedPrice cached = priceCache.get(cacheKey);
+        return Optional.ofNullable(getCurrentQuotes(List.of(asset), currency).get(asset)).map(PriceQuote::price);
+    }
+    
+    /**
+     * Batch form of {@link #getCurrentPrice}: one cache lookup and at most one provider fetch per quote currency.
+     * Bounded by the interactive deadline, with last known prices as fallback; see {@link #getCurrentQuotes}.
+     */
+    public Map<Asset, BigDecimal> getCurrentPrices(Collection<Asset> assets, String currency) {
+        Map<Asset, BigDecimal> prices = new HashMap<>();
+        getCurrentQuotes(assets, currency).forEach((asset, quote) -> prices.put(asset, quote.price()));
+        return prices;
+    }
+    
+    /**
+     * {@link #getCurrentPrices} with the source and age of each price. Uncached prices are waited for up to
+     * {@code marketdata.fetch.interactive-deadline}; assets still unpriced then are answered from their last
+     * known price and marked stale.
+     */
+    public Map<Asset, PriceQuote> getCurrentQuotes(Collection<Asset> assets, String currency) {
+        String target = currency.toUpperCase();
+        Map<Asset, PriceQuote> quotes = new HashMap<>();
+        List<Asset> unconvertible = new ArrayList<>();
         
-        if (cached != null && !cached.isExpired()) {
-            return Optional.of(cached.price);
+        groupByQuoteCurrency(assets).forEach((quoteCurrency, group) ->
+            getCachedQuotes(group, quoteCurrency).forEach((asset, cached) ->
+                fxRateService.convert(cached.price(), quoteCurrency, target).ifPresentOrElse(
+                    price -> quotes.put(asset, toQuote(price, target, quoteCurrency, cached)),
+                    () -> unconvertible.add(asset))));
+        
+        if (!unconvertible.isEmpty()) {
+            getCachedQuotes(unconvertible, target).forEach((asset, cached) ->
+                quotes.put(asset, toQuote(cached.price(), target, target, cached)));
         }
         
-        for (PriceProvider provider : priceProviders) {
-            if (provider.supports(asset.getAssetType())) {
-                Optional<BigDecimal> price = provider.getPrice(asset, currency);
-                if (price.isPresent()) {
-                    // Cache the price
-                    priceCache.put(cacheKey, new CachedPrice(price.get(), System.currentTimeMillis()));
-                    
-                    // Save to database for historical tracking
-                    savePriceSnapshot(asset, price.get(), currency, provider.getName());
-                    
-                    return price;
-                }
+        if (quotes.size() < assets.size()) {
+            addLastKnownPrices(assets, target, quotes);
+        }
+        return quotes;
+    }
+    
+    /**
+     * Answers assets the providers could not price in time with their last known price, marked stale
+     */
+    private void addLastKnownPrices(Collection<Asset> assets, String currency, Map<Asset, PriceQuote> quotes) {
+        for (Asset asset : assets) {
+            if (quotes.containsKey(asset)) {
+                continue;
             }
+            Optional<PriceQuote> fallback = lastKnownPriceIndex.get(asset.getId())
+                .flatMap(last -> fxRateService.convert(last.price(), last.currency(), currency)
+                    .map(price -> new PriceQuote(price, currency, last.currency(), last.source(), last.asOfMillis(), true)));
+            fallback.ifPresent(quote -> quotes.put(asset, quote));
+            meterRegistry.counter("marketdata.price.fallback", "result", fallback.isPresent() ? "last-known" : "missing").increment();
         }
-        
-        return Optional.empty();
     }
     
-    public Map<Asset, BigDecimal> getCurrentPrices(Collection<Asset> assets, String currency) {
-        Map<Asset, BigDecimal> prices = new HashMap<>();
+    /**
+     * Prices for a batch of asset ids: the assets are loaded in one query, then priced like
+     * {@link #getCurrentQuotes}. Unknown ids and unpriced assets are left out of the result.
+     */
+    public Map<UUID, PriceQuote> getBulkPrices(Collection<UUID> assetIds, String currency) {
+        List<Asset> assets = assetRepository.findAllById(new LinkedHashSet<>(assetIds));
+        Map<UUID, PriceQuote> quotes = new LinkedHashMap<>();
+        getCurrentQuotes(assets, currency).forEach((asset, quote) -> quotes.put(asset.getId(), quote));
+        return quotes;
+    }
+    
+    private PriceQuote toQuote(BigDecimal price, String currency, String quoteCurrency, CachedPrice cached) {
+        return new PriceQuote(price, currency, quoteCurrency, cached.source(), cached.fetchedAtMillis(), priceCache.isStale(cached));
+    }
+    
+    private Map<Asset, CachedPrice> getCachedQuotes(Collection<Asset> assets, String currency) {
+        Map<Asset, CachedPrice> prices = new HashMap<>();
         List<Asset> uncachedAssets = new ArrayList<>();
+        List<Asset> staleAssets = new ArrayList<>();
         
-        // Check cache first
+        // Check cache first; stale entries are served as-is and refreshed off the request thread
         for (Asset asset : assets) {
-            String cacheKey = asset.getId().toString() + ":" + currency;
-            CachedPrice cached = priceCache.get(cacheKey);
-            if (cached != null && !cached.isExpired()) {
-                prices.put(asset, cached.price);
+            PriceKey key = PriceKey.of(asset, currency);
+            priceDemandTracker.recordView(key);
+            Optional<CachedPrice> cached = priceCache.get(key);
+            if (cached.isPresent()) {
+                prices.put(asset, cached.get());
+                if (priceCache.isStale(cached.get())) {
+                    staleAssets.add(asset);
+                }
             } else {
                 uncachedAssets.add(asset);
             }
         }
         
-        // Fetch uncached prices
+        if (!staleAssets.isEmpty()) {
+            refreshInBackground(staleAssets, currency);
+        }
+        
         if (!uncachedAssets.isEmpty()) {
-            Map<Asset, BigDecimal> fetchedPrices = fetchPricesFromProviders(uncachedAssets, currency);
-            prices.putAll(fetchedPrices);
+            prices.putAll(fetchWithinDeadline(uncachedAssets, currency));
         }
         
         return prices;
     }
     
-    private Map<Asset, BigDecimal> fetchPricesFromProviders(Collection<Asset> assets, String currency) {
-        Map<Asset, BigDecimal> prices = new HashMap<>();
-        Map<Asset.AssetType, PriceProvider> providerMap = new HashMap<>();
-        
-        // Group assets by type and get appropriate provider
-        for (PriceProvider provider : priceProviders) {
-            for (Asset.AssetType type : Asset.AssetType.values()) {
-                if (provider.supports(type)) {
-                    providerMap.put(type, provider);
-                }
-            }
+    /**
+     * Fetches uncached prices for a user request, waiting at most {@code interactive-deadline}. A fetch
+     * still running at the deadline carries on in the background and caches its prices for later requests;
+     * the caller gets whatever has arrived so far.
+     */
+    private Map<Asset, CachedPrice> fetchWithinDeadline(List<Asset> assets, String currency) {
+        long now = System.currentTimeMillis();
+        Map<Asset, BigDecimal> fetched = Map.of();
+        try {
+            fetched = CompletableFuture
+                .supplyAsync(() -> fetchPricesCoalesced(assets, currency, FetchPriority.INTERACTIVE, true), priceResolveExecutor)
+                .get(properties.getFetch().getInteractiveDeadline().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | RejectedExecutionException e) {
+            meterRegistry.counter("marketdata.price.deadline.exceeded").increment();
+            log.debug("Price fetch for {} assets did not finish within the interactive deadline", assets.size());
+        } catch (ExecutionException e) {
+            log.warn("Price fetch for {} assets failed: {}", assets.size(), e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
         
-        // Fetch prices
+        // The fetch has cached what it priced, so metadata is read back quietly
+        Map<Asset, CachedPrice> prices = new HashMap<>();
         for (Asset asset : assets) {
-            PriceProvider provider = providerMap.get(asset.getAssetType());
-            if (provider != null) {
-                provider.getPrice(asset, currency).ifPresent(price -> {
-                    prices.put(asset, price);
-                    String cacheKey = asset.getId().toString() + ":" + currency;
-                    priceCache.put(cacheKey, new CachedPrice(price, System.currentTimeMillis()));
-                    savePriceSnapshot(asset, price, currency, provider.getName());
-                });
+            BigDecimal price = fetched.get(asset);
+            Optional<CachedPrice> cached = priceCache.peek(PriceKey.of(asset, currency))
+                .filter(entry -> price == null || entry.price().compareTo(price) == 0);
+            if (cached.isPresent()) {
+                prices.put(asset, cached.get());
+            } else if (price != null) {
+                prices.put(asset, new CachedPrice(price, "provider", asset.getAssetType(), now));
             }
         }
-        
         return prices;
     }
     
-    @Transactional
-    public void savePriceSnapshot(Asset asset, BigDecimal price, String currency, String source) {
-        PriceSnapshot snapshot = new PriceSnapshot();
-        snapshot.setAsset(asset);
-        snapshot.setPrice(price);
-        snapshot.setCurrency(currency);
-        snapshot.setSource(source);
-        snapshot.setSnapshotDate(LocalDateTime.now());
-        priceSnapshotRepository.save(snapshot);
+    private static Map<String, List<Asset>> groupByQuoteCurrency(Collection<Asset> assets) {
+        Map<String, List<Asset>> byCurrency = new LinkedHashMap<>();
+        for (Asset asset : assets) {
+            byCurrency.computeIfAbsent(PriceKey.quoteCurrency(asset), c -> new ArrayList<>()).add(asset);
+        }
+        return byCurrency;
+    }
+    
+    private Optional<CachedPrice> freshCachedPrice(PriceKey key) {
+        return priceCache.get(key).filter(cached -> !priceCache.isStale(cached));
+    }
+    
+    /**
+     * Fetches the uncached prices of the given assets in their quote currencies, one batch per quote
+     * currency, all started at once on the resolve pool. The returned future completes when every batch
+     * has; callers bound the wait themselves, and batches still running carry on and cache their prices.
+     * A batch the pool rejects is skipped, leaving those prices to be fetched on first read.
+     */
+    public CompletableFuture<Void> resolvePrices(Collection<Asset> assets) {
+        List<CompletableFuture<Map<Asset, BigDecimal>>> fetches = new ArrayList<>();
+        groupByQuoteCurrency(assets).forEach((quoteCurrency, group) -> {
+            List<Asset> uncached = group.stream()
+                .filter(asset -> priceCache.peek(PriceKey.of(asset, quoteCurrency)).isEmpty())
+                .collect(Collectors.toList());
+            if (uncached.isEmpty()) {
+                return;
+            }
+            try {
+                fetches.add(CompletableFuture.supplyAsync(
+                    () -> fetchPricesCoalesced(uncached, quoteCurrency, FetchPriority.INTERACTIVE, true), priceResolveExecutor));
+            } catch (RejectedExecutionException e) {
+                log.debug("Price resolve pool saturated, leaving {} {} prices to their first read", uncached.size(), quoteCurrency);
+            }
+        });
+        return CompletableFuture.allOf(fetches.toArray(new CompletableFuture<?>[0]));
     }
     
-    public void clearCache() {
-        priceCache.clear();
+    /**
+     * Refreshes the given prices from the providers at background priority, even if the cached entries are
+     * still fresh; used to renew entries ahead of their soft TTL. Returns the prices that were fetched.
+     */
+    public Map<Asset, BigDecimal> prefetchPrices(Collection<Asset> assets, String currency) {
+        return fetchPricesCoalesced(assets, currency, FetchPriority.BACKGROUND, false);
     }
     
-    public Map<UUID, BigDecimal> getBulkPrices(List<UUID> assetIds, String currency) {
-        // This would need AssetService to get assets by IDs
-        // For now, return empty map - will be implemented in controller
-        return new HashMap<>();
+    /**
+     * Re-fetches the given prices in their quote currencies on behalf of a user, replacing their cache
+     * entries. Other keys are left alone, and the old entries stay readable until the new prices arrive.
+     */
+    public Map<Asset, BigDecimal> refreshPrices(Collection<Asset> assets) {
+        Map<Asset, BigDecimal> prices = new HashMap<>();
+        groupByQuoteCurrency(assets).forEach((quoteCurrency, group) ->
+            prices.putAll(fetchPricesCoalesced(group, quoteCurrency, FetchPriority.INTERACTIVE, false)));
+        return prices;
     }
     
-    public List<PriceSnapshot> getHistoricalPrices(UUID assetId, LocalDateTime startDate, LocalDateTime endDate) {
-        return priceSnapshotRepository.findByAssetIdAndDateRange(assetId, startDate, endDate);
+    /**
+     * Fetches the given assets through the single-flight layer: keys another caller is already fetching
+     * are awaited rather than fetched again, and, if {@code reuseFresh} is set, keys that a just-finished
+     * fetch has refreshed are served from the cache.
+     */
+    private Map<Asset, BigDecimal> fetchPricesCoalesced(Collection<Asset> assets, String currency, FetchPriority priority,
+                                                        boolean reuseFresh) {
+        Map<PriceKey, Asset> assetsByKey = new LinkedHashMap<>();
+        for (Asset asset : assets) {
+            assetsByKey.put(PriceKey.of(asset, currency), asset);
+        }
+        
+        Map<PriceKey, BigDecimal> fetched = priceFetchCoalescer.fetchAll(assetsByKey.keySet(), claimedKeys -> {
+            Map<PriceKey, BigDecimal> loaded = new HashMap<>();
+            List<Asset> toFetch = new ArrayList<>();
+            for (PriceKey key : claimedKeys) {
+                Optional<CachedPrice> fresh = reuseFresh ? freshCachedPrice(key) : Optional.empty();
+                if (fresh.isPresent()) {
+                    loaded.put(key, fresh.get().price());
+                } else {
+                    toFetch.add(assetsByKey.get(key));
+                }
+            }
+            if (!toFetch.isEmpty()) {
+                fetchPricesFromProviders(toFetch, currency, priority)
+                    .forEach((asset, price) -> loaded.put(PriceKey.of(asset, currency), price));
+            }
+            return loaded;
+        });
+        
+        Map<Asset, BigDecimal> prices = new HashMap<>();
+        fetched.forEach((key, price) -> prices.put(assetsByKey.get(key), price));
+        return prices;
     }
     
-    @CacheEvict(value = "assetPrices", allEntries = true)
-    public void refreshPortfolioPrices(UUID portfolioId) {
-        // Clear cache for portfolio assets
-        // In production, implement proper cache invalidation per portfolio
-        clearCache();
+    private Map<Asset, BigDecimal> fetchPricesFromProviders(Collection<Asset> assets, String currency, FetchPriority priority) {
+        Map<Asset, ProviderQuote> quotes = priceFetchPipeline.fetch(assets, currency, priority,
+            quote -> recordPrice(quote.asset(), quote.price(), currency, quote.source(), System.currentTimeMillis()));
+        
+        Map<Asset, BigDecimal> prices = new HashMap<>();
+        quotes.forEach((asset, quote) -> prices.put(asset, quote.price()));
+        return prices;
     }
     
-    @Async
-    public void refreshPricesAsync(UUID portfolioId) {
-        // Async price refresh
-        refreshPortfolioPrices(portfolioId);
+    /**
+     * Applies ticks pushed by a streaming source, oldest first: every tick is rolled into the candles and
+     * the newest one is recorded like a fetched price
+     */
+    public void acceptStreamedTicks(Asset asset, String currency, List<PriceTick> ticks) {
+        if (ticks.isEmpty()) {
+            return;
+        }
+        for (PriceTick tick : ticks.subList(0, ticks.size() - 1)) {
+            candleAggregator.record(asset.getId(), currency, tick.price(), toLocalDateTime(tick.timestampMillis()));
+        }
+        PriceTick latest = ticks.get(ticks.size() - 1);
+        recordPrice(asset, latest.price(), currency, latest.source(), latest.timestampMillis());
     }
     
-    private static class CachedPrice {
-        final BigDecimal price;
-        final long timestamp;
+    /**
+     * Caches the price and stores it as observed at {@code observedAtMillis}: the fetch time for provider
+     * quotes, the exchange timestamp for streamed ticks
+     */
+    private void recordPrice(Asset asset, BigDecimal price, String currency, String source, long observedAtMillis) {
+        priceCache.put(PriceKey.of(asset, currency), asset.getAssetType(), price, source);
+        lastKnownPriceIndex.record(asset.getId(), new LastKnownPrice(price, currency, source, observedAtMillis));
         
-        CachedPrice(BigDecimal price, long timestamp) {
-            this.price = price;
-            this.timestamp = timestamp;
+        // Save to database for historical tracking
+        savePriceSnapshot(asset, price, currency, source, observedAtMillis);
+    }
+    
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+    
+    private void refreshInBackground(Collection<Asset> assets, String currency) {
+        List<Asset> toRefresh = new ArrayList<>();
+        for (Asset asset : assets) {
+            if (refreshesInFlight.add(PriceKey.of(asset, currency))) {
+                toRefresh.add(asset);
+            }
+        }
+        if (toRefresh.isEmpty()) {
+            return;
         }
         
-        boolean isExpired() {
-            return System.currentTimeMillis() - timestamp > CACHE_TTL_MS;
+        Runnable releaseKeys = () -> toRefresh.forEach(asset -> refreshesInFlight.remove(PriceKey.of(asset, currency)));
+        try {
+            priceRefreshExecutor.execute(() -> {
+                try {
+                    fetchPricesCoalesced(toRefresh, currency, FetchPriority.BACKGROUND, true);
+                } catch (Exception e) {
+                    log.warn("Background price refresh failed for {} assets: {}", toRefresh.size(), e.getMessage());
+                } finally {
+                    releaseKeys.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Refresh queue is saturated; the stale entries will retry on their next read
+            releaseKeys.run();
         }
     }
+    
+    /**
+     * Rolls the price into the asset's candles and queues a snapshot for write-behind persistence if the
+     * {@link SnapshotThrottle} considers the price a meaningful move; the row reaches the database within
+     * the writer's flush interval. Both are stamped with {@code observedAtMillis}.
+     */
+    public void savePriceSnapshot(Asset asset, BigDecimal price, String currency, String source, long observedAtMillis) {
+        LocalDateTime observedAt = toLocalDateTime(observedAtMillis);
+        candleAggregator.record(asset.getId(), currency, price, observedAt);
+        if (!snapshotThrottle.shouldPersist(PriceKey.of(asset, currency), asset.getAssetType(), price, observedAtMillis)) {
+            return;
+        }
+        priceSnapshotWriter.enqueue(new PendingPriceSnapshot(asset.getId(), price, currency, source, observedAt));
+    }
+    
+    /**
+     * Candle resolution for a history request: the requested {@code interval} if it stays within
+     * {@code marketdata.candles.max-points} for the range, otherwise the finest one that does
+     */
+    public CandleResolution resolveCandleResolution(LocalDateTime startDate, LocalDateTime endDate, String interval) {
+        return CandleResolution.forRange(Duration.between(startDate, endDate), properties.getCandles().getMaxPoints(),
+            CandleResolution.fromInterval(interval).orElse(null));
+    }
+    
+    /**
+     * OHLC candles of the asset's price in its quote currency, the currency prices are fetched in
+     */
+    public List<PriceCandle> getPriceCandles(Asset asset, CandleResolution resolution, LocalDateTime startDate, LocalDateTime endDate) {
+        return priceCandleRepository.findRange(asset.getId(), PriceKey.quoteCurrency(asset), resolution, startDate, endDate);
+    }
 }
-
@@ -0,0 +1,68 @@
+package com.investtracker.marketdata.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.common.concurrent.SingleFlight;
+import com.investtracker.marketdata.config.MarketDataProperties;
+import com.investtracker.portfolio.entity.Portfolio;
+import com.investtracker.position.repository.PositionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * User-triggered refresh of one portfolio's prices.
+ * <p>
+ * Only the assets the portfolio currently holds are re-fetched, as a single batch per quote currency;
+ * every other cached price is untouched. Concurrent refreshes of the same portfolio share one
+ * fetch, and a refresh within {@code marketdata.cache.portfolio-refresh-cooldown} of the last one returns
+ * that result instead of fetching again.
+ */
+@Slf4j
+@Service
+public class PortfolioPriceRefresher {
+    private final PositionRepository positionRepository;
+    private final MarketDataService marketDataService;
+    private final SingleFlight<UUID, RefreshResult> inFlight = new SingleFlight<>();
+    private final Cache<UUID, RefreshResult> recentRefreshes;
+    
+    public PortfolioPriceRefresher(PositionRepository positionRepository,
+                                   MarketDataService marketDataService,
+                                   MarketDataProperties properties) {
+        this.positionRepository = positionRepository;
+        this.marketDataService = marketDataService;
+        this.recentRefreshes = Caffeine.newBuilder()
+            .expireAfterWrite(properties.getCache().getPortfolioRefreshCooldown())
+            .maximumSize(properties.getCache().getMaximumSize())
+            .build();
+    }
+    
+    public RefreshResult refresh(Portfolio portfolio) {
+        RefreshResult recent = recentRefreshes.getIfPresent(portfolio.getId());
+        if (recent != null) {
+            return recent.asCoalesced();
+        }
+        
+        return inFlight.execute(portfolio.getId(), () -> {
+            List<Asset> assets = positionRepository.findHeldAssetsByPortfolioId(portfolio.getId());
+            int priced = assets.isEmpty() ? 0 : marketDataService.refreshPrices(assets).size();
+            log.debug("Refreshed {} of {} prices for portfolio {}", priced, assets.size(), portfolio.getId());
+            
+            RefreshResult result = new RefreshResult(assets.size(), priced, System.currentTimeMillis(), false);
+            recentRefreshes.put(portfolio.getId(), result);
+            return result;
+        });
+    }
+    
+    /**
+     * @param coalesced true if this call reused a refresh made by an earlier request within the cooldown
+     */
+    public record RefreshResult(int assets, int refreshed, long refreshedAtMillis, boolean coalesced) {
+        RefreshResult asCoalesced() {
+            return new RefreshResult(assets, refreshed, refreshedAtMillis, true);
+        }
+    }
+}
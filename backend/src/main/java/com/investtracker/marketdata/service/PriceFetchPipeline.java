@@ -0,0 +1,246 @@
+package com.investtracker.marketdata.service;
+
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.marketdata.config.MarketDataProperties;
+import com.investtracker.marketdata.provider.FetchPriority;
+import com.investtracker.marketdata.provider.PriceProvider;
+import com.investtracker.marketdata.provider.ProviderHealthRegistry;
+import com.investtracker.marketdata.provider.ProviderQuote;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Fetches prices for many assets with as few provider round-trips as possible.
+ * <p>
+ * Assets are grouped by the first provider in their type's chain, split into chunks of at most
+ * {@link PriceProvider#getMaxBatchSize()} and the chunks are requested concurrently through the providers'
+ * async API, so a single waiting thread covers every in-flight request. Providers that are not
+ * {@link PriceProvider#isNonBlocking() non-blocking} are run on the {@code priceFetchExecutor}. Assets a
+ * provider could not price fall through to the next provider in the chain; chains come from the
+ * {@link ProviderHealthRegistry}, which drops providers with an open circuit and records the latency and
+ * outcome of every request. The whole fetch is bounded by
+ * {@code marketdata.fetch.deadline}; requests still running at the deadline are cancelled and their
+ * assets left out of the result.
+ * <p>
+ * Interactive requests are hedged: when a provider has not answered within its usual latency
+ * ({@code marketdata.fetch.hedging.percentile}) the same chunk is sent to the next provider in the chain,
+ * the first answer is used and the other request is cancelled. Hedges are limited to
+ * {@code budget-ratio} of primary requests. Metrics: {@code marketdata.fetch.hedges} by result and
+ * {@code marketdata.fetch.hedges.win.rate}, the share of sent hedges that answered first.
+ */
+@Slf4j
+@Component
+public class PriceFetchPipeline {
+    private final ProviderHealthRegistry providerHealthRegistry;
+    private final MarketDataProperties properties;
+    private final Scheduler blockingScheduler;
+    private final HedgeBudget hedgeBudget;
+    
+    private final Counter hedgesSent;
+    private final Counter hedgesWon;
+    private final Counter hedgesLost;
+    private final Counter hedgesDenied;
+    
+    public PriceFetchPipeline(ProviderHealthRegistry providerHealthRegistry,
+                              MarketDataProperties properties,
+                              @Qualifier("priceFetchExecutor") Executor priceFetchExecutor,
+                              MeterRegistry meterRegistry) {
+        this.providerHealthRegistry = providerHealthRegistry;
+        this.properties = properties;
+        this.blockingScheduler = Schedulers.fromExecutor(priceFetchExecutor);
+        MarketDataProperties.Hedging hedging = properties.getFetch().getHedging();
+        this.hedgeBudget = new HedgeBudget(hedging.getBudgetRatio(), hedging.getBudgetBurst());
+        
+        this.hedgesSent = Counter.builder("marketdata.fetch.hedges").tag("result", "sent").register(meterRegistry);
+        this.hedgesWon = Counter.builder("marketdata.fetch.hedges").tag("result", "won").register(meterRegistry);
+        this.hedgesLost = Counter.builder("marketdata.fetch.hedges").tag("result", "lost").register(meterRegistry);
+        this.hedgesDenied = Counter.builder("marketdata.fetch.hedges").tag("result", "denied").register(meterRegistry);
+        Gauge.builder("marketdata.fetch.hedges.win.rate", this, pipeline -> {
+                double decided = pipeline.hedgesWon.count() + pipeline.hedgesLost.count();
+                return decided == 0 ? Double.NaN : pipeline.hedgesWon.count() / decided;
+            })
+            .description("Share of hedged requests answered by the hedge before the primary")
+            .register(meterRegistry);
+    }
+    
+    public Map<Asset, ProviderQuote> fetch(Collection<Asset> assets, String currency, Consumer<ProviderQuote> sink) {
+        return fetch(assets, currency, FetchPriority.INTERACTIVE, sink);
+    }
+    
+    public Map<Asset, ProviderQuote> fetch(Collection<Asset> assets, String currency, FetchPriority priority,
+                                           Consumer<ProviderQuote> sink) {
+        return fetchAsync(assets, currency, priority, sink).block();
+    }
+    
+    /**
+     * Non-blocking form of {@link #fetch}. The sink is invoked on the blocking scheduler, so it may do I/O.
+     * The priority is published in the Reactor context for rate-limited providers.
+     */
+    public Mono<Map<Asset, ProviderQuote>> fetchAsync(Collection<Asset> assets, String currency, FetchPriority priority,
+                                                      Consumer<ProviderQuote> sink) {
+        Map<Asset, ProviderQuote> quotes = new ConcurrentHashMap<>();
+        Duration deadline = properties.getFetch().getDeadline();
+        
+        return Mono.defer(() -> {
+                // Fix each type's chain for the whole fetch so a circuit opening mid-way cannot shift the rounds
+                Map<Asset.AssetType, List<PriceProvider>> chains = new ConcurrentHashMap<>();
+                return fetchRound(new ArrayList<>(assets), 0, chains, currency, quote -> {
+                    quotes.put(quote.asset(), quote);
+                    sink.accept(quote);
+                });
+            })
+            .timeout(deadline, Mono.fromRunnable(() ->
+                log.warn("Price fetch deadline of {} exceeded with {} of {} assets priced",
+                    deadline, quotes.size(), assets.size())))
+            .then(Mono.<Map<Asset, ProviderQuote>>fromCallable(() -> new HashMap<>(quotes)))
+            .contextWrite(context -> context.put(FetchPriority.class, priority));
+    }
+    
+    private Mono<Void> fetchRound(List<Asset> remaining, int round, Map<Asset.AssetType, List<PriceProvider>> chains,
+                                  String currency, Consumer<ProviderQuote> onQuote) {
+        Map<Route, List<Asset>> byRoute = groupByRoute(remaining, round, chains);
+        if (byRoute.isEmpty()) {
+            return Mono.empty();
+        }
+        
+        Set<Asset> priced = ConcurrentHashMap.newKeySet();
+        return Flux.fromIterable(byRoute.entrySet())
+            .flatMap(entry -> Flux.fromIterable(partition(entry.getValue(), entry.getKey().primary().getMaxBatchSize()))
+                .map(chunk -> Map.entry(entry.getKey(), chunk)))
+            .flatMap(chunk -> fetchChunk(chunk.getKey(), chunk.getValue(), currency), properties.getFetch().getParallelism())
+            .publishOn(blockingScheduler)
+            .doOnNext(quote -> {
+                priced.add(quote.asset());
+                onQuote.accept(quote);
+            })
+            .then(Mono.defer(() -> {
+                List<Asset> unpriced = remaining.stream()
+                    .filter(asset -> !priced.contains(asset))
+                    .toList();
+                return unpriced.isEmpty() ? Mono.empty() : fetchRound(unpriced, round + 1, chains, currency, onQuote);
+            }));
+    }
+    
+    private Map<Route, List<Asset>> groupByRoute(Collection<Asset> assets, int round,
+                                                 Map<Asset.AssetType, List<PriceProvider>> chains) {
+        Map<Route, List<Asset>> byRoute = new LinkedHashMap<>();
+        for (Asset asset : assets) {
+            List<PriceProvider> chain = chains.computeIfAbsent(asset.getAssetType(), providerHealthRegistry::chainFor);
+            if (round < chain.size()) {
+                Route route = new Route(chain.get(round), round + 1 < chain.size() ? chain.get(round + 1) : null);
+                byRoute.computeIfAbsent(route, r -> new ArrayList<>()).add(asset);
+            }
+        }
+        return byRoute;
+    }
+    
+    private Flux<ProviderQuote> fetchChunk(Route route, List<Asset> chunk, String currency) {
+        return Mono.deferContextual(context -> {
+                hedgeBudget.onPrimary();
+                Optional<Duration> hedgeDelay = hedgeDelay(route, chunk, FetchPriority.from(context));
+                if (hedgeDelay.isEmpty()) {
+                    return request(route.primary(), chunk, currency);
+                }
+                
+                // A primary that fails before the hedge delay goes straight to the next round instead
+                Sinks.Empty<Void> primaryFailed = Sinks.empty();
+                Mono<Answer> primary = request(route.primary(), chunk, currency)
+                    .doOnError(e -> primaryFailed.tryEmitEmpty());
+                AtomicBoolean hedged = new AtomicBoolean();
+                Mono<Answer> hedge = Mono.delay(hedgeDelay.get())
+                    .takeUntilOther(primaryFailed.asMono())
+                    .flatMap(tick -> {
+                        if (!hedgeBudget.tryAcquire()) {
+                            hedgesDenied.increment();
+                            return Mono.empty();
+                        }
+                        hedged.set(true);
+                        hedgesSent.increment();
+                        // An empty hedge must not beat a primary that may still answer
+                        return request(route.secondary(), chunk, currency)
+                            .filter(answer -> !answer.prices().isEmpty());
+                    });
+                
+                return Mono.firstWithValue(primary, hedge)
+                    .doOnNext(answer -> {
+                        if (answer.provider() == route.secondary()) {
+                            hedgesWon.increment();
+                        } else if (hedged.get()) {
+                            hedgesLost.increment();
+                        }
+                    });
+            })
+            // Failures were logged per provider by request()
+            .onErrorResume(e -> Mono.empty())
+            .flatMapIterable(answer -> answer.prices().entrySet()
+                .stream()
+                .map(entry -> new ProviderQuote(entry.getKey(), entry.getValue(), answer.provider().getName()))
+                .toList());
+    }
+    
+    /**
+     * Delay after which the chunk is also sent to the route's secondary provider; empty if it should not be hedged
+     */
+    private Optional<Duration> hedgeDelay(Route route, List<Asset> chunk, FetchPriority priority) {
+        if (!properties.getFetch().getHedging().isEnabled()
+            || priority != FetchPriority.INTERACTIVE
+            || route.secondary() == null
+            || chunk.size() > route.secondary().getMaxBatchSize()) {
+            return Optional.empty();
+        }
+        return providerHealthRegistry.hedgeDelay(route.primary());
+    }
+    
+    private Mono<Answer> request(PriceProvider provider, List<Asset> chunk, String currency) {
+        Mono<Map<Asset, BigDecimal>> request;
+        if (chunk.size() == 1) {
+            Asset asset = chunk.get(0);
+            request = provider.getPriceAsync(asset, currency).map(price -> Map.of(asset, price));
+        } else {
+            request = provider.getPricesAsync(chunk, currency);
+        }
+        if (!provider.isNonBlocking()) {
+            request = request.subscribeOn(blockingScheduler);
+        }
+        
+        return providerHealthRegistry.track(provider, chunk, currency, request)
+            .defaultIfEmpty(Map.of())
+            .map(prices -> new Answer(provider, prices))
+            .doOnError(e -> log.error("Error fetching {} prices from {}: {}", chunk.size(), provider.getName(), e.getMessage()));
+    }
+    
+    private static <T> List<List<T>> partition(List<T> items, int size) {
+        int chunkSize = Math.max(1, size);
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += chunkSize) {
+            chunks.add(items.subList(i, Math.min(items.size(), i + chunkSize)));
+        }
+        return chunks;
+    }
+    
+    /**
+     * The provider a chunk is sent to in this round, and the one it is hedged to (null for the last in the chain)
+     */
+    private record Route(PriceProvider primary, PriceProvider secondary) {
+    }
+    
+    private record Answer(PriceProvider provider, Map<Asset, BigDecimal> prices) {
+    }
+}
@@ -0,0 +1,18 @@
+package com.investtracker.marketdata.service;
+
+import java.math.BigDecimal;
+
+/**
+ * A price as served to callers, with where it came from and how old it is.
+ *
+ * @param quoteCurrency currency the price was fetched in; differs from {@code currency} when converted
+ * @param asOfMillis wall-clock time the underlying quote was fetched
+ * @param stale whether the quote is past its soft TTL and being refreshed
+ */
+public record PriceQuote(BigDecimal price,
+                         String currency,
+                         String quoteCurrency,
+                         String source,
+                         long asOfMillis,
+                         boolean stale) {
+}
@@ -0,0 +1,183 @@
+package com.investtracker.marketdata.service;
+
+import com.investtracker.marketdata.config.MarketDataProperties;
+import com.investtracker.marketdata.entity.PendingPriceSnapshot;
+import com.investtracker.marketdata.repository.PriceSnapshotBatchRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind persistence for price snapshots.
+ * <p>
+ * Callers enqueue rows into a bounded queue and return immediately; a single writer thread flushes
+ * them as JDBC batch inserts whenever {@code batch-size} rows are waiting or {@code flush-interval}
+ * has passed since the oldest one arrived. When the queue is full the caller waits up to
+ * {@code enqueue-timeout}, after which the row is either dropped or written synchronously on the
+ * caller's thread, depending on {@code overflow}.
+ * <p>
+ * The writer stops in a late lifecycle phase, after the web server and the executors that produce
+ * snapshots, and drains the queue before shutdown completes. Rows enqueued once stopping has begun are
+ * written synchronously on the caller's thread instead of being left in the queue.
+ */
+@Slf4j
+@Component
+public class PriceSnapshotWriter implements SmartLifecycle {
+    private final PriceSnapshotBatchRepository batchRepository;
+    private final MarketDataProperties.WriteBehind config;
+    private final BlockingQueue<PendingPriceSnapshot> queue;
+    
+    private final Counter enqueued;
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter spilled;
+    private final Counter failed;
+    
+    private volatile boolean running;
+    private volatile boolean stopping;
+    private Thread writerThread;
+    
+    public PriceSnapshotWriter(PriceSnapshotBatchRepository batchRepository,
+                               MarketDataProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.batchRepository = batchRepository;
+        this.config = properties.getSnapshots().getWriteBehind();
+        this.queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+        
+        this.enqueued = counter(meterRegistry, "enqueued");
+        this.written = counter(meterRegistry, "written");
+        this.dropped = counter(meterRegistry, "dropped");
+        this.spilled = counter(meterRegistry, "spilled");
+        this.failed = counter(meterRegistry, "failed");
+        Gauge.builder("marketdata.snapshots.queue.size", queue, BlockingQueue::size)
+            .register(meterRegistry);
+    }
+    
+    public void enqueue(PendingPriceSnapshot snapshot) {
+        if (stopping) {
+            write(List.of(snapshot));
+            return;
+        }
+        try {
+            if (queue.offer(snapshot, config.getEnqueueTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                enqueued.increment();
+                // Stopping began after the check above; write the row here unless the final drain took it
+                if (stopping && queue.remove(snapshot)) {
+                    write(List.of(snapshot));
+                }
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        if (config.getOverflow() == MarketDataProperties.OverflowPolicy.SPILL) {
+            spilled.increment();
+            write(List.of(snapshot));
+        } else {
+            dropped.increment();
+            log.debug("Snapshot queue full, dropping price snapshot for asset {}", snapshot.assetId());
+        }
+    }
+    
+    @Override
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::runWriter, "price-snapshot-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+    
+    @Override
+    public void stop() {
+        stopping = true;
+        running = false;
+        try {
+            writerThread.join(config.getShutdownTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        // Rows that arrived while the writer thread was finishing, or after it gave up, are written here
+        List<PendingPriceSnapshot> batch = new ArrayList<>(config.getBatchSize());
+        while (queue.drainTo(batch, config.getBatchSize()) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+    
+    /**
+     * Below the task executors (default phase) and the web server (2048 under it), so it stops after both
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+    
+    private void runWriter() {
+        int batchSize = config.getBatchSize();
+        long flushIntervalNanos = config.getFlushInterval().toNanos();
+        List<PendingPriceSnapshot> batch = new ArrayList<>(batchSize);
+        
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingPriceSnapshot first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                
+                // Keep collecting until the batch is full or the oldest row has waited a full interval
+                long flushAt = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = flushAt - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    PendingPriceSnapshot next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                
+                write(batch);
+            } catch (InterruptedException e) {
+                // Shutdown is driven by the running flag; keep draining
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    private void write(List<PendingPriceSnapshot> batch) {
+        try {
+            batchRepository.insertAll(batch);
+            written.increment(batch.size());
+        } catch (Exception e) {
+            failed.increment(batch.size());
+            log.error("Error writing {} price snapshots: {}", batch.size(), e.getMessage());
+        }
+    }
+    
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("marketdata.snapshots.rows")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,68 @@
+package com.investtracker.marketdata.service;
+
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.marketdata.cache.PriceKey;
+import com.investtracker.marketdata.config.MarketDataProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides whether a freshly fetched price is worth a price_snapshots row.
+ * <p>
+ * A price is persisted when it moved by more than the asset type's {@code min-change} (relative to the
+ * last persisted price for the same asset and currency) or when {@code max-interval} has passed since
+ * that row, so flat prices still leave a heartbeat for charts. The last persisted price per key is kept
+ * in memory; after a restart the first fetch of each key is always persisted.
+ */
+@Component
+public class SnapshotThrottle {
+    private final MarketDataProperties.Throttle config;
+    private final Map<PriceKey, LastPersisted> lastPersisted = new ConcurrentHashMap<>();
+    private final Counter persisted;
+    private final Counter skipped;
+    
+    public SnapshotThrottle(MarketDataProperties properties, MeterRegistry meterRegistry) {
+        this.config = properties.getSnapshots().getThrottle();
+        this.persisted = Counter.builder("marketdata.snapshots.throttle")
+            .tag("decision", "persisted")
+            .register(meterRegistry);
+        this.skipped = Counter.builder("marketdata.snapshots.throttle")
+            .tag("decision", "skipped")
+            .register(meterRegistry);
+    }
+    
+    public boolean shouldPersist(PriceKey key, Asset.AssetType assetType, BigDecimal price, long nowMillis) {
+        MarketDataProperties.ThrottlePolicy policy = config.policyFor(assetType);
+        boolean[] persist = {false};
+        
+        lastPersisted.compute(key, (k, last) -> {
+            if (last == null
+                || nowMillis - last.atMillis() >= policy.getMaxInterval().toMillis()
+                || movedBeyond(last.price(), price, policy.getMinChange())) {
+                persist[0] = true;
+                return new LastPersisted(price, nowMillis);
+            }
+            return last;
+        });
+        
+        (persist[0] ? persisted : skipped).increment();
+        return persist[0];
+    }
+    
+    private static boolean movedBeyond(BigDecimal previous, BigDecimal current, BigDecimal minChange) {
+        if (previous.signum() == 0) {
+            return current.signum() != 0;
+        }
+        BigDecimal change = current.subtract(previous).abs().divide(previous.abs(), MathContext.DECIMAL64);
+        return change.compareTo(minChange) > 0;
+    }
+    
+    private record LastPersisted(BigDecimal price, long atMillis) {
+    }
+}
@@ -0,0 +1,198 @@
+package com.investtracker.marketdata.stream;
+
+import com.investtracker.alert.repository.PriceAlertRepository;
+import com.investtracker.alert.service.AlertService;
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.asset.repository.AssetRepository;
+import com.investtracker.marketdata.cache.PriceKey;
+import com.investtracker.marketdata.config.MarketDataProperties;
+import com.investtracker.marketdata.service.MarketDataService;
+import com.investtracker.position.repository.PositionRepository;
+import com.investtracker.websocket.PriceUpdateWebSocketHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Push path for prices: subscribes every {@link PriceStreamSource} to the held and alerted assets and
+ * feeds their ticks to the rest of the application without polling.
+ * <p>
+ * Feed threads only append to a per-(asset, currency) {@link TickRingBuffer}. A single dispatcher thread
+ * drains the buffers that received ticks every {@code marketdata.stream.dispatch-interval}: all ticks go
+ * into the candles, and the newest one updates the price cache, the last known price and snapshot
+ * throttle, is checked against active alerts and is pushed to websocket subscribers. Busy assets are
+ * thereby conflated to one update per interval. Metrics: {@code marketdata.stream.ticks} by source,
+ * {@code marketdata.stream.dropped} (ticks overwritten before dispatch) and {@code marketdata.stream.lag}
+ * (tick time to dispatch).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "marketdata.stream", name = "enabled", havingValue = "true")
+public class PriceStreamIngestor {
+    private final List<PriceStreamSource> sources;
+    private final PositionRepository positionRepository;
+    private final PriceAlertRepository priceAlertRepository;
+    private final AssetRepository assetRepository;
+    private final MarketDataService marketDataService;
+    private final AlertService alertService;
+    private final PriceUpdateWebSocketHandler priceUpdateWebSocketHandler;
+    private final MarketDataProperties.Stream config;
+    private final MeterRegistry meterRegistry;
+    
+    private final Map<PriceKey, TickRingBuffer> buffers = new ConcurrentHashMap<>();
+    private final Queue<PriceKey> pending = new ConcurrentLinkedQueue<>();
+    private final Map<PriceStreamSource, Disposable> subscriptions = new HashMap<>();
+    private Set<UUID> subscribedAssetIds = Set.of();
+    private ScheduledExecutorService dispatcher;
+    
+    private final Counter dropped;
+    private final Timer lag;
+    
+    public PriceStreamIngestor(List<PriceStreamSource> sources,
+                               PositionRepository positionRepository,
+                               PriceAlertRepository priceAlertRepository,
+                               AssetRepository assetRepository,
+                               MarketDataService marketDataService,
+                               AlertService alertService,
+                               PriceUpdateWebSocketHandler priceUpdateWebSocketHandler,
+                               MarketDataProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.sources = sources;
+        this.positionRepository = positionRepository;
+        this.priceAlertRepository = priceAlertRepository;
+        this.assetRepository = assetRepository;
+        this.marketDataService = marketDataService;
+        this.alertService = alertService;
+        this.priceUpdateWebSocketHandler = priceUpdateWebSocketHandler;
+        this.config = properties.getStream();
+        this.meterRegistry = meterRegistry;
+        
+        this.dropped = Counter.builder("marketdata.stream.dropped")
+            .description("Ticks overwritten in their ring buffer before they were dispatched")
+            .register(meterRegistry);
+        this.lag = Timer.builder("marketdata.stream.lag")
+            .description("Time from a tick being observed by its source to it being dispatched")
+            .register(meterRegistry);
+        Gauge.builder("marketdata.stream.buffers", buffers, Map::size).register(meterRegistry);
+    }
+    
+    @PostConstruct
+    public void start() {
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "price-stream-dispatch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = config.getDispatchInterval().toMillis();
+        dispatcher.scheduleWithFixedDelay(this::dispatch, interval, interval, TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public synchronized void stop() {
+        subscriptions.values().forEach(Disposable::dispose);
+        subscriptions.clear();
+        if (dispatcher != null) {
+            dispatcher.shutdownNow();
+        }
+    }
+    
+    /**
+     * Re-subscribes the sources when the set of held or alerted assets has changed
+     */
+    @Scheduled(fixedDelayString = "#{@marketDataProperties.stream.targetRefresh.toMillis()}")
+    public synchronized void refreshSubscriptions() {
+        if (sources.isEmpty()) {
+            return;
+        }
+        try {
+            Set<UUID> assetIds = new HashSet<>(positionRepository.findHeldAssetIds());
+            assetIds.addAll(priceAlertRepository.findWatchedAssetIds());
+            if (assetIds.equals(subscribedAssetIds)) {
+                return;
+            }
+            
+            List<Asset> assets = assetRepository.findAllById(assetIds);
+            for (PriceStreamSource source : sources) {
+                Disposable previous = subscriptions.remove(source);
+                if (previous != null) {
+                    previous.dispose();
+                }
+                List<Asset> supported = assets.stream()
+                    .filter(asset -> source.supports(asset.getAssetType()))
+                    .toList();
+                if (!supported.isEmpty()) {
+                    subscriptions.put(source, subscribe(source, supported));
+                }
+            }
+            buffers.keySet().removeIf(key -> !assetIds.contains(key.assetId()));
+            subscribedAssetIds = assetIds;
+            log.info("Streaming prices for {} assets from {} sources", assets.size(), subscriptions.size());
+        } catch (Exception e) {
+            log.error("Error refreshing price stream subscriptions: {}", e.getMessage(), e);
+        }
+    }
+    
+    private Disposable subscribe(PriceStreamSource source, List<Asset> assets) {
+        Counter ticks = Counter.builder("marketdata.stream.ticks").tag("source", source.getName()).register(meterRegistry);
+        return source.ticks(assets)
+            .doOnError(e -> log.warn("Price stream {} failed: {}; reconnecting", source.getName(), e.getMessage()))
+            .retryWhen(Retry.backoff(Long.MAX_VALUE, config.getReconnectMinBackoff())
+                .maxBackoff(config.getReconnectMaxBackoff()))
+            .subscribe(tick -> {
+                ticks.increment();
+                publish(tick);
+            });
+    }
+    
+    void publish(PriceTick tick) {
+        PriceKey key = PriceKey.of(tick.asset(), tick.currency());
+        TickRingBuffer buffer = buffers.computeIfAbsent(key, k -> new TickRingBuffer(config.getBufferCapacity()));
+        buffer.publish(tick);
+        if (buffer.markPending()) {
+            pending.add(key);
+        }
+    }
+    
+    void dispatch() {
+        long now = System.currentTimeMillis();
+        for (int i = pending.size(); i > 0; i--) {
+            PriceKey key = pending.poll();
+            TickRingBuffer buffer = key == null ? null : buffers.get(key);
+            if (buffer == null) {
+                continue;
+            }
+            
+            List<PriceTick> ticks = new ArrayList<>();
+            dropped.increment(buffer.drain(ticks::add));
+            if (ticks.isEmpty()) {
+                continue;
+            }
+            PriceTick latest = ticks.get(ticks.size() - 1);
+            lag.record(Duration.ofMillis(Math.max(0, now - latest.timestampMillis())));
+            try {
+                marketDataService.acceptStreamedTicks(latest.asset(), key.currency(), ticks);
+                alertService.checkAlerts(key.assetId(), key.currency(), latest.price());
+                priceUpdateWebSocketHandler.sendPriceUpdate(key.assetId(), latest.price(), key.currency());
+            } catch (Exception e) {
+                log.error("Error dispatching streamed price for {}: {}", latest.asset().getSymbol(), e.getMessage(), e);
+            }
+        }
+    }
+}
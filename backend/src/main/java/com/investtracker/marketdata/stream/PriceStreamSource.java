@@ -0,0 +1,22 @@
+package com.investtracker.marketdata.stream;
+
+import com.investtracker.asset.entity.Asset;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+
+/**
+ * A feed that pushes prices as they change, such as an exchange websocket. The push counterpart of
+ * {@link com.investtracker.marketdata.provider.PriceProvider}.
+ */
+public interface PriceStreamSource {
+    /**
+     * Ticks for the given assets, in each asset's quote currency, until the subscription is cancelled.
+     * The flux should signal an error when the connection is lost; it is then re-subscribed with backoff.
+     */
+    Flux<PriceTick> ticks(Collection<Asset> assets);
+    
+    boolean supports(Asset.AssetType assetType);
+    
+    String getName();
+}
@@ -0,0 +1,11 @@
+package com.investtracker.marketdata.stream;
+
+import com.investtracker.asset.entity.Asset;
+
+import java.math.BigDecimal;
+
+/**
+ * One price pushed by a {@link PriceStreamSource}, stamped with the time the source observed it
+ */
+public record PriceTick(Asset asset, String currency, BigDecimal price, String source, long timestampMillis) {
+}
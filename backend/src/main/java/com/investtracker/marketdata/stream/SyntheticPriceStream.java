@@ -0,0 +1,52 @@
+package com.investtracker.marketdata.stream;
+
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.marketdata.cache.PriceKey;
+import com.investtracker.marketdata.config.MarketDataProperties;
+import com.investtracker.marketdata.provider.SyntheticPriceProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Local stand-in for an exchange feed: pushes the {@link SyntheticPriceProvider}'s price of every
+ * subscribed asset each time its random walk steps
+ */
+@Component
+@ConditionalOnProperty(prefix = "marketdata.synthetic", name = "enabled", havingValue = "true")
+public class SyntheticPriceStream implements PriceStreamSource {
+    private final SyntheticPriceProvider syntheticPriceProvider;
+    private final Duration interval;
+    
+    public SyntheticPriceStream(SyntheticPriceProvider syntheticPriceProvider, MarketDataProperties properties) {
+        this.syntheticPriceProvider = syntheticPriceProvider;
+        this.interval = properties.getSynthetic().getStep();
+    }
+    
+    @Override
+    public Flux<PriceTick> ticks(Collection<Asset> assets) {
+        List<Asset> subscribed = List.copyOf(assets);
+        return Flux.interval(interval)
+            .concatMapIterable(step -> {
+                long now = System.currentTimeMillis();
+                return subscribed.stream()
+                    .map(asset -> new PriceTick(asset, PriceKey.quoteCurrency(asset),
+                        syntheticPriceProvider.priceNow(asset), getName(), now))
+                    .toList();
+            });
+    }
+    
+    @Override
+    public boolean supports(Asset.AssetType assetType) {
+        return true;
+    }
+    
+    @Override
+    public String getName() {
+        return "SyntheticStream";
+    }
+}
@@ -0,0 +1,80 @@
+package com.investtracker.marketdata.stream;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Fixed-size ring of the most recent ticks of one (asset, currency), written by any number of feed
+ * threads without locks and drained by a single consumer.
+ * <p>
+ * Producers claim a sequence number and write the tick into its slot; a slow consumer is lapped rather
+ * than blocking a producer, and the ticks it missed are reported by {@link #drain}.
+ */
+public class TickRingBuffer {
+    private final AtomicReferenceArray<Slot> slots;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicBoolean pending = new AtomicBoolean();
+    
+    // Only touched by the consumer
+    private long readCursor;
+    
+    public TickRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+    
+    public void publish(PriceTick tick) {
+        long sequence = claimed.getAndIncrement();
+        slots.set((int) (sequence & mask), new Slot(sequence, tick));
+    }
+    
+    /**
+     * Flags the buffer as having undrained ticks; true if it was not flagged yet, i.e. the caller should
+     * schedule a drain
+     */
+    public boolean markPending() {
+        return !pending.get() && pending.compareAndSet(false, true);
+    }
+    
+    /**
+     * Hands every tick published since the last drain to the consumer, oldest first, and clears the pending
+     * flag. A slot claimed but not yet written ends the drain; its producer flags the buffer again once
+     * written. Single consumer only.
+     *
+     * @return the number of ticks overwritten before they could be drained
+     */
+    public long drain(Consumer<PriceTick> consumer) {
+        pending.set(false);
+        long end = claimed.get();
+        long lost = 0;
+        if (end - readCursor > slots.length()) {
+            lost = end - slots.length() - readCursor;
+            readCursor = end - slots.length();
+        }
+        while (readCursor < end) {
+            Slot slot = slots.get((int) (readCursor & mask));
+            if (slot == null || slot.sequence() < readCursor) {
+                break;
+            }
+            if (slot.sequence() == readCursor) {
+                consumer.accept(slot.tick());
+            } else {
+                // Overwritten by a producer that lapped us while draining
+                lost++;
+            }
+            readCursor++;
+        }
+        return lost;
+    }
+    
+    public int capacity() {
+        return slots.length();
+    }
+    
+    private record Slot(long sequence, PriceTick tick) {
+    }
+}
@@ -29,7 +29,7 @@ public class EmailService {
             message.setFrom(fromEmail);
             message.setTo(user.getEmail());
             message.setSubject(String.format("Price Alert: %s %s $%s", 
-                alert.getAssetSymbol(), 
+                alert.getAsset().getSymbol(), 
                 alert.getConditionType() == PriceAlert.ConditionType.BELOW ? "dropped below" : "rose above",
                 alert.getTargetPrice()));
             
@@ -44,9 +44,9 @@ public class EmailService {
                 "Best regards,\n" +
                 "Investment Tracker Team",
                 user.getUsername(),
-                alert.getAssetSymbol(),
-                alert.getAssetSymbol(),
-                alert.getAssetName(),
+                alert.getAsset().getSymbol(),
+                alert.getAsset().getSymbol(),
+                alert.getAsset().getName(),
                 alert.getTargetPrice(),
                 currentPrice,
                 alert.getConditionType()
@@ -1,5 +1,6 @@
 package com.investtracker.portfolio.service;
 
+import com.investtracker.analytics.service.PortfolioSummaryCache;
 import com.investtracker.portfolio.dto.PortfolioRequest;
 import com.investtracker.portfolio.dto.PortfolioResponse;
 import com.investtracker.portfolio.entity.Portfolio;
@@ -18,6 +19,7 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class PortfolioService {
     private final PortfolioRepository portfolioRepository;
+    private final PortfolioSummaryCache portfolioSummaryCache;
     
     public List<PortfolioResponse> getUserPortfolios(UUID userId) {
         return portfolioRepository.findByUserId(userId)
@@ -51,7 +53,9 @@ public class PortfolioService {
                 portfolio.setDescription(request.getDescription());
                 portfolio.setBaseCurrency(request.getBaseCurrency());
                 portfolio.setRiskProfile(request.getRiskProfile());
-                return toResponse(portfolioRepository.save(portfolio));
+                Portfolio saved = portfolioRepository.save(portfolio);
+                portfolioSummaryCache.evict(portfolioId);
+                return toResponse(saved);
             });
     }
     
@@ -59,6 +63,7 @@ public class PortfolioService {
     public boolean deletePortfolio(UUID portfolioId, UUID userId) {
         if (portfolioRepository.existsByIdAndUserId(portfolioId, userId)) {
             portfolioRepository.deleteById(portfolioId);
+            portfolioSummaryCache.evict(portfolioId);
             return true;
         }
         return false;
@@ -0,0 +1,98 @@
+package com.investtracker.position.engine;
+
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.transaction.entity.Transaction;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+
+/**
+ * Average-cost accumulator for one asset, fed transactions in date order. Quantities and amounts are
+ * rounded to {@link #SCALE} after every step, the scale of the positions table.
+ * <p>
+ * After each disposal the cost basis and realized P&L of that transaction alone are kept in
+ * {@link #getLastCostBasis()} and {@link #getLastRealizedPnl()}, so callers that report per sale need no
+ * bookkeeping of their own. Instances are owned by a {@link HoldingsEngine} and reused after
+ * {@link HoldingsEngine#reset()}.
+ */
+@Getter
+public final class Holding {
+    public static final int SCALE = 8;
+    
+    private Asset asset;
+    private BigDecimal quantity = BigDecimal.ZERO;
+    private BigDecimal totalCost = BigDecimal.ZERO;
+    private BigDecimal averagePrice = BigDecimal.ZERO;
+    private BigDecimal realizedPnl = BigDecimal.ZERO;
+    private LocalDateTime lastTransactionDate;
+    private BigDecimal lastCostBasis = BigDecimal.ZERO;
+    private BigDecimal lastRealizedPnl = BigDecimal.ZERO;
+    
+    public Holding() {
+    }
+    
+    Holding(Asset asset) {
+        this.asset = asset;
+    }
+    
+    /**
+     * Continues from a previously stored state, e.g. a persisted position
+     */
+    public void restore(BigDecimal quantity, BigDecimal totalCost, BigDecimal averagePrice,
+                        BigDecimal realizedPnl, LocalDateTime lastTransactionDate) {
+        this.quantity = quantity;
+        this.totalCost = totalCost;
+        this.averagePrice = averagePrice;
+        this.realizedPnl = realizedPnl;
+        this.lastTransactionDate = lastTransactionDate;
+    }
+    
+    /**
+     * Applies the next transaction in date order. A rejected transaction leaves the holding unchanged.
+     *
+     * @throws IllegalStateException if the transaction removes more than is held
+     */
+    public void apply(Transaction tx) {
+        BigDecimal txQuantity = tx.getQuantity();
+        BigDecimal fee = tx.getFee() != null ? tx.getFee() : BigDecimal.ZERO;
+        switch (tx.getTransactionType()) {
+            case BUY, DEPOSIT, TRANSFER_IN -> {
+                quantity = scaled(quantity.add(txQuantity));
+                totalCost = scaled(totalCost.add(txQuantity.multiply(tx.getPrice()).add(fee)));
+                if (quantity.signum() > 0) {
+                    averagePrice = totalCost.divide(quantity, SCALE, RoundingMode.HALF_UP);
+                }
+            }
+            case SELL, WITHDRAW, TRANSFER_OUT -> {
+                if (quantity.compareTo(txQuantity) < 0) {
+                    throw new IllegalStateException("Insufficient holdings for transaction");
+                }
+                lastCostBasis = scaled(averagePrice.multiply(txQuantity));
+                lastRealizedPnl = scaled(tx.getPrice().multiply(txQuantity).subtract(fee)).subtract(lastCostBasis);
+                realizedPnl = realizedPnl.add(lastRealizedPnl);
+                quantity = scaled(quantity.subtract(txQuantity));
+                totalCost = totalCost.subtract(lastCostBasis);
+            }
+        }
+        if (lastTransactionDate == null || tx.getTransactionDate().isAfter(lastTransactionDate)) {
+            lastTransactionDate = tx.getTransactionDate();
+        }
+    }
+    
+    void reset(Asset asset) {
+        this.asset = asset;
+        quantity = BigDecimal.ZERO;
+        totalCost = BigDecimal.ZERO;
+        averagePrice = BigDecimal.ZERO;
+        realizedPnl = BigDecimal.ZERO;
+        lastTransactionDate = null;
+        lastCostBasis = BigDecimal.ZERO;
+        lastRealizedPnl = BigDecimal.ZERO;
+    }
+    
+    private static BigDecimal scaled(BigDecimal value) {
+        return value.setScale(SCALE, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,81 @@
+package com.investtracker.position.engine;
+
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.transaction.entity.Transaction;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Replays a ledger into per-asset {@link Holding}s in a single pass. Holdings are found by asset id in a
+ * hash index and kept in first-seen order in an array, so callers iterate them with {@link #size()} and
+ * {@link #get(int)} instead of building collections. {@link #reset()} keeps the holdings for the next
+ * replay, so an engine used for many portfolios allocates one accumulator per distinct asset slot.
+ * <p>
+ * Not thread-safe; create one per replay or per worker.
+ */
+public final class HoldingsEngine {
+    private final Map<UUID, Holding> byAssetId = new HashMap<>();
+    private Holding[] holdings = new Holding[16];
+    private int size;
+    
+    /**
+     * Applies the next transaction of the ledger, which must be fed in ascending date order
+     *
+     * @return the holding the transaction was applied to
+     * @throws IllegalStateException if the transaction removes more than is held; the holding is unchanged
+     */
+    public Holding apply(Transaction tx) {
+        Holding holding = holdingFor(tx.getAsset());
+        holding.apply(tx);
+        return holding;
+    }
+    
+    public Holding holdingFor(Asset asset) {
+        Holding holding = byAssetId.get(asset.getId());
+        if (holding != null) {
+            return holding;
+        }
+        if (size == holdings.length) {
+            holdings = Arrays.copyOf(holdings, size * 2);
+        }
+        holding = holdings[size];
+        if (holding == null) {
+            holding = new Holding(asset);
+            holdings[size] = holding;
+        } else {
+            holding.reset(asset);
+        }
+        size++;
+        byAssetId.put(asset.getId(), holding);
+        return holding;
+    }
+    
+    public Holding find(UUID assetId) {
+        return byAssetId.get(assetId);
+    }
+    
+    /**
+     * Number of assets seen since the last reset
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * The holding of the {@code index}-th asset seen, {@code 0 <= index < size()}
+     */
+    public Holding get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return holdings[index];
+    }
+    
+    public void reset() {
+        byAssetId.clear();
+        size = 0;
+    }
+}
@@ -0,0 +1,94 @@
+package com.investtracker.position.entity;
+
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.portfolio.entity.Portfolio;
+import com.investtracker.position.engine.Holding;
+import com.investtracker.transaction.entity.Transaction;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Running holding of one asset in one portfolio, kept in step with the ledger by
+ * {@link com.investtracker.position.service.PositionService}. The arithmetic is {@link Holding}'s, which
+ * rounds to the column scale after every step, so a position updated one transaction at a time matches
+ * one rebuilt from the whole ledger.
+ */
+@Entity
+@Table(name = "positions")
+@Data
+@NoArgsConstructor
+public class Position {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "portfolio_id", nullable = false)
+    private Portfolio portfolio;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "asset_id", nullable = false)
+    private Asset asset;
+
+    @Column(nullable = false, precision = 20, scale = 8)
+    private BigDecimal quantity = BigDecimal.ZERO;
+
+    @Column(name = "total_cost", nullable = false, precision = 20, scale = 8)
+    private BigDecimal totalCost = BigDecimal.ZERO;
+
+    @Column(name = "average_price", nullable = false, precision = 20, scale = 8)
+    private BigDecimal averagePrice = BigDecimal.ZERO;
+
+    @Column(name = "realized_pnl", nullable = false, precision = 20, scale = 8)
+    private BigDecimal realizedPnl = BigDecimal.ZERO;
+
+    @Column(name = "last_transaction_date")
+    private LocalDateTime lastTransactionDate;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public Position(Portfolio portfolio, Asset asset) {
+        this.portfolio = portfolio;
+        this.asset = asset;
+    }
+
+    /**
+     * Applies the next transaction in date order, at average cost
+     *
+     * @throws IllegalStateException if the transaction removes more than is held
+     */
+    public void apply(Transaction tx) {
+        Holding holding = new Holding();
+        holding.restore(quantity, totalCost, averagePrice, realizedPnl, lastTransactionDate);
+        holding.apply(tx);
+        copyFrom(holding);
+    }
+
+    public void copyFrom(Holding holding) {
+        quantity = holding.getQuantity();
+        totalCost = holding.getTotalCost();
+        averagePrice = holding.getAveragePrice();
+        realizedPnl = holding.getRealizedPnl();
+        lastTransactionDate = holding.getLastTransactionDate();
+    }
+
+    public void reset() {
+        quantity = BigDecimal.ZERO;
+        totalCost = BigDecimal.ZERO;
+        averagePrice = BigDecimal.ZERO;
+        realizedPnl = BigDecimal.ZERO;
+        lastTransactionDate = null;
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,54 @@
+package com.investtracker.position.repository;
+
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.position.entity.Position;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface PositionRepository extends JpaRepository<Position, UUID> {
+    /**
+     * Locks the row for the rest of the transaction, so concurrent ledger changes to one holding apply in turn
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Position p WHERE p.portfolio.id = :portfolioId AND p.asset.id = :assetId")
+    Optional<Position> findForUpdate(@Param("portfolioId") UUID portfolioId, @Param("assetId") UUID assetId);
+    
+    /**
+     * Open positions of the portfolio with their assets
+     */
+    @Query("SELECT p FROM Position p JOIN FETCH p.asset WHERE p.portfolio.id = :portfolioId AND p.quantity > 0")
+    List<Position> findHeldByPortfolioId(@Param("portfolioId") UUID portfolioId);
+    
+    /**
+     * Open positions of several portfolios with their assets
+     */
+    @Query("SELECT p FROM Position p JOIN FETCH p.asset WHERE p.portfolio.id IN :portfolioIds AND p.quantity > 0")
+    List<Position> findHeldByPortfolioIdIn(@Param("portfolioIds") Collection<UUID> portfolioIds);
+    
+    /**
+     * Assets the portfolio currently holds
+     */
+    @Query("SELECT p.asset FROM Position p WHERE p.portfolio.id = :portfolioId AND p.quantity > 0")
+    List<Asset> findHeldAssetsByPortfolioId(@Param("portfolioId") UUID portfolioId);
+    
+    /**
+     * One asset id per open position, so an id repeats once per holding portfolio
+     */
+    @Query("SELECT p.asset.id FROM Position p WHERE p.quantity > 0")
+    List<UUID> findHeldAssetIds();
+    
+    @Modifying
+    @Query("DELETE FROM Position p WHERE p.portfolio.id = :portfolioId")
+    void deleteByPortfolioId(@Param("portfolioId") UUID portfolioId);
+}
@@ -0,0 +1,29 @@
+package com.investtracker.position.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.jmx.annotation.JmxEndpoint;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * {@code org.springframework.boot:type=Endpoint,name=Positions} {@code rebuild}: rebuilds positions from the
+ * transaction ledger, for one portfolio when {@code portfolioId} is given and for all portfolios otherwise.
+ * Operator-only and JMX-only: a web exposure would let any signed-in user rebuild every portfolio.
+ */
+@Component
+@JmxEndpoint(id = "positions")
+@RequiredArgsConstructor
+public class PositionEndpoint {
+    private final PositionService positionService;
+    private final PositionRebuilder positionRebuilder;
+    
+    @WriteOperation
+    public Map<String, Integer> rebuild(@Nullable UUID portfolioId) {
+        int positions = portfolioId != null ? positionService.rebuild(portfolioId) : positionRebuilder.rebuildAll();
+        return Map.of("positions", positions);
+    }
+}
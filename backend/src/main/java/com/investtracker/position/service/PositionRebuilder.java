@@ -0,0 +1,50 @@
+package com.investtracker.position.service;
+
+import com.investtracker.portfolio.entity.Portfolio;
+import com.investtracker.portfolio.repository.PortfolioRepository;
+import com.investtracker.position.repository.PositionRepository;
+import com.investtracker.transaction.repository.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recomputes positions from the ledger, one transaction per portfolio. Runs on start-up when the positions
+ * table is empty but transactions exist (first start after the table was added) and on demand from
+ * {@link PositionEndpoint}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PositionRebuilder {
+    private final PositionService positionService;
+    private final PositionRepository positionRepository;
+    private final PortfolioRepository portfolioRepository;
+    private final TransactionRepository transactionRepository;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfMissing() {
+        try {
+            if (positionRepository.count() == 0 && transactionRepository.count() > 0) {
+                log.info("Positions table is empty; rebuilding positions from the transaction ledger");
+                rebuildAll();
+            }
+        } catch (Exception e) {
+            log.error("Error rebuilding positions: {}", e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * @return the number of positions written
+     */
+    public int rebuildAll() {
+        int positions = 0;
+        for (Portfolio portfolio : portfolioRepository.findAll()) {
+            positions += positionService.rebuild(portfolio.getId());
+        }
+        log.info("Rebuilt {} positions", positions);
+        return positions;
+    }
+}
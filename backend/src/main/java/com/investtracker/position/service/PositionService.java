@@ -0,0 +1,125 @@
+package com.investtracker.position.service;
+
+import com.investtracker.analytics.service.PortfolioSummaryCache;
+import com.investtracker.position.engine.Holding;
+import com.investtracker.position.engine.HoldingsEngine;
+import com.investtracker.position.entity.Position;
+import com.investtracker.position.repository.PositionRepository;
+import com.investtracker.transaction.entity.Transaction;
+import com.investtracker.transaction.repository.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Keeps the positions table in step with the transaction ledger. Ledger changes are applied within the
+ * caller's transaction, so a change that would leave a holding negative is rejected together with it.
+ * Every change evicts the portfolio's cached summary.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PositionService {
+    private final PositionRepository positionRepository;
+    private final TransactionRepository transactionRepository;
+    private final PortfolioSummaryCache portfolioSummaryCache;
+    
+    /**
+     * Applies a newly recorded transaction. One dated before the position's latest transaction changes the
+     * average cost of everything after it, so that holding is recomputed from its ledger instead.
+     */
+    @Transactional
+    public void onTransactionAdded(Transaction tx) {
+        UUID portfolioId = tx.getPortfolio().getId();
+        UUID assetId = tx.getAsset().getId();
+        portfolioSummaryCache.evict(portfolioId);
+        Optional<Position> existing = positionRepository.findForUpdate(portfolioId, assetId);
+        if (existing.isPresent() && existing.get().getLastTransactionDate() != null
+            && tx.getTransactionDate().isBefore(existing.get().getLastTransactionDate())) {
+            recompute(portfolioId, assetId);
+            return;
+        }
+        
+        Position position = existing.orElseGet(() -> new Position(tx.getPortfolio(), tx.getAsset()));
+        apply(position, tx);
+        positionRepository.save(position);
+    }
+    
+    /**
+     * Recomputes the holding of one asset in one portfolio from its ledger, after a transaction was
+     * changed or removed
+     */
+    @Transactional
+    public void recompute(UUID portfolioId, UUID assetId) {
+        portfolioSummaryCache.evict(portfolioId);
+        List<Transaction> ledger = transactionRepository.findByPortfolioIdAndAssetId(portfolioId, assetId);
+        Optional<Position> existing = positionRepository.findForUpdate(portfolioId, assetId);
+        if (ledger.isEmpty()) {
+            existing.ifPresent(positionRepository::delete);
+            return;
+        }
+        
+        HoldingsEngine engine = new HoldingsEngine();
+        for (Transaction tx : ledger) {
+            try {
+                engine.apply(tx);
+            } catch (IllegalStateException e) {
+                throw insufficientHoldings(tx);
+            }
+        }
+        Position position = existing.orElseGet(() -> new Position(ledger.get(0).getPortfolio(), ledger.get(0).getAsset()));
+        position.copyFrom(engine.get(0));
+        positionRepository.save(position);
+    }
+    
+    /**
+     * Replaces every position of the portfolio with one replayed from the ledger. Unlike the incremental
+     * path this accepts a ledger that already oversells: the offending transactions are logged and skipped.
+     *
+     * @return the number of positions written
+     */
+    @Transactional
+    public int rebuild(UUID portfolioId) {
+        portfolioSummaryCache.evict(portfolioId);
+        positionRepository.deleteByPortfolioId(portfolioId);
+        List<Transaction> ledger = transactionRepository.findByPortfolioIdOrderByTransactionDateAsc(portfolioId);
+        HoldingsEngine engine = new HoldingsEngine();
+        for (Transaction tx : ledger) {
+            try {
+                engine.apply(tx);
+            } catch (IllegalStateException e) {
+                log.warn("Skipping transaction {} while rebuilding positions of portfolio {}: {}",
+                    tx.getId(), portfolioId, e.getMessage());
+            }
+        }
+        
+        List<Position> positions = new ArrayList<>(engine.size());
+        for (int i = 0; i < engine.size(); i++) {
+            Holding holding = engine.get(i);
+            Position position = new Position(ledger.get(0).getPortfolio(), holding.getAsset());
+            position.copyFrom(holding);
+            positions.add(position);
+        }
+        positionRepository.saveAll(positions);
+        return positions.size();
+    }
+    
+    private static void apply(Position position, Transaction tx) {
+        try {
+            position.apply(tx);
+        } catch (IllegalStateException e) {
+            throw insufficientHoldings(tx);
+        }
+    }
+    
+    private static IllegalArgumentException insufficientHoldings(Transaction tx) {
+        return new IllegalArgumentException("Insufficient " + tx.getAsset().getSymbol()
+            + " holdings for " + tx.getTransactionType() + " of " + tx.getQuantity() + " on " + tx.getTransactionDate());
+    }
+}
@@ -4,6 +4,7 @@ import com.investtracker.analytics.dto.PortfolioSummaryResponse;
 import com.investtracker.analytics.entity.PortfolioSnapshot;
 import com.investtracker.analytics.repository.PortfolioSnapshotRepository;
 import com.investtracker.analytics.service.AnalyticsService;
+import com.investtracker.common.math.Fixed8;
 import com.investtracker.portfolio.entity.Portfolio;
 import com.investtracker.portfolio.service.PortfolioService;
 import com.investtracker.reports.dto.PerformanceReportResponse;
@@ -75,40 +76,37 @@ public class PerformanceReportService {
         
         // Calculate daily performance
         List<PerformanceReportResponse.DailyPerformance> dailyPerformance = new ArrayList<>();
-        BigDecimal bestDayReturn = BigDecimal.ZERO;
-        BigDecimal worstDayReturn = BigDecimal.ZERO;
-        List<BigDecimal> dailyReturns = new ArrayList<>();
+        long bestDayReturn = 0;
+        long worstDayReturn = 0;
+        long[] dailyReturns = new long[snapshots.size() - 1];
         
+        BigDecimal prevValue = startingValue;
         for (int i = 1; i < snapshots.size(); i++) {
-            PortfolioSnapshot prev = snapshots.get(i - 1);
             PortfolioSnapshot curr = snapshots.get(i);
+            BigDecimal currValue = curr.getTotalValue();
             
-            BigDecimal returnAmount = curr.getTotalValue().subtract(prev.getTotalValue());
-            BigDecimal returnPercent = prev.getTotalValue().compareTo(BigDecimal.ZERO) > 0
-                ? returnAmount.divide(prev.getTotalValue(), 4, RoundingMode.HALF_UP).multiply(new BigDecimal("100"))
-                : BigDecimal.ZERO;
+            // Totals can exceed the Fixed8 range; only the return ratio is kept as a long
+            BigDecimal returnAmount = currValue.subtract(prevValue);
+            long returnPercent = prevValue.signum() > 0
+                ? Math.multiplyExact(Fixed8.relativeChange(prevValue, currValue, 4), 100)
+                : 0;
             
-            dailyReturns.add(returnPercent);
-            if (returnPercent.compareTo(bestDayReturn) > 0) {
-                bestDayReturn = returnPercent;
-            }
-            if (returnPercent.compareTo(worstDayReturn) < 0) {
-                worstDayReturn = returnPercent;
-            }
+            dailyReturns[i - 1] = returnPercent;
+            bestDayReturn = Math.max(bestDayReturn, returnPercent);
+            worstDayReturn = Math.min(worstDayReturn, returnPercent);
             
             dailyPerformance.add(new PerformanceReportResponse.DailyPerformance(
                 curr.getSnapshotDate().toLocalDate(),
                 curr.getTotalValue(),
                 returnAmount,
-                returnPercent
+                Fixed8.toBigDecimal(returnPercent, 4)
             ));
+            prevValue = currValue;
         }
         
         // Calculate average daily return
-        BigDecimal averageDailyReturn = dailyReturns.isEmpty() ? BigDecimal.ZERO
-            : dailyReturns.stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(new BigDecimal(dailyReturns.size()), 4, RoundingMode.HALF_UP);
+        BigDecimal averageDailyReturn = dailyReturns.length == 0 ? BigDecimal.ZERO
+            : Fixed8.toBigDecimal(Fixed8.divide(sum(dailyReturns), Fixed8.of(dailyReturns.length), 4), 4);
         
         // Calculate volatility
         BigDecimal volatility = calculateVolatility(dailyReturns);
@@ -130,8 +128,8 @@ public class PerformanceReportService {
             endingValue,
             totalReturn,
             totalReturnPercent,
-            bestDayReturn,
-            worstDayReturn,
+            Fixed8.toBigDecimal(bestDayReturn, 4),
+            Fixed8.toBigDecimal(worstDayReturn, 4),
             averageDailyReturn,
             volatility,
             sharpeRatio,
@@ -140,22 +138,22 @@ public class PerformanceReportService {
         );
     }
     
-    private BigDecimal calculateVolatility(List<BigDecimal> returns) {
-        if (returns.size() < 2) {
+    private BigDecimal calculateVolatility(long[] returns) {
+        if (returns.length < 2) {
             return BigDecimal.ZERO;
         }
         
-        BigDecimal mean = returns.stream()
-            .reduce(BigDecimal.ZERO, BigDecimal::add)
-            .divide(new BigDecimal(returns.size()), 8, RoundingMode.HALF_UP);
+        long variance = Fixed8.variance(returns, returns.length, Fixed8.mean(returns, returns.length));
         
-        BigDecimal variance = returns.stream()
-            .map(r -> r.subtract(mean).pow(2))
-            .reduce(BigDecimal.ZERO, BigDecimal::add)
-            .divide(new BigDecimal(returns.size()), 8, RoundingMode.HALF_UP);
-        
-        double stdDev = Math.sqrt(variance.doubleValue());
+        double stdDev = Math.sqrt(Fixed8.toDouble(variance));
         return BigDecimal.valueOf(stdDev);
     }
+    
+    private static long sum(long[] values) {
+        long sum = 0;
+        for (long value : values) {
+            sum = Fixed8.add(sum, value);
+        }
+        return sum;
+    }
 }
-
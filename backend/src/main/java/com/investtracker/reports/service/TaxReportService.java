@@ -5,18 +5,20 @@ import com.investtracker.analytics.dto.PortfolioSummaryResponse;
 import com.investtracker.analytics.service.AnalyticsService;
 import com.investtracker.portfolio.entity.Portfolio;
 import com.investtracker.portfolio.service.PortfolioService;
+import com.investtracker.position.engine.Holding;
+import com.investtracker.position.engine.HoldingsEngine;
 import com.investtracker.reports.dto.TaxReportResponse;
 import com.investtracker.transaction.entity.Transaction;
 import com.investtracker.transaction.repository.TransactionRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class TaxReportService {
@@ -32,65 +34,51 @@ public class TaxReportService {
             throw new IllegalArgumentException("Portfolio access denied");
         }
         
-        // Get all transactions in date range
-        List<Transaction> transactions = transactionRepository.findByPortfolioIdOrderByTransactionDateDesc(portfolioId);
+        // Cost basis depends on every earlier acquisition, so the whole ledger is replayed and only the
+        // sales inside the range are reported
+        List<Transaction> transactions = transactionRepository.findByPortfolioIdOrderByTransactionDateAsc(portfolioId);
         
-        // Filter by date range
-        if (startDate != null || endDate != null) {
-            transactions = transactions.stream()
-                .filter(tx -> {
-                    LocalDate txDate = tx.getTransactionDate().toLocalDate();
-                    if (startDate != null && txDate.isBefore(startDate)) {
-                        return false;
-                    }
-                    if (endDate != null && txDate.isAfter(endDate)) {
-                        return false;
-                    }
-                    return true;
-                })
-                .collect(Collectors.toList());
-        }
-        
-        // Calculate realized gains/losses from SELL transactions
         List<TaxReportResponse.RealizedTransaction> realizedTransactions = new ArrayList<>();
         Map<String, BigDecimal> gainsByAsset = new HashMap<>();
         Map<String, BigDecimal> lossesByAsset = new HashMap<>();
         BigDecimal totalRealizedGains = BigDecimal.ZERO;
         BigDecimal totalRealizedLosses = BigDecimal.ZERO;
         
-        // Calculate holdings to get cost basis
-        Map<UUID, HoldingCalculation> holdings = calculateHoldings(transactions);
-        
+        HoldingsEngine engine = new HoldingsEngine();
         for (Transaction tx : transactions) {
-            if (tx.getTransactionType() == Transaction.TransactionType.SELL) {
-                UUID assetId = tx.getAsset().getId();
-                HoldingCalculation holding = holdings.get(assetId);
-                
-                if (holding != null && holding.averagePrice.compareTo(BigDecimal.ZERO) > 0) {
-                    BigDecimal costBasis = holding.averagePrice.multiply(tx.getQuantity());
-                    BigDecimal proceeds = tx.getPrice().multiply(tx.getQuantity()).subtract(tx.getFee() != null ? tx.getFee() : BigDecimal.ZERO);
-                    BigDecimal realizedPnL = proceeds.subtract(costBasis);
-                    
-                    TaxReportResponse.RealizedTransaction realizedTx = new TaxReportResponse.RealizedTransaction(
-                        tx.getAsset().getSymbol(),
-                        tx.getAsset().getName(),
-                        tx.getTransactionDate().toLocalDate(),
-                        tx.getQuantity(),
-                        tx.getPrice(),
-                        costBasis,
-                        realizedPnL.compareTo(BigDecimal.ZERO) > 0 ? realizedPnL : BigDecimal.ZERO,
-                        realizedPnL.compareTo(BigDecimal.ZERO) < 0 ? realizedPnL.abs() : BigDecimal.ZERO
-                    );
-                    realizedTransactions.add(realizedTx);
-                    
-                    if (realizedPnL.compareTo(BigDecimal.ZERO) > 0) {
-                        totalRealizedGains = totalRealizedGains.add(realizedPnL);
-                        gainsByAsset.merge(tx.getAsset().getSymbol(), realizedPnL, BigDecimal::add);
-                    } else {
-                        totalRealizedLosses = totalRealizedLosses.add(realizedPnL.abs());
-                        lossesByAsset.merge(tx.getAsset().getSymbol(), realizedPnL.abs(), BigDecimal::add);
-                    }
-                }
+            Holding holding;
+            try {
+                holding = engine.apply(tx);
+            } catch (IllegalStateException e) {
+                log.warn("Skipping transaction {} in tax report of portfolio {}: {}", tx.getId(), portfolioId, e.getMessage());
+                continue;
+            }
+            
+            LocalDate txDate = tx.getTransactionDate().toLocalDate();
+            if (tx.getTransactionType() != Transaction.TransactionType.SELL
+                || (startDate != null && txDate.isBefore(startDate))
+                || (endDate != null && txDate.isAfter(endDate))) {
+                continue;
+            }
+            
+            BigDecimal realizedPnL = holding.getLastRealizedPnl();
+            realizedTransactions.add(new TaxReportResponse.RealizedTransaction(
+                tx.getAsset().getSymbol(),
+                tx.getAsset().getName(),
+                txDate,
+                tx.getQuantity(),
+                tx.getPrice(),
+                holding.getLastCostBasis(),
+                realizedPnL.signum() > 0 ? realizedPnL : BigDecimal.ZERO,
+                realizedPnL.signum() < 0 ? realizedPnL.abs() : BigDecimal.ZERO
+            ));
+            
+            if (realizedPnL.signum() > 0) {
+                totalRealizedGains = totalRealizedGains.add(realizedPnL);
+                gainsByAsset.merge(tx.getAsset().getSymbol(), realizedPnL, BigDecimal::add);
+            } else {
+                totalRealizedLosses = totalRealizedLosses.add(realizedPnL.abs());
+                lossesByAsset.merge(tx.getAsset().getSymbol(), realizedPnL.abs(), BigDecimal::add);
             }
         }
         
@@ -107,49 +95,4 @@ public class TaxReportService {
             lossesByAsset
         );
     }
-    
-    private Map<UUID, HoldingCalculation> calculateHoldings(List<Transaction> transactions) {
-        Map<UUID, HoldingCalculation> holdings = new HashMap<>();
-        
-        // Sort by date ascending for FIFO calculation
-        List<Transaction> sortedTx = transactions.stream()
-            .sorted(Comparator.comparing(Transaction::getTransactionDate))
-            .collect(Collectors.toList());
-        
-        for (Transaction tx : sortedTx) {
-            UUID assetId = tx.getAsset().getId();
-            HoldingCalculation calc = holdings.computeIfAbsent(assetId, k -> new HoldingCalculation());
-            
-            switch (tx.getTransactionType()) {
-                case BUY:
-                case DEPOSIT:
-                case TRANSFER_IN:
-                    calc.quantity = calc.quantity.add(tx.getQuantity());
-                    calc.totalCost = calc.totalCost.add(tx.getQuantity().multiply(tx.getPrice()).add(tx.getFee() != null ? tx.getFee() : BigDecimal.ZERO));
-                    if (calc.quantity.compareTo(BigDecimal.ZERO) > 0) {
-                        calc.averagePrice = calc.totalCost.divide(calc.quantity, 8, RoundingMode.HALF_UP);
-                    }
-                    break;
-                    
-                case SELL:
-                case WITHDRAW:
-                case TRANSFER_OUT:
-                    if (calc.quantity.compareTo(tx.getQuantity()) >= 0) {
-                        calc.quantity = calc.quantity.subtract(tx.getQuantity());
-                        BigDecimal costBasis = calc.averagePrice.multiply(tx.getQuantity());
-                        calc.totalCost = calc.totalCost.subtract(costBasis);
-                    }
-                    break;
-            }
-        }
-        
-        return holdings;
-    }
-    
-    private static class HoldingCalculation {
-        BigDecimal quantity = BigDecimal.ZERO;
-        BigDecimal totalCost = BigDecimal.ZERO;
-        BigDecimal averagePrice = BigDecimal.ZERO;
-    }
 }
-
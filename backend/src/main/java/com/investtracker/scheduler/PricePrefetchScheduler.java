@@ -0,0 +1,158 @@
+package com.investtracker.scheduler;
+
+import com.investtracker.alert.repository.PriceAlertRepository;
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.asset.repository.AssetRepository;
+import com.investtracker.marketdata.cache.CachedPrice;
+import com.investtracker.marketdata.cache.PriceCache;
+import com.investtracker.marketdata.cache.PriceDemandTracker;
+import com.investtracker.marketdata.cache.PriceKey;
+import com.investtracker.marketdata.config.MarketDataProperties;
+import com.investtracker.marketdata.service.MarketDataService;
+import com.investtracker.position.repository.PositionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the prices of every held or alerted asset warm so that summaries, the dashboard and alert checks
+ * are served from the cache instead of calling a provider inline.
+ * <p>
+ * Each pass renews the entries that will cross {@code refresh-ahead} of their soft TTL before the next
+ * pass, most held and most viewed first, in provider-sized batches at background priority. Metrics:
+ * {@code marketdata.prefetch.coverage} (share of targets with a fresh entry), {@code marketdata.prefetch.lag}
+ * (how long past its refresh point an entry was renewed) and {@code marketdata.prefetch.assets}.
+ */
+@Slf4j
+@Component
+public class PricePrefetchScheduler {
+    private final PositionRepository positionRepository;
+    private final PriceAlertRepository priceAlertRepository;
+    private final AssetRepository assetRepository;
+    private final MarketDataService marketDataService;
+    private final PriceCache priceCache;
+    private final PriceDemandTracker priceDemandTracker;
+    private final MarketDataProperties.Prefetch config;
+    
+    private final AtomicReference<List<PrefetchTarget>> targets = new AtomicReference<>(List.of());
+    private volatile long targetsLoadedAtMillis;
+    private volatile double coverage = 1.0;
+    
+    private final Timer lag;
+    private final Counter refreshed;
+    private final Counter failed;
+    
+    public PricePrefetchScheduler(PositionRepository positionRepository,
+                                  PriceAlertRepository priceAlertRepository,
+                                  AssetRepository assetRepository,
+                                  MarketDataService marketDataService,
+                                  PriceCache priceCache,
+                                  PriceDemandTracker priceDemandTracker,
+                                  MarketDataProperties properties,
+                                  MeterRegistry meterRegistry) {
+        this.positionRepository = positionRepository;
+        this.priceAlertRepository = priceAlertRepository;
+        this.assetRepository = assetRepository;
+        this.marketDataService = marketDataService;
+        this.priceCache = priceCache;
+        this.priceDemandTracker = priceDemandTracker;
+        this.config = properties.getPrefetch();
+        
+        this.lag = Timer.builder("marketdata.prefetch.lag")
+            .description("How long after its refresh point a prefetched price was renewed")
+            .register(meterRegistry);
+        this.refreshed = Counter.builder("marketdata.prefetch.assets").tag("result", "refreshed").register(meterRegistry);
+        this.failed = Counter.builder("marketdata.prefetch.assets").tag("result", "failed").register(meterRegistry);
+        Gauge.builder("marketdata.prefetch.coverage", this, scheduler -> scheduler.coverage).register(meterRegistry);
+        Gauge.builder("marketdata.prefetch.targets", targets, ref -> ref.get().size()).register(meterRegistry);
+    }
+    
+    @Scheduled(fixedDelayString = "#{@marketDataProperties.prefetch.interval.toMillis()}",
+               initialDelayString = "#{@marketDataProperties.prefetch.interval.toMillis()}")
+    public void prefetch() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        
+        try {
+            long now = System.currentTimeMillis();
+            if (now - targetsLoadedAtMillis >= config.getTargetRefresh().toMillis()) {
+                targets.set(loadTargets());
+                targetsLoadedAtMillis = now;
+            }
+            
+            List<PrefetchTarget> currentTargets = targets.get();
+            List<PrefetchTarget> due = new ArrayList<>();
+            int fresh = 0;
+            for (PrefetchTarget target : currentTargets) {
+                Optional<CachedPrice> cached = priceCache.peek(target.key());
+                if (cached.isPresent() && !priceCache.isStale(cached.get())) {
+                    fresh++;
+                }
+                // Renew anything that would pass its refresh point before the next pass runs
+                Duration refreshAfter = priceCache.refreshAfter(target.asset().getAssetType(), config.getRefreshAhead());
+                if (cached.isEmpty() || cached.get().isOlderThan(refreshAfter.minus(config.getInterval()), now)) {
+                    due.add(target);
+                    cached.ifPresent(entry -> lag.record(
+                        Duration.ofMillis(Math.max(0, now - entry.fetchedAtMillis() - refreshAfter.toMillis()))));
+                }
+            }
+            coverage = currentTargets.isEmpty() ? 1.0 : (double) fresh / currentTargets.size();
+            
+            due.sort(Comparator.comparingLong(this::score).reversed());
+            refresh(due.subList(0, Math.min(due.size(), config.getMaxAssetsPerPass())));
+            priceDemandTracker.decay();
+        } catch (Exception e) {
+            log.error("Error in price prefetch: {}", e.getMessage(), e);
+        }
+    }
+    
+    private void refresh(List<PrefetchTarget> due) {
+        Map<String, List<Asset>> byCurrency = due.stream()
+            .collect(Collectors.groupingBy(target -> target.key().currency(), LinkedHashMap::new,
+                Collectors.mapping(PrefetchTarget::asset, Collectors.toList())));
+        
+        byCurrency.forEach((currency, assets) -> {
+            int priced = marketDataService.prefetchPrices(assets, currency).size();
+            refreshed.increment(priced);
+            failed.increment(assets.size() - priced);
+        });
+        if (!due.isEmpty()) {
+            log.debug("Prefetched {} prices in {} currencies", due.size(), byCurrency.size());
+        }
+    }
+    
+    /**
+     * Holding portfolios weigh more than recent views, so a held asset nobody has opened lately still
+     * ranks above a one-off lookup
+     */
+    private long score(PrefetchTarget target) {
+        return target.holders() * 10L + priceDemandTracker.views(target.key());
+    }
+    
+    private List<PrefetchTarget> loadTargets() {
+        Map<UUID, Integer> holders = new HashMap<>();
+        positionRepository.findHeldAssetIds().forEach(assetId -> holders.merge(assetId, 1, Integer::sum));
+        priceAlertRepository.findWatchedAssetIds().forEach(assetId -> holders.putIfAbsent(assetId, 0));
+        
+        // Prices are cached in each asset's quote currency and converted per portfolio, so one key per asset
+        List<PrefetchTarget> loaded = new ArrayList<>();
+        for (Asset asset : assetRepository.findAllById(holders.keySet())) {
+            loaded.add(new PrefetchTarget(asset, PriceKey.of(asset, PriceKey.quoteCurrency(asset)), holders.get(asset.getId())));
+        }
+        log.debug("Price prefetch tracking {} assets", loaded.size());
+        return List.copyOf(loaded);
+    }
+    
+    private record PrefetchTarget(Asset asset, PriceKey key, int holders) {
+    }
+}
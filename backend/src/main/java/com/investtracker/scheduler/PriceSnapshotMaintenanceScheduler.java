@@ -0,0 +1,115 @@
+package com.investtracker.scheduler;
+
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.marketdata.config.MarketDataProperties;
+import com.investtracker.marketdata.repository.PriceSnapshotPartitionRepository;
+import com.investtracker.marketdata.repository.PriceSnapshotPartitionRepository.RetentionStage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the monthly partitions of price_snapshots.
+ * <p>
+ * Creates partitions {@code premake-months} ahead so new rows never land in the default partition. Once
+ * a month is older than an asset type's {@code raw} retention, that type's rows are compacted to one per
+ * asset per day; once it is older than {@code compacted} retention they are deleted. A month past the
+ * longest compacted retention of every asset type is dropped as a whole. Every step first rolls the
+ * affected rows up into price_candles, so history stays available after the raw rows are gone. Each
+ * step is recorded in price_snapshot_retention and runs once per month and asset type.
+ */
+@Slf4j
+@Component
+public class PriceSnapshotMaintenanceScheduler {
+    private final PriceSnapshotPartitionRepository partitionRepository;
+    private final MarketDataProperties.Retention config;
+    
+    public PriceSnapshotMaintenanceScheduler(PriceSnapshotPartitionRepository partitionRepository,
+                                             MarketDataProperties properties) {
+        this.partitionRepository = partitionRepository;
+        this.config = properties.getSnapshots().getRetention();
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintainPartitions();
+    }
+    
+    @Scheduled(cron = "#{@marketDataProperties.snapshots.retention.cron}")
+    public void maintainPartitions() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        
+        try {
+            List<YearMonth> existing = partitionRepository.findMonthlyPartitions();
+            createUpcomingPartitions(existing);
+            applyRetention(existing);
+        } catch (Exception e) {
+            log.error("Error in price snapshot partition maintenance: {}", e.getMessage(), e);
+        }
+    }
+    
+    private void createUpcomingPartitions(List<YearMonth> existing) {
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= config.getPremakeMonths(); i++) {
+            YearMonth month = current.plusMonths(i);
+            if (!existing.contains(month)) {
+                partitionRepository.createPartition(month);
+                log.info("Created price_snapshots partition for {}", month);
+            }
+        }
+    }
+    
+    private void applyRetention(List<YearMonth> existing) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Asset.AssetType> assetTypes = Arrays.asList(Asset.AssetType.values());
+        Map<YearMonth, Map<Asset.AssetType, RetentionStage>> applied = partitionRepository.findRetentionStages();
+        
+        for (YearMonth month : existing) {
+            // A month is only eligible once all of its rows are older than the cutoff
+            LocalDateTime monthEnd = month.plusMonths(1).atDay(1).atStartOfDay();
+            boolean expiredForAll = assetTypes.stream()
+                .allMatch(type -> monthEnd.isBefore(now.minus(config.policyFor(type).getCompacted())));
+            
+            if (expiredForAll) {
+                assetTypes.forEach(type -> partitionRepository.rollUp(month, type));
+                partitionRepository.dropPartition(month);
+                log.info("Dropped price_snapshots partition for {}", month);
+                continue;
+            }
+            
+            Map<Asset.AssetType, RetentionStage> stages = applied.getOrDefault(month, Map.of());
+            for (Asset.AssetType type : assetTypes) {
+                MarketDataProperties.RetentionPolicy policy = config.policyFor(type);
+                RetentionStage stage = stages.get(type);
+                if (monthEnd.isBefore(now.minus(policy.getCompacted()))) {
+                    if (stage == RetentionStage.DELETED) {
+                        continue;
+                    }
+                    partitionRepository.rollUp(month, type);
+                    int deleted = partitionRepository.deleteAssetType(month, type);
+                    partitionRepository.recordRetentionStage(month, type, RetentionStage.DELETED);
+                    if (deleted > 0) {
+                        log.info("Deleted {} {} price snapshots from {}", deleted, type, month);
+                    }
+                } else if (monthEnd.isBefore(now.minus(policy.getRaw())) && stage == null) {
+                    partitionRepository.rollUp(month, type);
+                    int compacted = partitionRepository.compact(month, type);
+                    partitionRepository.recordRetentionStage(month, type, RetentionStage.COMPACTED);
+                    if (compacted > 0) {
+                        log.info("Compacted {} {} price snapshots from {}", compacted, type, month);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -15,6 +15,7 @@ import java.util.UUID;
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, UUID> {
     List<Transaction> findByPortfolioIdOrderByTransactionDateDesc(UUID portfolioId);
+    List<Transaction> findByPortfolioIdOrderByTransactionDateAsc(UUID portfolioId);
     
     @Query("SELECT t FROM Transaction t WHERE t.portfolio.id = :portfolioId AND t.asset.id = :assetId ORDER BY t.transactionDate ASC")
     List<Transaction> findByPortfolioIdAndAssetId(@Param("portfolioId") UUID portfolioId, @Param("assetId") UUID assetId);
@@ -59,7 +60,20 @@ public interface TransactionRepository extends JpaRepository<Transaction, UUID>
         @Param("endDate") LocalDateTime endDate
     );
     
+    /**
+     * The user's transactions newest first, with their assets, limited by {@code pageable}'s size. Walks the
+     * transaction date index instead of sorting the whole ledger; pass the oldest date of one page as
+     * {@code before} to get the next.
+     */
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.asset WHERE t.portfolio.user.id = :userId " +
+           "AND (:before IS NULL OR t.transactionDate < :before) " +
+           "ORDER BY t.transactionDate DESC")
+    List<Transaction> findRecentByUserId(
+        @Param("userId") UUID userId,
+        @Param("before") LocalDateTime before,
+        Pageable pageable
+    );
+    
     @Query("SELECT t FROM Transaction t WHERE t.id = :id AND t.portfolio.user.id = :userId")
     java.util.Optional<Transaction> findByIdAndUserId(@Param("id") UUID id, @Param("userId") UUID userId);
 }
-
@@ -4,6 +4,7 @@ import com.investtracker.asset.entity.Asset;
 import com.investtracker.asset.service.AssetService;
 import com.investtracker.portfolio.entity.Portfolio;
 import com.investtracker.portfolio.service.PortfolioService;
+import com.investtracker.position.service.PositionService;
 import com.investtracker.transaction.dto.TransactionRequest;
 import com.investtracker.transaction.dto.TransactionResponse;
 import com.investtracker.transaction.dto.UpdateTransactionRequest;
@@ -11,13 +12,16 @@ import com.investtracker.transaction.entity.Transaction;
 import com.investtracker.transaction.repository.TransactionRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -27,6 +31,7 @@ public class TransactionService {
     private final TransactionRepository transactionRepository;
     private final PortfolioService portfolioService;
     private final AssetService assetService;
+    private final PositionService positionService;
     
     public List<TransactionResponse> getPortfolioTransactions(UUID portfolioId, UUID userId) {
         if (!portfolioService.isOwner(portfolioId, userId)) {
@@ -77,6 +82,7 @@ public class TransactionService {
         transaction.setTransferPortfolio(transferPortfolio);
         
         Transaction saved = transactionRepository.save(transaction);
+        positionService.onTransactionAdded(saved);
         
         // If transfer, create corresponding transaction in other portfolio
         if (request.getTransactionType() == Transaction.TransactionType.TRANSFER_OUT && transferPortfolio != null) {
@@ -90,7 +96,7 @@ public class TransactionService {
             transferIn.setTransactionDate(request.getTransactionDate());
             transferIn.setNotes("Transfer from " + portfolio.getName());
             transferIn.setTransferPortfolio(portfolio);
-            transactionRepository.save(transferIn);
+            positionService.onTransactionAdded(transactionRepository.save(transferIn));
         }
         
         return toResponse(saved);
@@ -120,6 +126,9 @@ public class TransactionService {
         Asset asset = assetService.findById(request.getAssetId())
             .orElseThrow(() -> new IllegalArgumentException("Asset not found"));
         
+        // Holdings the transaction counted towards before the change
+        Set<PositionKey> affected = new LinkedHashSet<>(positionKeys(transaction));
+        
         // Handle transfer portfolio
         Portfolio transferPortfolio = null;
         if (request.getTransferPortfolioId() != null) {
@@ -162,6 +171,9 @@ public class TransactionService {
                 });
         }
         
+        affected.addAll(positionKeys(saved));
+        affected.forEach(key -> positionService.recompute(key.portfolioId(), key.assetId()));
+        
         return toResponse(saved);
     }
     
@@ -169,6 +181,7 @@ public class TransactionService {
     public void deleteTransaction(UUID transactionId, UUID userId) {
         Transaction transaction = transactionRepository.findByIdAndUserId(transactionId, userId)
             .orElseThrow(() -> new IllegalArgumentException("Transaction not found or access denied"));
+        List<PositionKey> affected = positionKeys(transaction);
         
         // If this is a transfer, also delete the corresponding transaction
         if (transaction.getTransactionType() == Transaction.TransactionType.TRANSFER_OUT && 
@@ -195,6 +208,21 @@ public class TransactionService {
         }
         
         transactionRepository.delete(transaction);
+        affected.forEach(key -> positionService.recompute(key.portfolioId(), key.assetId()));
+    }
+    
+    /**
+     * Positions a transaction counts towards: its own and, for transfers, the paired row's
+     */
+    private static List<PositionKey> positionKeys(Transaction transaction) {
+        UUID assetId = transaction.getAsset().getId();
+        PositionKey own = new PositionKey(transaction.getPortfolio().getId(), assetId);
+        boolean transfer = transaction.getTransactionType() == Transaction.TransactionType.TRANSFER_OUT
+            || transaction.getTransactionType() == Transaction.TransactionType.TRANSFER_IN;
+        if (transfer && transaction.getTransferPortfolio() != null) {
+            return List.of(own, new PositionKey(transaction.getTransferPortfolio().getId(), assetId));
+        }
+        return List.of(own);
     }
     
     public Page<TransactionResponse> getUserTransactions(
@@ -228,6 +256,16 @@ public class TransactionService {
             .collect(Collectors.toList());
     }
     
+    /**
+     * The user's {@code limit} most recent transactions across all portfolios, newest first
+     */
+    public List<TransactionResponse> getRecentUserTransactions(UUID userId, int limit) {
+        return transactionRepository.findRecentByUserId(userId, null, PageRequest.of(0, limit))
+            .stream()
+            .map(this::toResponse)
+            .collect(Collectors.toList());
+    }
+    
     private TransactionResponse toResponse(Transaction transaction) {
         return new TransactionResponse(
             transaction.getId(),
@@ -245,5 +283,7 @@ public class TransactionService {
             transaction.getCreatedAt()
         );
     }
+    
+    private record PositionKey(UUID portfolioId, UUID assetId) {
+    }
 }
-
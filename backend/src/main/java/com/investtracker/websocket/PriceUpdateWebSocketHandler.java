@@ -120,29 +120,22 @@ public class PriceUpdateWebSocketHandler extends TextWebSocketHandler {
             TextMessage textMessage = new TextMessage(message);
             
             for (Set<WebSocketSession> sessionSet : sessions.values()) {
-                for (WebSocketSession session : new ArrayList<>(sessionSet)) {
-                    if (session.isOpen()) {
-                        try {
-                            session.sendMessage(textMessage);
-                        } catch (IOException e) {
-                            log.error("Error sending WebSocket message: {}", e.getMessage());
-                            sessionSet.remove(session);
-                        }
-                    } else {
-                        sessionSet.remove(session);
-                    }
-                }
+                send(sessionSet, textMessage);
             }
         } catch (Exception e) {
             log.error("Error broadcasting price updates: {}", e.getMessage());
         }
     }
     
-    public void sendPriceUpdate(UUID assetId, BigDecimal price) {
+    /**
+     * Pushes one asset's price to its subscribers and to "all" subscribers; called for every streamed price
+     */
+    public void sendPriceUpdate(UUID assetId, BigDecimal price, String currency) {
         Map<String, Object> update = new HashMap<>();
         update.put("type", "price_update");
         update.put("assetId", assetId.toString());
         update.put("price", price);
+        update.put("currency", currency);
         update.put("timestamp", System.currentTimeMillis());
         
         try {
@@ -152,39 +145,35 @@ public class PriceUpdateWebSocketHandler extends TextWebSocketHandler {
             // Send to specific asset subscribers
             Set<WebSocketSession> assetSessions = sessions.get(assetId.toString());
             if (assetSessions != null) {
-                for (WebSocketSession session : new ArrayList<>(assetSessions)) {
-                    if (session.isOpen()) {
-                        try {
-                            session.sendMessage(textMessage);
-                        } catch (IOException e) {
-                            log.error("Error sending price update: {}", e.getMessage());
-                            assetSessions.remove(session);
-                        }
-                    } else {
-                        assetSessions.remove(session);
-                    }
-                }
+                send(assetSessions, textMessage);
             }
             
             // Send to "all" subscribers
             Set<WebSocketSession> allSessions = sessions.get("all");
             if (allSessions != null) {
-                for (WebSocketSession session : new ArrayList<>(allSessions)) {
-                    if (session.isOpen()) {
-                        try {
-                            session.sendMessage(textMessage);
-                        } catch (IOException e) {
-                            log.error("Error sending price update: {}", e.getMessage());
-                            allSessions.remove(session);
-                        }
-                    } else {
-                        allSessions.remove(session);
-                    }
-                }
+                send(allSessions, textMessage);
             }
         } catch (Exception e) {
             log.error("Error creating price update message: {}", e.getMessage());
         }
     }
+    
+    private void send(Set<WebSocketSession> sessionSet, TextMessage message) {
+        for (WebSocketSession session : new ArrayList<>(sessionSet)) {
+            if (session.isOpen()) {
+                // Streamed updates and the periodic broadcast run on different threads; a session takes one send at a time
+                synchronized (session) {
+                    try {
+                        session.sendMessage(message);
+                    } catch (IOException e) {
+                        log.error("Error sending WebSocket message: {}", e.getMessage());
+                        sessionSet.remove(session);
+                    }
+                }
+            } else {
+                sessionSet.remove(session);
+            }
+        }
+    }
 }
 
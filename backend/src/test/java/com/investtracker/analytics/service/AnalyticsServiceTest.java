@@ -0,0 +1,64 @@
+package com.investtracker.analytics.service;
+
+import com.investtracker.analytics.config.AnalyticsProperties;
+import com.investtracker.analytics.dto.DashboardResponse;
+import com.investtracker.analytics.dto.PortfolioSummaryResponse;
+import com.investtracker.analytics.repository.PortfolioSnapshotRepository;
+import com.investtracker.marketdata.service.MarketDataService;
+import com.investtracker.portfolio.entity.Portfolio;
+import com.investtracker.portfolio.repository.PortfolioRepository;
+import com.investtracker.portfolio.service.PortfolioService;
+import com.investtracker.position.repository.PositionRepository;
+import com.investtracker.transaction.service.TransactionService;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class AnalyticsServiceTest {
+    private final PortfolioRepository portfolioRepository = mock(PortfolioRepository.class);
+    private final PortfolioSummaryCache portfolioSummaryCache = mock(PortfolioSummaryCache.class);
+    private final MarketDataService marketDataService = mock(MarketDataService.class);
+    private final TransactionService transactionService = mock(TransactionService.class);
+    
+    @Test
+    void testSlowPriceProviderStillProducesTheDashboard() {
+        AnalyticsProperties properties = new AnalyticsProperties();
+        properties.getDashboard().setDeadline(Duration.ofSeconds(2));
+        properties.getDashboard().setPriceResolveBudget(Duration.ofMillis(100));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        AnalyticsService analyticsService = new AnalyticsService(mock(PortfolioService.class), portfolioRepository,
+            transactionService, portfolioSummaryCache, mock(PositionRepository.class), marketDataService, properties,
+            executor, mock(PortfolioSnapshotRepository.class), mock(CorrelationService.class));
+        
+        UUID userId = UUID.randomUUID();
+        Portfolio portfolio = new Portfolio();
+        portfolio.setId(UUID.randomUUID());
+        portfolio.setBaseCurrency("USD");
+        when(portfolioRepository.findByUserId(userId)).thenReturn(List.of(portfolio));
+        // A provider that never answers within the dashboard deadline
+        when(marketDataService.resolvePrices(any())).thenReturn(new CompletableFuture<>());
+        when(portfolioSummaryCache.get(portfolio.getId(), userId)).thenReturn(new PortfolioSummaryResponse(
+            new BigDecimal("150"), new BigDecimal("100"), new BigDecimal("50"), new BigDecimal("50"), "USD",
+            List.of(), Map.of(), Map.of()));
+        
+        try {
+            DashboardResponse dashboard = analyticsService.getDashboard(userId);
+            
+            assertTrue(dashboard.getUnavailablePortfolioIds().isEmpty());
+            assertEquals(0, new BigDecimal("150").compareTo(dashboard.getTotalNetWorth()));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
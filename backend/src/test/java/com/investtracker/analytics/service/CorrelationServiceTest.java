@@ -0,0 +1,73 @@
+package com.investtracker.analytics.service;
+
+import com.investtracker.analytics.dto.CorrelationResponse;
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.marketdata.entity.PriceSnapshot;
+import com.investtracker.marketdata.history.PriceSeriesStore;
+import com.investtracker.marketdata.repository.PriceSnapshotRepository;
+import com.investtracker.position.repository.PositionRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CorrelationServiceTest {
+    private final PositionRepository positionRepository = mock(PositionRepository.class);
+    private final PriceSeriesStore priceSeriesStore = mock(PriceSeriesStore.class);
+    private final PriceSnapshotRepository priceSnapshotRepository = mock(PriceSnapshotRepository.class);
+    private final CorrelationService correlationService =
+        new CorrelationService(positionRepository, priceSeriesStore, priceSnapshotRepository);
+    
+    @Test
+    void testFallsBackToSnapshotsWhenTheStoreIsUnavailable() {
+        UUID portfolioId = UUID.randomUUID();
+        Asset btc = asset("BTC");
+        Asset eth = asset("ETH");
+        Asset gold = asset("GLD");
+        when(positionRepository.findHeldAssetsByPortfolioId(portfolioId)).thenReturn(List.of(btc, eth, gold));
+        when(priceSeriesStore.isAvailable()).thenReturn(false);
+        
+        // ETH moves with BTC, GLD against it
+        int[] moves = {2, -1, 3, -2, 1, 4, -3, 2, -1, 1};
+        stubDailyPrices(btc, moves, 1);
+        stubDailyPrices(eth, moves, 1);
+        stubDailyPrices(gold, moves, -1);
+        
+        CorrelationResponse response = correlationService.calculateCorrelation(portfolioId, UUID.randomUUID());
+        
+        assertEquals(0, BigDecimal.ONE.compareTo(response.getCorrelationMatrix().get("BTC").get("ETH")));
+        assertTrue(response.getCorrelationMatrix().get("BTC").get("GLD").signum() < 0);
+        assertEquals("BTC", response.getTopCorrelatedPairs().get(0).getAsset1Symbol());
+        assertEquals("ETH", response.getTopCorrelatedPairs().get(0).getAsset2Symbol());
+        assertEquals(2, response.getTopInversePairs().size());
+        verify(priceSeriesStore, never()).readAligned(any(), any(), any(), any());
+    }
+    
+    private void stubDailyPrices(Asset asset, int[] moves, int direction) {
+        List<PriceSnapshot> snapshots = new ArrayList<>();
+        LocalDateTime day = LocalDateTime.now().minusDays(moves.length + 1);
+        BigDecimal price = new BigDecimal("100");
+        for (int move : moves) {
+            price = price.add(BigDecimal.valueOf((long) move * direction));
+            snapshots.add(new PriceSnapshot(UUID.randomUUID(), asset, price, "USD", day, "test"));
+            day = day.plusDays(1);
+        }
+        when(priceSnapshotRepository.findByAssetIdAndDateRange(eq(asset.getId()), any(), any())).thenReturn(snapshots);
+    }
+    
+    private static Asset asset(String symbol) {
+        Asset asset = new Asset();
+        asset.setId(UUID.randomUUID());
+        asset.setSymbol(symbol);
+        asset.setAssetType(Asset.AssetType.CRYPTO);
+        return asset;
+    }
+}
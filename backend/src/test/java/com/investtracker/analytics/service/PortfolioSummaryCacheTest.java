@@ -0,0 +1,141 @@
+package com.investtracker.analytics.service;
+
+import com.investtracker.analytics.config.AnalyticsProperties;
+import com.investtracker.analytics.dto.PortfolioSummaryResponse;
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.marketdata.cache.PriceCache;
+import com.investtracker.marketdata.cache.PriceKey;
+import com.investtracker.marketdata.config.MarketDataProperties;
+import com.investtracker.marketdata.fx.FxRateMatrix;
+import com.investtracker.marketdata.fx.FxRateService;
+import com.investtracker.marketdata.service.MarketDataService;
+import com.investtracker.marketdata.service.PriceQuote;
+import com.investtracker.portfolio.entity.Portfolio;
+import com.investtracker.portfolio.repository.PortfolioRepository;
+import com.investtracker.position.entity.Position;
+import com.investtracker.position.repository.PositionRepository;
+import com.investtracker.user.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PortfolioSummaryCacheTest {
+    private final PortfolioRepository portfolioRepository = mock(PortfolioRepository.class);
+    private final PositionRepository positionRepository = mock(PositionRepository.class);
+    private final MarketDataService marketDataService = mock(MarketDataService.class);
+    private final FxRateService fxRateService = mock(FxRateService.class);
+    private final PriceCache priceCache = new PriceCache(new MarketDataProperties(), new SimpleMeterRegistry());
+    
+    private PortfolioSummaryCache summaryCache;
+    private Portfolio portfolio;
+    private Asset asset;
+    
+    @BeforeEach
+    void setUp() {
+        summaryCache = new PortfolioSummaryCache(portfolioRepository, positionRepository, marketDataService,
+            fxRateService, priceCache, new AnalyticsProperties(), new SimpleMeterRegistry());
+        
+        User owner = new User();
+        owner.setId(UUID.randomUUID());
+        portfolio = new Portfolio();
+        portfolio.setId(UUID.randomUUID());
+        portfolio.setUser(owner);
+        portfolio.setBaseCurrency("USD");
+        
+        asset = new Asset();
+        asset.setId(UUID.randomUUID());
+        asset.setSymbol("BTC");
+        asset.setAssetType(Asset.AssetType.CRYPTO);
+        Position position = new Position(portfolio, asset);
+        position.setQuantity(new BigDecimal("2"));
+        position.setTotalCost(new BigDecimal("100"));
+        
+        when(fxRateService.currentMatrix()).thenReturn(FxRateMatrix.empty("USD"));
+        when(portfolioRepository.findById(portfolio.getId())).thenReturn(Optional.of(portfolio));
+        when(positionRepository.findHeldByPortfolioId(portfolio.getId())).thenReturn(List.of(position));
+        quotePrice("60");
+    }
+    
+    @Test
+    void testRepeatedReadsAreServedFromTheCache() {
+        PortfolioSummaryResponse first = summaryCache.get(portfolio.getId(), ownerId());
+        PortfolioSummaryResponse second = summaryCache.get(portfolio.getId(), ownerId());
+        
+        assertSame(first, second);
+        assertEquals(0, new BigDecimal("120").compareTo(first.getTotalValue()));
+        verify(positionRepository, times(1)).findHeldByPortfolioId(portfolio.getId());
+        verify(marketDataService, times(1)).getCurrentQuotes(any(), any());
+    }
+    
+    @Test
+    void testPriceChangeRevaluesWithoutReloadingPositions() {
+        summaryCache.get(portfolio.getId(), ownerId());
+        quotePrice("75");
+        priceCache.put(PriceKey.of(asset, "USD"), asset.getAssetType(), new BigDecimal("75"), "test");
+        
+        PortfolioSummaryResponse revalued = summaryCache.get(portfolio.getId(), ownerId());
+        
+        assertEquals(0, new BigDecimal("150").compareTo(revalued.getTotalValue()));
+        assertEquals(0, new BigDecimal("50").compareTo(revalued.getTotalPnL()));
+        verify(positionRepository, times(1)).findHeldByPortfolioId(portfolio.getId());
+    }
+    
+    @Test
+    void testPriceChangeOfUnheldAssetKeepsTheEntry() {
+        PortfolioSummaryResponse first = summaryCache.get(portfolio.getId(), ownerId());
+        Asset other = new Asset();
+        other.setId(UUID.randomUUID());
+        other.setAssetType(Asset.AssetType.STOCK);
+        priceCache.put(PriceKey.of(other, "USD"), other.getAssetType(), new BigDecimal("10"), "test");
+        
+        assertSame(first, summaryCache.get(portfolio.getId(), ownerId()));
+        verify(marketDataService, times(1)).getCurrentQuotes(any(), any());
+    }
+    
+    @Test
+    void testMissingFxRateReportsHoldingUnpriced() {
+        asset.setCurrency("JPY");
+        
+        PortfolioSummaryResponse summary = summaryCache.get(portfolio.getId(), ownerId());
+        
+        assertEquals(0, BigDecimal.ZERO.compareTo(summary.getTotalValue()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(summary.getTotalCost()));
+        assertTrue(summary.getHoldings().get(0).isPriceStale());
+        assertNull(summary.getHoldings().get(0).getPriceAsOf());
+    }
+    
+    @Test
+    void testEvictionReloadsPositions() {
+        summaryCache.get(portfolio.getId(), ownerId());
+        summaryCache.evict(portfolio.getId());
+        summaryCache.get(portfolio.getId(), ownerId());
+        
+        verify(positionRepository, times(2)).findHeldByPortfolioId(portfolio.getId());
+    }
+    
+    @Test
+    void testOtherUsersAreDenied() {
+        summaryCache.get(portfolio.getId(), ownerId());
+        
+        assertThrows(IllegalArgumentException.class, () -> summaryCache.get(portfolio.getId(), UUID.randomUUID()));
+    }
+    
+    private UUID ownerId() {
+        return portfolio.getUser().getId();
+    }
+    
+    private void quotePrice(String price) {
+        when(marketDataService.getCurrentQuotes(any(), any())).thenReturn(Map.of(asset,
+            new PriceQuote(new BigDecimal(price), "USD", "USD", "test", System.currentTimeMillis(), false)));
+    }
+}
@@ -0,0 +1,66 @@
+package com.investtracker.common.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+    private final AtomicLong now = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker(3, Duration.ofSeconds(30), Duration.ofMinutes(1), now::get);
+    
+    @Test
+    void testOpensAfterConsecutiveFailures() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertTrue(breaker.allowsRequests());
+        
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowsRequests());
+    }
+    
+    @Test
+    void testProbeOnlyAfterOpenPeriodAndSuccessfulProbeCloses() {
+        tripOpen();
+        assertFalse(breaker.tryStartProbe());
+        
+        advance(Duration.ofSeconds(30));
+        assertTrue(breaker.tryStartProbe());
+        assertFalse(breaker.tryStartProbe());
+        assertFalse(breaker.allowsRequests());
+        
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+    
+    @Test
+    void testFailedProbeDoublesOpenPeriodUpToMaximum() {
+        tripOpen();
+        advance(Duration.ofSeconds(30));
+        assertTrue(breaker.tryStartProbe());
+        breaker.onFailure();
+        assertEquals(Duration.ofSeconds(60), breaker.remainingOpenTime());
+        
+        advance(Duration.ofSeconds(60));
+        assertTrue(breaker.tryStartProbe());
+        breaker.onFailure();
+        assertEquals(Duration.ofMinutes(1), breaker.remainingOpenTime());
+    }
+    
+    private void tripOpen() {
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+    
+    private void advance(Duration duration) {
+        now.addAndGet(duration.toNanos());
+    }
+}
@@ -0,0 +1,98 @@
+package com.investtracker.common.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+    
+    @Test
+    void testConcurrentCallersShareOneLoad() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoader = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        
+        try {
+            Future<Integer> leader = executor.submit(() -> singleFlight.execute("BTC", () -> {
+                loads.incrementAndGet();
+                loaderStarted.countDown();
+                await(releaseLoader);
+                return 42;
+            }));
+            loaderStarted.await();
+            
+            List<Future<Integer>> followers = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                followers.add(executor.submit(() -> singleFlight.execute("BTC", () -> {
+                    loads.incrementAndGet();
+                    return -1;
+                })));
+            }
+            while (singleFlight.getCoalescedCalls() < 5) {
+                Thread.onSpinWait();
+            }
+            releaseLoader.countDown();
+            
+            assertEquals(42, leader.get(5, TimeUnit.SECONDS));
+            for (Future<Integer> follower : followers) {
+                assertEquals(42, follower.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(1, singleFlight.getLeaderCalls());
+            assertEquals(5, singleFlight.getCoalescedCalls());
+            assertEquals(0, singleFlight.getInFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    void testKeyIsReleasedAfterLoad() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        
+        assertEquals(1, singleFlight.execute("ETH", () -> 1));
+        assertEquals(2, singleFlight.execute("ETH", () -> 2));
+        assertEquals(2, singleFlight.getLeaderCalls());
+    }
+    
+    @Test
+    void testLoaderFailureIsRethrownAndReleased() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        
+        assertThrows(IllegalStateException.class,
+            () -> singleFlight.execute("SOL", () -> { throw new IllegalStateException("provider down"); }));
+        assertEquals(7, singleFlight.execute("SOL", () -> 7));
+    }
+    
+    @Test
+    void testExecuteAllLoadsUnclaimedKeysInOneBatch() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        List<List<String>> batches = new ArrayList<>();
+        
+        Map<String, Integer> result = singleFlight.executeAll(List.of("AAPL", "MSFT", "TSLA", "AAPL"), keys -> {
+            batches.add(keys);
+            Map<String, Integer> loaded = new HashMap<>();
+            loaded.put("AAPL", 175);
+            loaded.put("MSFT", 378);
+            return loaded;
+        });
+        
+        assertEquals(1, batches.size());
+        assertEquals(List.of("AAPL", "MSFT", "TSLA"), batches.get(0));
+        assertEquals(Map.of("AAPL", 175, "MSFT", 378), result);
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
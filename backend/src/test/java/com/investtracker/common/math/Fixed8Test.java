@@ -0,0 +1,104 @@
+package com.investtracker.common.math;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Fixed8Test {
+    @Test
+    void testConvertsAtTheColumnScale() {
+        assertEquals(123_456_789L, Fixed8.of(new BigDecimal("1.23456789")));
+        assertEquals(123_456_790L, Fixed8.of(new BigDecimal("1.234567895")));
+        assertEquals(new BigDecimal("-0.50000000"), Fixed8.toBigDecimal(-50_000_000L));
+        assertEquals(new BigDecimal("1.2346"), Fixed8.toBigDecimal(123_456_789L, 4));
+        assertThrows(ArithmeticException.class, () -> Fixed8.of(new BigDecimal("100000000000")));
+    }
+    
+    @Test
+    void testMultiplyAndDivideMatchBigDecimalHalfUp() {
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            long a = random.nextLong() % 1_000_000_000_000_000L;
+            long b = (100_000L + Math.abs(random.nextLong() % 10_000_000_000L)) * (random.nextBoolean() ? 1 : -1);
+            BigDecimal x = Fixed8.toBigDecimal(a);
+            BigDecimal y = Fixed8.toBigDecimal(b);
+            
+            assertEquals(x.multiply(y).setScale(8, RoundingMode.HALF_UP), Fixed8.toBigDecimal(Fixed8.multiply(a, b)));
+            assertEquals(x.divide(y, 8, RoundingMode.HALF_UP), Fixed8.toBigDecimal(Fixed8.divide(a, b)));
+            assertEquals(x.divide(y, 4, RoundingMode.HALF_UP), Fixed8.toBigDecimal(Fixed8.divide(a, b, 4), 4));
+        }
+    }
+    
+    @Test
+    void testDivisionRoundsOnceAtTheRequestedScale() {
+        // 0.0000499999999 rounds to 0.0000 directly, but to 0.0001 via 0.00005000
+        long a = 499_999_999L;
+        long b = Fixed8.of(100_000);
+        assertEquals(0, Fixed8.divide(a, b, 4));
+        assertEquals(5_000, Fixed8.divide(a, b));
+    }
+    
+    @Test
+    void testOverflowIsDetected() {
+        long large = Fixed8.of(50_000_000_000L);
+        assertThrows(ArithmeticException.class, () -> Fixed8.add(large, large));
+        assertThrows(ArithmeticException.class, () -> Fixed8.multiply(large, Fixed8.of(2)));
+        assertThrows(ArithmeticException.class, () -> Fixed8.divide(large, Fixed8.ONE / 2));
+        assertThrows(ArithmeticException.class, () -> Fixed8.divide(Fixed8.ONE, 0));
+    }
+    
+    @Test
+    void testRelativeChangeOfValuesOutsideTheRange() {
+        BigDecimal from = new BigDecimal("200000000000.00000000");
+        BigDecimal to = new BigDecimal("250000000000.00000000");
+        assertThrows(ArithmeticException.class, () -> Fixed8.of(from));
+        assertEquals(25_000_000, Fixed8.relativeChange(from, to, Fixed8.SCALE));
+        assertEquals(Fixed8.relativeChange(new BigDecimal("200"), new BigDecimal("250"), 4),
+            Fixed8.relativeChange(from, to, 4));
+    }
+    
+    @Test
+    void testMeanAndVariance() {
+        long[] values = {Fixed8.of(1), Fixed8.of(2), Fixed8.of(3), Fixed8.of(4), 0};
+        long mean = Fixed8.mean(values, 4);
+        
+        assertEquals(250_000_000L, mean);
+        assertEquals(125_000_000L, Fixed8.variance(values, 4, mean));
+    }
+    
+    @Test
+    void testVarianceMatchesBigDecimalSumOfSquares() {
+        Random random = new Random(11);
+        for (int run = 0; run < 200; run++) {
+            // Daily-return sized values, where rounding each square would leave two significant digits
+            int count = 1 + random.nextInt(400);
+            long[] values = new long[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = random.nextInt(200_001) - 100_000;
+            }
+            assertEquals(bigDecimalVariance(values), Fixed8.variance(values, count, Fixed8.mean(values, count)));
+        }
+        
+        // Squares beyond 64 bits take the wide path
+        long[] large = {30_000_000_000_000L, -30_000_000_000_000L, 1L};
+        assertEquals(bigDecimalVariance(large), Fixed8.variance(large, 3, 0));
+    }
+    
+    private static long bigDecimalVariance(long[] values) {
+        BigDecimal count = new BigDecimal(values.length);
+        BigDecimal mean = BigDecimal.ZERO;
+        for (long value : values) {
+            mean = mean.add(Fixed8.toBigDecimal(value));
+        }
+        BigDecimal average = mean.divide(count, Fixed8.SCALE, RoundingMode.HALF_UP);
+        BigDecimal squares = BigDecimal.ZERO;
+        for (long value : values) {
+            squares = squares.add(Fixed8.toBigDecimal(value).subtract(average).pow(2));
+        }
+        return Fixed8.of(squares.divide(count, Fixed8.SCALE, RoundingMode.HALF_UP));
+    }
+}
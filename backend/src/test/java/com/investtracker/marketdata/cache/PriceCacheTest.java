@@ -0,0 +1,76 @@
+package com.investtracker.marketdata.cache;
+
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.marketdata.config.MarketDataProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceCacheTest {
+    
+    private MarketDataProperties properties;
+    private PriceCache priceCache;
+    
+    @BeforeEach
+    void setUp() {
+        properties = new MarketDataProperties();
+        properties.getCache().getTtl().put(Asset.AssetType.CRYPTO,
+            new MarketDataProperties.Ttl(Duration.ZERO, Duration.ofMinutes(5)));
+        properties.getCache().getTtl().put(Asset.AssetType.STOCK,
+            new MarketDataProperties.Ttl(Duration.ofMinutes(5), Duration.ofMinutes(15)));
+        priceCache = new PriceCache(properties, new SimpleMeterRegistry());
+    }
+    
+    @Test
+    void testPutAndGet() {
+        PriceKey key = new PriceKey(UUID.randomUUID(), "USD");
+        
+        priceCache.put(key, Asset.AssetType.STOCK, new BigDecimal("175.50"), "StockPriceProvider");
+        
+        CachedPrice cached = priceCache.get(key).orElseThrow();
+        assertEquals(new BigDecimal("175.50"), cached.price());
+        assertEquals("StockPriceProvider", cached.source());
+        assertFalse(priceCache.isStale(cached));
+    }
+    
+    @Test
+    void testSoftTtlIsPerAssetType() throws InterruptedException {
+        PriceKey cryptoKey = new PriceKey(UUID.randomUUID(), "USD");
+        PriceKey stockKey = new PriceKey(UUID.randomUUID(), "USD");
+        priceCache.put(cryptoKey, Asset.AssetType.CRYPTO, new BigDecimal("43500"), "CoinGecko");
+        priceCache.put(stockKey, Asset.AssetType.STOCK, new BigDecimal("175.50"), "AlphaVantage");
+        
+        Thread.sleep(5);
+        
+        // Stale entries are still served until their hard TTL
+        CachedPrice crypto = priceCache.get(cryptoKey).orElseThrow();
+        assertTrue(priceCache.isStale(crypto));
+        assertFalse(priceCache.isStale(priceCache.get(stockKey).orElseThrow()));
+    }
+    
+    @Test
+    void testHardTtlExpiresEntry() throws InterruptedException {
+        properties.getCache().getTtl().put(Asset.AssetType.STOCK,
+            new MarketDataProperties.Ttl(Duration.ZERO, Duration.ofMillis(1)));
+        PriceKey key = new PriceKey(UUID.randomUUID(), "USD");
+        priceCache.put(key, Asset.AssetType.STOCK, new BigDecimal("175.50"), "AlphaVantage");
+        
+        Thread.sleep(10);
+        
+        assertTrue(priceCache.get(key).isEmpty());
+    }
+    
+    @Test
+    void testKeyIsCurrencyCaseInsensitive() {
+        Asset asset = new Asset();
+        asset.setId(UUID.randomUUID());
+        
+        assertEquals(PriceKey.of(asset, "usd"), PriceKey.of(asset, "USD"));
+    }
+}
@@ -0,0 +1,44 @@
+package com.investtracker.marketdata.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceCandleTest {
+    private final UUID assetId = UUID.randomUUID();
+    private final LocalDateTime nineOClock = LocalDateTime.of(2024, 3, 1, 9, 0);
+    
+    @Test
+    void testMergeKeepsOpenAndCloseInTimeOrder() {
+        PriceCandle later = PriceCandle.of(assetId, "USD", CandleResolution.ONE_HOUR, new BigDecimal("12"), nineOClock.plusMinutes(40));
+        PriceCandle earlier = PriceCandle.of(assetId, "USD", CandleResolution.ONE_HOUR, new BigDecimal("10"), nineOClock.plusMinutes(5));
+        PriceCandle spike = PriceCandle.of(assetId, "USD", CandleResolution.ONE_HOUR, new BigDecimal("15"), nineOClock.plusMinutes(20));
+        
+        PriceCandle merged = later.merge(earlier).merge(spike);
+        
+        assertEquals(nineOClock, merged.bucketStart());
+        assertEquals(new BigDecimal("10"), merged.open());
+        assertEquals(new BigDecimal("15"), merged.high());
+        assertEquals(new BigDecimal("10"), merged.low());
+        assertEquals(new BigDecimal("12"), merged.close());
+        assertEquals(3, merged.tickCount());
+        assertEquals(nineOClock.plusMinutes(40), merged.lastAt());
+    }
+    
+    @Test
+    void testResolutionFollowsRangeAndRequestedInterval() {
+        assertEquals(CandleResolution.ONE_MINUTE, CandleResolution.forRange(Duration.ofHours(6), 1500, null));
+        assertEquals(CandleResolution.ONE_HOUR, CandleResolution.forRange(Duration.ofDays(30), 1500, null));
+        assertEquals(CandleResolution.ONE_DAY, CandleResolution.forRange(Duration.ofDays(365), 1500, null));
+        assertEquals(CandleResolution.ONE_DAY, CandleResolution.forRange(Duration.ofHours(6), 1500, CandleResolution.ONE_DAY));
+        // A minute interval over a year would exceed the point limit
+        assertEquals(CandleResolution.ONE_DAY, CandleResolution.forRange(Duration.ofDays(365), 1500, CandleResolution.ONE_MINUTE));
+        assertEquals(CandleResolution.ONE_HOUR, CandleResolution.fromInterval("hourly").orElseThrow());
+        assertTrue(CandleResolution.fromInterval("auto").isEmpty());
+    }
+}
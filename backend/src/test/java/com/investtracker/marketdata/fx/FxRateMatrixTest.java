@@ -0,0 +1,27 @@
+package com.investtracker.marketdata.fx;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FxRateMatrixTest {
+    private final FxRateMatrix matrix = FxRateMatrix.of("USD",
+        Map.of("eur", new BigDecimal("0.80"), "GBP", new BigDecimal("0.50")), "test", 1L);
+    
+    @Test
+    void testCrossRatesAreDerivedFromPivotRates() {
+        assertEquals(0, new BigDecimal("0.625").compareTo(matrix.rate("EUR", "GBP").orElseThrow()));
+        assertEquals(0, new BigDecimal("1.25").compareTo(matrix.rate("EUR", "USD").orElseThrow()));
+        assertEquals(BigDecimal.ONE, matrix.rate("JPY", "jpy").orElseThrow());
+    }
+    
+    @Test
+    void testConvertsAmountsAndReportsUnknownCurrencies() {
+        assertEquals(0, new BigDecimal("80").compareTo(matrix.convert(new BigDecimal("100"), "USD", "EUR").orElseThrow()));
+        assertTrue(matrix.convert(BigDecimal.TEN, "USD", "JPY").isEmpty());
+        assertTrue(FxRateMatrix.empty("USD").isEmpty());
+    }
+}
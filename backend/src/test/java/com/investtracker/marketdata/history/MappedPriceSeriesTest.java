@@ -0,0 +1,65 @@
+package com.investtracker.marketdata.history;
+
+import com.investtracker.marketdata.cache.PriceKey;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedPriceSeriesTest {
+    @TempDir
+    Path directory;
+    
+    @Test
+    void testAppendsGrowAndSurviveReopen() throws Exception {
+        MappedPriceSeries series = open();
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(series.append(1000L + i * 60, PriceSeriesView.toScaled(BigDecimal.valueOf(i))));
+        }
+        assertFalse(series.append(1000L, 1L), "points must be appended in time order");
+        series.flush();
+        
+        MappedPriceSeries reopened = open();
+        assertEquals(5000, reopened.size());
+        PriceSeriesView view = reopened.view(1000L + 10 * 60, 1000L + 19 * 60);
+        assertEquals(10, view.size());
+        assertEquals(1000L + 10 * 60, view.epochSecond(0));
+        assertEquals(0, new BigDecimal("19").compareTo(view.price(9)));
+    }
+    
+    @Test
+    void testUnflushedPointsAreDiscardedOnReopen() throws Exception {
+        MappedPriceSeries series = open();
+        series.append(100, 1);
+        series.flush();
+        series.append(200, 2);
+        
+        assertEquals(1, open().size());
+    }
+    
+    @Test
+    void testAlignCarriesLastPriceForward() throws Exception {
+        MappedPriceSeries early = MappedPriceSeries.open(directory.resolve("a.ts"), directory.resolve("a.px"));
+        early.append(90, 5);
+        early.append(130, 7);
+        MappedPriceSeries late = MappedPriceSeries.open(directory.resolve("b.ts"), directory.resolve("b.px"));
+        late.append(115, 9);
+        
+        List<PriceKey> keys = List.of(new PriceKey(UUID.randomUUID(), "USD"), new PriceKey(UUID.randomUUID(), "USD"));
+        AlignedPriceSeries aligned = AlignedPriceSeries.align(keys,
+            List.of(early.view(Long.MIN_VALUE, 140), late.view(Long.MIN_VALUE, 140)), 100, 140, 20);
+        
+        assertArrayEquals(new long[]{100, 120, 140}, aligned.epochSeconds());
+        assertArrayEquals(new long[]{5, 5, 7}, aligned.scaledPrices(keys.get(0)));
+        assertArrayEquals(new long[]{AlignedPriceSeries.NO_PRICE, 9, 9}, aligned.scaledPrices(keys.get(1)));
+    }
+    
+    private MappedPriceSeries open() throws Exception {
+        return MappedPriceSeries.open(directory.resolve("series.ts"), directory.resolve("series.px"));
+    }
+}
@@ -0,0 +1,45 @@
+package com.investtracker.marketdata.provider;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProviderResponseParsingTest {
+    
+    @Test
+    void testCoinGeckoPricesKeepFullDecimalPrecision() throws Exception {
+        String body = "{\"bitcoin\":{\"usd\":43500.123456789,\"eur\":40001.5},"
+            + "\"shiba-inu\":{\"usd\":0.00000912},\"unknown\":{}}";
+        
+        Map<String, BigDecimal> prices = CoinGeckoPriceProvider.parseSimplePrice(stream(body), "usd");
+        
+        assertEquals(new BigDecimal("43500.123456789"), prices.get("bitcoin"));
+        assertEquals(new BigDecimal("0.00000912"), prices.get("shiba-inu"));
+        assertFalse(prices.containsKey("unknown"));
+    }
+    
+    @Test
+    void testAlphaVantageGlobalQuote() throws Exception {
+        String body = "{\"Global Quote\":{\"01. symbol\":\"IBM\",\"05. price\":\"168.2900\",\"06. volume\":\"123\"}}";
+        
+        assertEquals(Optional.of(new BigDecimal("168.2900")), AlphaVantagePriceProvider.parseGlobalQuotePrice(stream(body)));
+    }
+    
+    @Test
+    void testAlphaVantageRateLimitNoticeHasNoPrice() throws Exception {
+        String body = "{\"Note\":\"Thank you for using Alpha Vantage! Our standard API call frequency is 5 calls per minute.\"}";
+        
+        assertTrue(AlphaVantagePriceProvider.parseGlobalQuotePrice(stream(body)).isEmpty());
+    }
+    
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
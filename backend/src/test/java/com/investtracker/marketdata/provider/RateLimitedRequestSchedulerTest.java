@@ -0,0 +1,89 @@
+package com.investtracker.marketdata.provider;
+
+import com.investtracker.marketdata.config.MarketDataProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitedRequestSchedulerTest {
+    private static MarketDataProperties.RateLimit rateLimit(Duration period, Duration backgroundMaxWait) {
+        MarketDataProperties.RateLimit config = new MarketDataProperties.RateLimit();
+        config.setPermits(1);
+        config.setBurst(1);
+        config.setPeriod(period);
+        config.setInteractiveMaxWait(Duration.ofSeconds(5));
+        config.setBackgroundMaxWait(backgroundMaxWait);
+        return config;
+    }
+    
+    private static Mono<String> submit(RateLimitedRequestScheduler scheduler, String name, FetchPriority priority,
+                                       List<String> order) {
+        return scheduler.submit(() -> Mono.fromCallable(() -> {
+                order.add(name);
+                return name;
+            }))
+            .contextWrite(context -> context.put(FetchPriority.class, priority));
+    }
+    
+    @Test
+    void testInteractiveRequestsOvertakeQueuedBackgroundRequests() {
+        RateLimitedRequestScheduler scheduler = new RateLimitedRequestScheduler("test",
+            rateLimit(Duration.ofMillis(200), Duration.ofSeconds(5)), new SimpleMeterRegistry());
+        List<String> order = new CopyOnWriteArrayList<>();
+        
+        // Takes the only burst permit, so the next two requests queue
+        assertEquals("first", submit(scheduler, "first", FetchPriority.BACKGROUND, order).block());
+        
+        Mono<String> background = submit(scheduler, "background", FetchPriority.BACKGROUND, order).cache();
+        background.subscribe();
+        Mono<String> interactive = submit(scheduler, "interactive", FetchPriority.INTERACTIVE, order).cache();
+        interactive.subscribe();
+        
+        interactive.block(Duration.ofSeconds(2));
+        background.block(Duration.ofSeconds(2));
+        assertEquals(List.of("first", "interactive", "background"), order);
+        assertEquals(0, scheduler.queueSize());
+    }
+    
+    @Test
+    void testRequestThatCannotGetPermitInTimeFailsWithoutBeingSent() {
+        RateLimitedRequestScheduler scheduler = new RateLimitedRequestScheduler("test",
+            rateLimit(Duration.ofHours(1), Duration.ofMillis(50)), new SimpleMeterRegistry());
+        AtomicInteger sent = new AtomicInteger();
+        
+        scheduler.submit(() -> Mono.fromCallable(sent::incrementAndGet)).block();
+        
+        Mono<Integer> starved = scheduler.submit(() -> Mono.fromCallable(sent::incrementAndGet))
+            .contextWrite(context -> context.put(FetchPriority.class, FetchPriority.BACKGROUND));
+        assertThrows(ProviderThrottledException.class, () -> starved.block(Duration.ofSeconds(2)));
+        assertEquals(1, sent.get());
+        assertEquals(0, scheduler.queueSize());
+    }
+    
+    @Test
+    void testCloseFailsWaitingAndLaterRequests() {
+        RateLimitedRequestScheduler scheduler = new RateLimitedRequestScheduler("test",
+            rateLimit(Duration.ofHours(1), Duration.ofHours(1)), new SimpleMeterRegistry());
+        AtomicInteger sent = new AtomicInteger();
+        
+        scheduler.submit(() -> Mono.fromCallable(sent::incrementAndGet)).block();
+        Mono<Integer> waiting = scheduler.submit(() -> Mono.fromCallable(sent::incrementAndGet)).cache();
+        waiting.subscribe(value -> { }, error -> { });
+        assertEquals(1, scheduler.queueSize());
+        
+        scheduler.close();
+        
+        assertThrows(ProviderThrottledException.class, () -> waiting.block(Duration.ofSeconds(2)));
+        assertThrows(ProviderThrottledException.class,
+            () -> scheduler.submit(() -> Mono.fromCallable(sent::incrementAndGet)).block(Duration.ofSeconds(2)));
+        assertEquals(1, sent.get());
+        assertEquals(0, scheduler.queueSize());
+    }
+}
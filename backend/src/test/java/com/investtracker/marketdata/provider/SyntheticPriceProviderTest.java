@@ -0,0 +1,64 @@
+package com.investtracker.marketdata.provider;
+
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.marketdata.config.MarketDataProperties;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyntheticPriceProviderTest {
+    private final AtomicLong clock = new AtomicLong();
+    
+    @Test
+    void testPathsAreReproducibleRegardlessOfQueryPattern() {
+        MarketDataProperties.Synthetic config = config();
+        SyntheticPriceProvider frequent = new SyntheticPriceProvider(config, clock::get);
+        SyntheticPriceProvider sparse = new SyntheticPriceProvider(config, clock::get);
+        Asset asset = asset("AAPL", Asset.AssetType.STOCK);
+        
+        for (int second = 0; second < 600; second++) {
+            clock.set(second * 1000L);
+            frequent.priceNow(asset);
+            frequent.priceNow(asset("BTC", Asset.AssetType.CRYPTO));
+        }
+        BigDecimal expected = frequent.priceNow(asset);
+        
+        assertEquals(expected, sparse.priceNow(asset));
+        assertNotEquals(expected, sparse.priceNow(asset("MSFT", Asset.AssetType.STOCK)));
+    }
+    
+    @Test
+    void testConfiguredInitialPriceAndFailures() {
+        MarketDataProperties.Synthetic config = config();
+        config.getSymbols().put("AAPL", new MarketDataProperties.GbmParameters(new BigDecimal("150"), 0.05, 0.2));
+        config.setErrorRate(1.0);
+        SyntheticPriceProvider provider = new SyntheticPriceProvider(config, clock::get);
+        Asset asset = asset("AAPL", Asset.AssetType.STOCK);
+        
+        assertEquals(0, new BigDecimal("150").compareTo(provider.priceNow(asset)));
+        assertTrue(provider.getPrice(asset, "USD").isEmpty());
+        assertTrue(provider.getPrices(List.of(asset), "USD").isEmpty());
+        assertThrows(IllegalStateException.class, () -> provider.getPriceAsync(asset, "USD").block());
+    }
+    
+    private MarketDataProperties.Synthetic config() {
+        MarketDataProperties.Synthetic config = new MarketDataProperties.Synthetic();
+        config.setStart(Instant.EPOCH);
+        return config;
+    }
+    
+    private static Asset asset(String symbol, Asset.AssetType type) {
+        Asset asset = new Asset();
+        asset.setId(UUID.randomUUID());
+        asset.setSymbol(symbol);
+        asset.setAssetType(type);
+        asset.setCurrency("USD");
+        return asset;
+    }
+}
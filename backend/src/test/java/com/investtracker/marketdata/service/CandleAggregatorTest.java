@@ -0,0 +1,47 @@
+package com.investtracker.marketdata.service;
+
+import com.investtracker.marketdata.entity.CandleResolution;
+import com.investtracker.marketdata.entity.PriceCandle;
+import com.investtracker.marketdata.repository.PriceCandleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class CandleAggregatorTest {
+    private final PriceCandleRepository priceCandleRepository = mock(PriceCandleRepository.class);
+    private final CandleAggregator aggregator = new CandleAggregator(priceCandleRepository, new SimpleMeterRegistry());
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFailedFlushIsRetriedWithLaterPrices() {
+        UUID assetId = UUID.randomUUID();
+        LocalDateTime nineOClock = LocalDateTime.of(2024, 3, 1, 9, 0);
+        List<List<PriceCandle>> written = new ArrayList<>();
+        doThrow(new IllegalStateException("database down"))
+            .doAnswer(invocation -> written.add(new ArrayList<>((List<PriceCandle>) invocation.getArgument(0))))
+            .when(priceCandleRepository).upsertAll(anyList());
+        
+        aggregator.record(assetId, "USD", new BigDecimal("10"), nineOClock.plusSeconds(5));
+        aggregator.flush();
+        aggregator.record(assetId, "USD", new BigDecimal("12"), nineOClock.plusSeconds(30));
+        aggregator.flush();
+        
+        PriceCandle minute = written.get(0).stream()
+            .filter(candle -> candle.resolution() == CandleResolution.ONE_MINUTE)
+            .findFirst()
+            .orElseThrow();
+        assertEquals(new BigDecimal("10"), minute.open());
+        assertEquals(new BigDecimal("12"), minute.close());
+        assertEquals(2, minute.tickCount());
+        assertEquals(CandleResolution.values().length, written.get(0).size());
+    }
+}
@@ -0,0 +1,242 @@
+package com.investtracker.marketdata.service;
+
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.marketdata.config.MarketDataProperties;
+import com.investtracker.marketdata.provider.FetchPriority;
+import com.investtracker.marketdata.provider.PriceProvider;
+import com.investtracker.marketdata.provider.ProviderHealthRegistry;
+import com.investtracker.marketdata.provider.ProviderQuote;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceFetchPipelineTest {
+    
+    @Test
+    void testAssetsAreFetchedInProviderSizedBatches() {
+        FakeProvider coinGecko = new FakeProvider("CoinGecko", Asset.AssetType.CRYPTO, 2, Set.of());
+        PriceFetchPipeline pipeline = pipeline(List.of(coinGecko));
+        List<Asset> assets = List.of(crypto("BTC"), crypto("ETH"), crypto("SOL"));
+        
+        Map<Asset, ProviderQuote> quotes = pipeline.fetch(assets, "USD", quote -> { });
+        
+        assertEquals(3, quotes.size());
+        assertEquals(List.of(2, 1), coinGecko.batchSizes);
+    }
+    
+    @Test
+    void testUnpricedAssetsFallThroughToNextProvider() {
+        FakeProvider primary = new FakeProvider("CoinGecko", Asset.AssetType.CRYPTO, 100, Set.of("DOGE"));
+        FakeProvider fallback = new FakeProvider("CryptoPriceProvider", Asset.AssetType.CRYPTO, 100, Set.of());
+        PriceFetchPipeline pipeline = pipeline(List.of(primary, fallback));
+        Asset btc = crypto("BTC");
+        Asset doge = crypto("DOGE");
+        List<ProviderQuote> sunk = new ArrayList<>();
+        
+        Map<Asset, ProviderQuote> quotes = pipeline.fetch(List.of(btc, doge), "USD", sunk::add);
+        
+        assertEquals("CoinGecko", quotes.get(btc).source());
+        assertEquals("CryptoPriceProvider", quotes.get(doge).source());
+        assertEquals(2, sunk.size());
+        assertEquals(List.of(1), fallback.batchSizes);
+    }
+    
+    @Test
+    void testProviderWithOpenCircuitIsSkipped() {
+        FakeProvider primary = new FakeProvider("CoinGecko", Asset.AssetType.CRYPTO, 100, Set.of());
+        primary.failing = true;
+        FakeProvider fallback = new FakeProvider("CryptoPriceProvider", Asset.AssetType.CRYPTO, 100, Set.of());
+        MarketDataProperties properties = new MarketDataProperties();
+        properties.getProviders().getCircuitBreaker().setFailureThreshold(1);
+        PriceFetchPipeline pipeline = pipeline(List.of(primary, fallback), properties);
+        Asset btc = crypto("BTC");
+        
+        assertEquals("CryptoPriceProvider", pipeline.fetch(List.of(btc), "USD", quote -> { }).get(btc).source());
+        assertEquals("CryptoPriceProvider", pipeline.fetch(List.of(btc), "USD", quote -> { }).get(btc).source());
+        
+        assertEquals(List.of(1), primary.batchSizes);
+        assertEquals(List.of(1, 1), fallback.batchSizes);
+    }
+    
+    @Test
+    void testConfiguredChainOrderWinsOverRegistrationOrder() {
+        FakeProvider mock = new FakeProvider("CryptoPriceProvider", Asset.AssetType.CRYPTO, 100, Set.of());
+        FakeProvider coinGecko = new FakeProvider("CoinGecko", Asset.AssetType.CRYPTO, 100, Set.of());
+        MarketDataProperties properties = new MarketDataProperties();
+        properties.getProviders().getChain().put(Asset.AssetType.CRYPTO, List.of("CoinGecko", "CryptoPriceProvider"));
+        Asset btc = crypto("BTC");
+        
+        Map<Asset, ProviderQuote> quotes = pipeline(List.of(mock, coinGecko), properties).fetch(List.of(btc), "USD", quote -> { });
+        
+        assertEquals("CoinGecko", quotes.get(btc).source());
+        assertTrue(mock.batchSizes.isEmpty());
+    }
+    
+    @Test
+    void testSlowPrimaryIsHedgedToNextProvider() {
+        DelayedProvider primary = new DelayedProvider("CoinGecko", Duration.ofMillis(5));
+        DelayedProvider secondary = new DelayedProvider("CryptoPriceProvider", Duration.ofMillis(5));
+        MarketDataProperties properties = new MarketDataProperties();
+        properties.getFetch().getHedging().setMinimumCalls(1);
+        properties.getFetch().getHedging().setMinimumDelay(Duration.ofMillis(20));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PriceFetchPipeline pipeline = pipeline(List.of(primary, secondary), properties, meterRegistry);
+        Asset btc = crypto("BTC");
+        
+        assertEquals("CoinGecko", pipeline.fetch(List.of(btc), "USD", quote -> { }).get(btc).source());
+        
+        primary.delay = Duration.ofSeconds(5);
+        assertEquals("CryptoPriceProvider", pipeline.fetch(List.of(btc), "USD", quote -> { }).get(btc).source());
+        assertEquals(1.0, meterRegistry.get("marketdata.fetch.hedges").tag("result", "won").counter().count());
+        assertEquals(1, primary.cancelled.get());
+    }
+    
+    @Test
+    void testBackgroundFetchesAreNotHedged() {
+        DelayedProvider primary = new DelayedProvider("CoinGecko", Duration.ofMillis(5));
+        DelayedProvider secondary = new DelayedProvider("CryptoPriceProvider", Duration.ofMillis(5));
+        MarketDataProperties properties = new MarketDataProperties();
+        properties.getFetch().getHedging().setMinimumCalls(1);
+        properties.getFetch().getHedging().setMinimumDelay(Duration.ofMillis(20));
+        PriceFetchPipeline pipeline = pipeline(List.of(primary, secondary), properties);
+        Asset btc = crypto("BTC");
+        
+        pipeline.fetch(List.of(btc), "USD", quote -> { });
+        primary.delay = Duration.ofMillis(100);
+        
+        assertEquals("CoinGecko", pipeline.fetch(List.of(btc), "USD", FetchPriority.BACKGROUND, quote -> { }).get(btc).source());
+        assertEquals(0, secondary.calls.get());
+    }
+    
+    private static PriceFetchPipeline pipeline(List<PriceProvider> providers) {
+        return pipeline(providers, new MarketDataProperties());
+    }
+    
+    private static PriceFetchPipeline pipeline(List<PriceProvider> providers, MarketDataProperties properties) {
+        return pipeline(providers, properties, new SimpleMeterRegistry());
+    }
+    
+    private static PriceFetchPipeline pipeline(List<PriceProvider> providers, MarketDataProperties properties,
+                                               SimpleMeterRegistry meterRegistry) {
+        return new PriceFetchPipeline(new ProviderHealthRegistry(providers, properties, meterRegistry),
+            properties, Runnable::run, meterRegistry);
+    }
+    
+    private static Asset crypto(String symbol) {
+        Asset asset = new Asset();
+        asset.setId(UUID.randomUUID());
+        asset.setSymbol(symbol);
+        asset.setAssetType(Asset.AssetType.CRYPTO);
+        asset.setCurrency("USD");
+        return asset;
+    }
+    
+    private static class FakeProvider implements PriceProvider {
+        private final String name;
+        private final Asset.AssetType assetType;
+        private final int maxBatchSize;
+        private final Set<String> unknownSymbols;
+        private final List<Integer> batchSizes = new ArrayList<>();
+        private boolean failing;
+        
+        FakeProvider(String name, Asset.AssetType assetType, int maxBatchSize, Set<String> unknownSymbols) {
+            this.name = name;
+            this.assetType = assetType;
+            this.maxBatchSize = maxBatchSize;
+            this.unknownSymbols = unknownSymbols;
+        }
+        
+        @Override
+        public Optional<BigDecimal> getPrice(Asset asset, String currency) {
+            batchSizes.add(1);
+            if (failing) {
+                throw new IllegalStateException(name + " is down");
+            }
+            return unknownSymbols.contains(asset.getSymbol()) ? Optional.empty() : Optional.of(BigDecimal.TEN);
+        }
+        
+        @Override
+        public Map<Asset, BigDecimal> getPrices(Iterable<Asset> assets, String currency) {
+            Map<Asset, BigDecimal> prices = new HashMap<>();
+            int count = 0;
+            for (Asset asset : assets) {
+                count++;
+                if (!unknownSymbols.contains(asset.getSymbol())) {
+                    prices.put(asset, BigDecimal.TEN);
+                }
+            }
+            batchSizes.add(count);
+            if (failing) {
+                throw new IllegalStateException(name + " is down");
+            }
+            return prices;
+        }
+        
+        @Override
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+        
+        @Override
+        public boolean supports(Asset.AssetType type) {
+            return type == assetType;
+        }
+        
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+    
+    private static class DelayedProvider implements PriceProvider {
+        private final String name;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger cancelled = new AtomicInteger();
+        private volatile Duration delay;
+        
+        DelayedProvider(String name, Duration delay) {
+            this.name = name;
+            this.delay = delay;
+        }
+        
+        @Override
+        public Mono<BigDecimal> getPriceAsync(Asset asset, String currency) {
+            return Mono.delay(delay)
+                .doOnSubscribe(s -> calls.incrementAndGet())
+                .doOnCancel(cancelled::incrementAndGet)
+                .thenReturn(BigDecimal.TEN);
+        }
+        
+        @Override
+        public Optional<BigDecimal> getPrice(Asset asset, String currency) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public Map<Asset, BigDecimal> getPrices(Iterable<Asset> assets, String currency) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public boolean isNonBlocking() {
+            return true;
+        }
+        
+        @Override
+        public boolean supports(Asset.AssetType type) {
+            return type == Asset.AssetType.CRYPTO;
+        }
+        
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+}
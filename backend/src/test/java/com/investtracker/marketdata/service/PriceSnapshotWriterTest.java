@@ -0,0 +1,97 @@
+package com.investtracker.marketdata.service;
+
+import com.investtracker.marketdata.config.MarketDataProperties;
+import com.investtracker.marketdata.entity.PendingPriceSnapshot;
+import com.investtracker.marketdata.repository.PriceSnapshotBatchRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.SmartLifecycle;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PriceSnapshotWriterTest {
+    
+    private PriceSnapshotBatchRepository batchRepository;
+    private MarketDataProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    
+    @BeforeEach
+    void setUp() {
+        batchRepository = mock(PriceSnapshotBatchRepository.class);
+        properties = new MarketDataProperties();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+    
+    @Test
+    void testQueuedRowsAreWrittenInBatchesAndFlushedOnStop() {
+        properties.getSnapshots().getWriteBehind().setBatchSize(3);
+        properties.getSnapshots().getWriteBehind().setFlushInterval(Duration.ofMinutes(1));
+        List<List<PendingPriceSnapshot>> batches = captureBatches();
+        PriceSnapshotWriter writer = new PriceSnapshotWriter(batchRepository, properties, meterRegistry);
+        
+        writer.start();
+        for (int i = 0; i < 7; i++) {
+            writer.enqueue(snapshot());
+        }
+        writer.stop();
+        
+        assertEquals(7, batches.stream().mapToInt(List::size).sum());
+        assertTrue(batches.stream().allMatch(batch -> batch.size() <= 3));
+        assertEquals(7.0, meterRegistry.get("marketdata.snapshots.rows").tag("result", "written").counter().count());
+    }
+    
+    @Test
+    void testRowsEnqueuedAfterStopAreWrittenDirectly() {
+        List<List<PendingPriceSnapshot>> batches = captureBatches();
+        PriceSnapshotWriter writer = new PriceSnapshotWriter(batchRepository, properties, meterRegistry);
+        
+        writer.start();
+        writer.stop();
+        writer.enqueue(snapshot());
+        
+        assertEquals(1, batches.size());
+        assertEquals(1.0, meterRegistry.get("marketdata.snapshots.rows").tag("result", "written").counter().count());
+        assertTrue(writer.getPhase() < SmartLifecycle.DEFAULT_PHASE - 2048);
+    }
+    
+    @Test
+    void testFullQueueDropsOrSpillsPerPolicy() {
+        properties.getSnapshots().getWriteBehind().setQueueCapacity(1);
+        properties.getSnapshots().getWriteBehind().setEnqueueTimeout(Duration.ZERO);
+        PriceSnapshotWriter writer = new PriceSnapshotWriter(batchRepository, properties, meterRegistry);
+        
+        // Writer not started, so the single slot stays occupied
+        writer.enqueue(snapshot());
+        writer.enqueue(snapshot());
+        assertEquals(1.0, meterRegistry.get("marketdata.snapshots.rows").tag("result", "dropped").counter().count());
+        verifyNoInteractions(batchRepository);
+        
+        properties.getSnapshots().getWriteBehind().setOverflow(MarketDataProperties.OverflowPolicy.SPILL);
+        writer.enqueue(snapshot());
+        assertEquals(1.0, meterRegistry.get("marketdata.snapshots.rows").tag("result", "spilled").counter().count());
+        verify(batchRepository).insertAll(anyList());
+    }
+    
+    @SuppressWarnings("unchecked")
+    private List<List<PendingPriceSnapshot>> captureBatches() {
+        List<List<PendingPriceSnapshot>> batches = new ArrayList<>();
+        doAnswer(invocation -> {
+            batches.add(new ArrayList<>((List<PendingPriceSnapshot>) invocation.getArgument(0)));
+            return null;
+        }).when(batchRepository).insertAll(anyList());
+        return batches;
+    }
+    
+    private static PendingPriceSnapshot snapshot() {
+        return new PendingPriceSnapshot(UUID.randomUUID(), new BigDecimal("43500"), "USD", "CoinGecko", LocalDateTime.now());
+    }
+}
@@ -0,0 +1,80 @@
+package com.investtracker.marketdata.stream;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickRingBufferTest {
+    @Test
+    void testDrainReturnsTicksInPublishOrderOnce() {
+        TickRingBuffer buffer = new TickRingBuffer(8);
+        buffer.publish(tick(1));
+        buffer.publish(tick(2));
+        buffer.publish(tick(3));
+        
+        List<PriceTick> drained = new ArrayList<>();
+        assertEquals(0, buffer.drain(drained::add));
+        assertEquals(List.of(1L, 2L, 3L), drained.stream().map(PriceTick::timestampMillis).toList());
+        
+        drained.clear();
+        buffer.drain(drained::add);
+        assertTrue(drained.isEmpty());
+    }
+    
+    @Test
+    void testLappedConsumerKeepsNewestTicksAndCountsLost() {
+        TickRingBuffer buffer = new TickRingBuffer(4);
+        for (int i = 1; i <= 10; i++) {
+            buffer.publish(tick(i));
+        }
+        
+        List<PriceTick> drained = new ArrayList<>();
+        assertEquals(6, buffer.drain(drained::add));
+        assertEquals(List.of(7L, 8L, 9L, 10L), drained.stream().map(PriceTick::timestampMillis).toList());
+    }
+    
+    @Test
+    void testPendingFlagIsRaisedOncePerDrain() {
+        TickRingBuffer buffer = new TickRingBuffer(4);
+        assertTrue(buffer.markPending());
+        assertFalse(buffer.markPending());
+        
+        buffer.drain(tick -> { });
+        assertTrue(buffer.markPending());
+    }
+    
+    @Test
+    void testConcurrentProducersLoseNothingUnaccounted() throws InterruptedException {
+        TickRingBuffer buffer = new TickRingBuffer(64);
+        int producers = 4;
+        int perProducer = 20_000;
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    buffer.publish(tick(i));
+                }
+                done.countDown();
+            }).start();
+        }
+        
+        AtomicLong drained = new AtomicLong();
+        long lost = 0;
+        while (done.getCount() > 0) {
+            lost += buffer.drain(tick -> drained.incrementAndGet());
+        }
+        lost += buffer.drain(tick -> drained.incrementAndGet());
+        
+        assertEquals((long) producers * perProducer, drained.get() + lost);
+    }
+    
+    private static PriceTick tick(long timestamp) {
+        return new PriceTick(null, "USD", BigDecimal.valueOf(timestamp), "test", timestamp);
+    }
+}
@@ -1,5 +1,6 @@
 package com.investtracker.portfolio.service;
 
+import com.investtracker.analytics.service.PortfolioSummaryCache;
 import com.investtracker.portfolio.dto.PortfolioRequest;
 import com.investtracker.portfolio.dto.PortfolioResponse;
 import com.investtracker.portfolio.entity.Portfolio;
@@ -27,6 +28,9 @@ class PortfolioServiceTest {
     @Mock
     private PortfolioRepository portfolioRepository;
     
+    @Mock
+    private PortfolioSummaryCache portfolioSummaryCache;
+    
     @InjectMocks
     private PortfolioService portfolioService;
     
@@ -0,0 +1,99 @@
+package com.investtracker.position.engine;
+
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.transaction.entity.Transaction;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays synthetic ledgers of 1k, 100k and 1M transactions spread over up to 1,000 assets. Not run by
+ * the test suite; after {@code mvn test-compile} start {@link #main} from the IDE, or run
+ * {@code org.openjdk.jmh.Main HoldingsEngineBenchmark} on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class HoldingsEngineBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int transactions;
+    
+    private List<Transaction> ledger;
+    private HoldingsEngine engine;
+    
+    @Setup(Level.Trial)
+    public void createLedger() {
+        Random random = new Random(42);
+        Asset[] assets = new Asset[Math.max(1, Math.min(1000, transactions / 100))];
+        for (int i = 0; i < assets.length; i++) {
+            assets[i] = new Asset();
+            assets[i].setId(UUID.randomUUID());
+            assets[i].setSymbol("A" + i);
+        }
+        
+        // Prices and quantities come from small pools, as a real ledger repeats most of its values
+        BigDecimal[] prices = new BigDecimal[64];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = BigDecimal.valueOf(10_000 + random.nextInt(990_000), 2);
+        }
+        long[] held = new long[assets.length];
+        LocalDateTime start = LocalDateTime.of(2015, 1, 1, 0, 0);
+        
+        ledger = new ArrayList<>(transactions);
+        for (int i = 0; i < transactions; i++) {
+            int asset = random.nextInt(assets.length);
+            long quantity = 1 + random.nextInt(10);
+            boolean sell = held[asset] >= quantity && random.nextInt(3) == 0;
+            held[asset] += sell ? -quantity : quantity;
+            
+            Transaction tx = new Transaction();
+            tx.setAsset(assets[asset]);
+            tx.setTransactionType(sell ? Transaction.TransactionType.SELL : Transaction.TransactionType.BUY);
+            tx.setQuantity(BigDecimal.valueOf(quantity));
+            tx.setPrice(prices[random.nextInt(prices.length)]);
+            tx.setFee(BigDecimal.ONE);
+            tx.setTransactionDate(start.plusMinutes(i));
+            ledger.add(tx);
+        }
+        engine = new HoldingsEngine();
+    }
+    
+    @Benchmark
+    public void replay(Blackhole blackhole) {
+        engine.reset();
+        for (Transaction tx : ledger) {
+            engine.apply(tx);
+        }
+        for (int i = 0; i < engine.size(); i++) {
+            blackhole.consume(engine.get(i).getTotalCost());
+        }
+    }
+    
+    @Benchmark
+    public void replayWithNewEngine(Blackhole blackhole) {
+        HoldingsEngine fresh = new HoldingsEngine();
+        for (Transaction tx : ledger) {
+            fresh.apply(tx);
+        }
+        for (int i = 0; i < fresh.size(); i++) {
+            blackhole.consume(fresh.get(i).getTotalCost());
+        }
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(HoldingsEngineBenchmark.class.getSimpleName()).build()).run();
+    }
+}
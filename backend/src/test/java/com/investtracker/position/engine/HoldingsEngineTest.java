@@ -0,0 +1,91 @@
+package com.investtracker.position.engine;
+
+import com.investtracker.asset.entity.Asset;
+import com.investtracker.transaction.entity.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HoldingsEngineTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    
+    @Test
+    void testHoldingsAreIndexedByAssetInFirstSeenOrder() {
+        Asset btc = asset("BTC");
+        Asset eth = asset("ETH");
+        HoldingsEngine engine = new HoldingsEngine();
+        engine.apply(tx(eth, Transaction.TransactionType.BUY, "1", "2000", 0));
+        engine.apply(tx(btc, Transaction.TransactionType.BUY, "1", "40000", 1));
+        engine.apply(tx(eth, Transaction.TransactionType.BUY, "1", "3000", 2));
+        
+        assertEquals(2, engine.size());
+        assertSame(eth, engine.get(0).getAsset());
+        assertSame(btc, engine.get(1).getAsset());
+        assertEquals(new BigDecimal("2500.00000000"), engine.find(eth.getId()).getAveragePrice());
+    }
+    
+    @Test
+    void testSaleIsCostedAtTheAverageWhenSold() {
+        Asset btc = asset("BTC");
+        HoldingsEngine engine = new HoldingsEngine();
+        engine.apply(tx(btc, Transaction.TransactionType.BUY, "1", "100", 0));
+        Holding holding = engine.apply(tx(btc, Transaction.TransactionType.SELL, "1", "150", 1));
+        
+        assertEquals(new BigDecimal("100.00000000"), holding.getLastCostBasis());
+        assertEquals(new BigDecimal("50.00000000"), holding.getLastRealizedPnl());
+        
+        // A later, dearer purchase does not change what the earlier sale cost
+        engine.apply(tx(btc, Transaction.TransactionType.BUY, "1", "300", 2));
+        assertEquals(new BigDecimal("50.00000000"), holding.getRealizedPnl());
+        assertEquals(new BigDecimal("300.00000000"), holding.getAveragePrice());
+    }
+    
+    @Test
+    void testRejectedTransactionLeavesHoldingUnchanged() {
+        Asset btc = asset("BTC");
+        HoldingsEngine engine = new HoldingsEngine();
+        Holding holding = engine.apply(tx(btc, Transaction.TransactionType.BUY, "1", "100", 0));
+        
+        assertThrows(IllegalStateException.class,
+            () -> engine.apply(tx(btc, Transaction.TransactionType.SELL, "2", "100", 1)));
+        assertEquals(new BigDecimal("1.00000000"), holding.getQuantity());
+        assertEquals(START, holding.getLastTransactionDate());
+    }
+    
+    @Test
+    void testResetReusesHoldingsForTheNextLedger() {
+        HoldingsEngine engine = new HoldingsEngine();
+        Holding first = engine.apply(tx(asset("BTC"), Transaction.TransactionType.BUY, "1", "100", 0));
+        engine.reset();
+        Asset eth = asset("ETH");
+        Holding second = engine.apply(tx(eth, Transaction.TransactionType.BUY, "2", "10", 0));
+        
+        assertSame(first, second);
+        assertEquals(1, engine.size());
+        assertSame(eth, second.getAsset());
+        assertEquals(new BigDecimal("2.00000000"), second.getQuantity());
+        assertEquals(0, second.getRealizedPnl().signum());
+    }
+    
+    private static Asset asset(String symbol) {
+        Asset asset = new Asset();
+        asset.setId(UUID.randomUUID());
+        asset.setSymbol(symbol);
+        return asset;
+    }
+    
+    private static Transaction tx(Asset asset, Transaction.TransactionType type, String quantity, String price, int day) {
+        Transaction tx = new Transaction();
+        tx.setAsset(asset);
+        tx.setTransactionType(type);
+        tx.setQuantity(new BigDecimal(quantity));
+        tx.setPrice(new BigDecimal(price));
+        tx.setFee(BigDecimal.ZERO);
+        tx.setTransactionDate(START.plusDays(day));
+        return tx;
+    }
+}
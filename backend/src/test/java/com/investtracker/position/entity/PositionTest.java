@@ -0,0 +1,66 @@
+package com.investtracker.position.entity;
+
+import com.investtracker.transaction.entity.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    
+    @Test
+    void testBuysAverageTheCostIncludingFees() {
+        Position position = new Position();
+        position.apply(tx(Transaction.TransactionType.BUY, "2", "100", "2", 0));
+        position.apply(tx(Transaction.TransactionType.BUY, "2", "200", "2", 1));
+        
+        assertEquals(new BigDecimal("4.00000000"), position.getQuantity());
+        assertEquals(new BigDecimal("604.00000000"), position.getTotalCost());
+        assertEquals(new BigDecimal("151.00000000"), position.getAveragePrice());
+        assertEquals(START.plusDays(1), position.getLastTransactionDate());
+    }
+    
+    @Test
+    void testSellRealizesPnlAgainstAverageCost() {
+        Position position = new Position();
+        position.apply(tx(Transaction.TransactionType.BUY, "4", "150", "0", 0));
+        position.apply(tx(Transaction.TransactionType.SELL, "1", "200", "5", 1));
+        
+        assertEquals(new BigDecimal("3.00000000"), position.getQuantity());
+        assertEquals(new BigDecimal("450.00000000"), position.getTotalCost());
+        assertEquals(new BigDecimal("45.00000000"), position.getRealizedPnl());
+    }
+    
+    @Test
+    void testOversellIsRejected() {
+        Position position = new Position();
+        position.apply(tx(Transaction.TransactionType.DEPOSIT, "1", "10", "0", 0));
+        
+        assertThrows(IllegalStateException.class,
+            () -> position.apply(tx(Transaction.TransactionType.TRANSFER_OUT, "2", "10", "0", 1)));
+    }
+    
+    @Test
+    void testResetClearsEverything() {
+        Position position = new Position();
+        position.apply(tx(Transaction.TransactionType.BUY, "1", "10", "0", 0));
+        position.reset();
+        
+        assertEquals(0, position.getQuantity().signum());
+        assertEquals(0, position.getTotalCost().signum());
+        assertNull(position.getLastTransactionDate());
+    }
+    
+    private static Transaction tx(Transaction.TransactionType type, String quantity, String price, String fee, int day) {
+        Transaction tx = new Transaction();
+        tx.setTransactionType(type);
+        tx.setQuantity(new BigDecimal(quantity));
+        tx.setPrice(new BigDecimal(price));
+        tx.setFee(new BigDecimal(fee));
+        tx.setTransactionDate(START.plusDays(day));
+        return tx;
+    }
+}
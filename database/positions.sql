@@ -0,0 +1,18 @@
+-- Positions: running holding per (portfolio, asset), maintained by TransactionService on every ledger change
+CREATE TABLE IF NOT EXISTS positions (
+    id UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
+    portfolio_id UUID NOT NULL REFERENCES portfolios(id) ON DELETE CASCADE,
+    asset_id UUID NOT NULL REFERENCES assets(id) ON DELETE RESTRICT,
+    quantity DECIMAL(20, 8) NOT NULL DEFAULT 0,
+    total_cost DECIMAL(20, 8) NOT NULL DEFAULT 0,
+    average_price DECIMAL(20, 8) NOT NULL DEFAULT 0,
+    realized_pnl DECIMAL(20, 8) NOT NULL DEFAULT 0,
+    last_transaction_date TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE (portfolio_id, asset_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_transactions_portfolio_asset_date ON transactions(portfolio_id, asset_id, transaction_date);
+
+-- The application fills the table from the ledger on its first start with an empty positions table;
+-- to recompute later, invoke the rebuild operation of the Positions JMX endpoint (optionally with a portfolioId).
@@ -0,0 +1,25 @@
+-- OHLC candles rolled up from every fetched price (1-minute, 1-hour and 1-day buckets)
+CREATE TABLE IF NOT EXISTS price_candles (
+    asset_id UUID NOT NULL REFERENCES assets(id) ON DELETE CASCADE,
+    currency VARCHAR(10) NOT NULL,
+    resolution VARCHAR(3) NOT NULL CHECK (resolution IN ('1m', '1h', '1d')),
+    bucket_start TIMESTAMP NOT NULL,
+    open DECIMAL(20, 8) NOT NULL,
+    high DECIMAL(20, 8) NOT NULL,
+    low DECIMAL(20, 8) NOT NULL,
+    close DECIMAL(20, 8) NOT NULL,
+    tick_count INTEGER NOT NULL,
+    first_at TIMESTAMP NOT NULL,
+    last_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (asset_id, currency, resolution, bucket_start)
+);
+
+-- Backfill candles from the existing price history
+INSERT INTO price_candles (asset_id, currency, resolution, bucket_start, open, high, low, close, tick_count, first_at, last_at)
+SELECT asset_id, currency, buckets.resolution, date_trunc(buckets.unit, snapshot_date),
+       (array_agg(price ORDER BY snapshot_date))[1], MAX(price), MIN(price),
+       (array_agg(price ORDER BY snapshot_date DESC))[1], COUNT(*), MIN(snapshot_date), MAX(snapshot_date)
+FROM price_snapshots
+CROSS JOIN (VALUES ('1m', 'minute'), ('1h', 'hour'), ('1d', 'day')) AS buckets(resolution, unit)
+GROUP BY asset_id, currency, buckets.resolution, date_trunc(buckets.unit, snapshot_date)
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,9 @@
+-- Retention already applied to each price_snapshots month partition and asset type, recorded by
+-- PriceSnapshotMaintenanceScheduler so an expired month is compacted or deleted once rather than daily
+CREATE TABLE IF NOT EXISTS price_snapshot_retention (
+    partition_month DATE NOT NULL,
+    asset_type VARCHAR(20) NOT NULL,
+    stage VARCHAR(10) NOT NULL CHECK (stage IN ('COMPACTED', 'DELETED')),
+    applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (partition_month, asset_type)
+);
@@ -0,0 +1,39 @@
+-- Converts an existing price_snapshots table to monthly range partitions.
+-- Run once on installs created before partitioning; new installs get the partitioned table from schema.sql.
+BEGIN;
+
+ALTER TABLE price_snapshots RENAME TO price_snapshots_unpartitioned;
+DROP INDEX IF EXISTS idx_price_snapshots_asset_id;
+DROP INDEX IF EXISTS idx_price_snapshots_date;
+
+CREATE TABLE price_snapshots (
+    id UUID NOT NULL DEFAULT uuid_generate_v4(),
+    asset_id UUID NOT NULL REFERENCES assets(id) ON DELETE CASCADE,
+    price DECIMAL(20, 8) NOT NULL,
+    currency VARCHAR(10) NOT NULL,
+    snapshot_date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    source VARCHAR(50),
+    PRIMARY KEY (id, snapshot_date)
+) PARTITION BY RANGE (snapshot_date);
+
+CREATE INDEX idx_price_snapshots_asset_date ON price_snapshots(asset_id, snapshot_date);
+CREATE TABLE price_snapshots_default PARTITION OF price_snapshots DEFAULT;
+
+-- One partition per month from the oldest snapshot up to two months ahead
+DO $$
+DECLARE
+    month_start DATE := date_trunc('month', COALESCE((SELECT MIN(snapshot_date) FROM price_snapshots_unpartitioned), now()));
+BEGIN
+    WHILE month_start <= date_trunc('month', now()) + INTERVAL '2 months' LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF price_snapshots FOR VALUES FROM (%L) TO (%L)',
+            'price_snapshots_p' || to_char(month_start, 'YYYYMM'), month_start, month_start + INTERVAL '1 month');
+        month_start := month_start + INTERVAL '1 month';
+    END LOOP;
+END $$;
+
+INSERT INTO price_snapshots (id, asset_id, price, currency, snapshot_date, source)
+SELECT id, asset_id, price, currency, snapshot_date, source FROM price_snapshots_unpartitioned;
+
+DROP TABLE price_snapshots_unpartitioned;
+
+COMMIT;
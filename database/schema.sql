@@ -59,14 +59,58 @@ CREATE TABLE transactions (
     updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Positions: running holding per (portfolio, asset), maintained by TransactionService on every ledger change
+CREATE TABLE positions (
+    id UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
+    portfolio_id UUID NOT NULL REFERENCES portfolios(id) ON DELETE CASCADE,
+    asset_id UUID NOT NULL REFERENCES assets(id) ON DELETE RESTRICT,
+    quantity DECIMAL(20, 8) NOT NULL DEFAULT 0,
+    total_cost DECIMAL(20, 8) NOT NULL DEFAULT 0,
+    average_price DECIMAL(20, 8) NOT NULL DEFAULT 0,
+    realized_pnl DECIMAL(20, 8) NOT NULL DEFAULT 0,
+    last_transaction_date TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE (portfolio_id, asset_id)
+);
+
 -- Price snapshots table (for historical tracking)
+-- Range-partitioned by month; PriceSnapshotMaintenanceScheduler creates monthly partitions ahead of time and
+-- compacts or drops old ones. Rows outside every monthly partition land in price_snapshots_default.
 CREATE TABLE price_snapshots (
-    id UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
+    id UUID NOT NULL DEFAULT uuid_generate_v4(),
     asset_id UUID NOT NULL REFERENCES assets(id) ON DELETE CASCADE,
     price DECIMAL(20, 8) NOT NULL,
     currency VARCHAR(10) NOT NULL,
     snapshot_date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
-    source VARCHAR(50)
+    source VARCHAR(50),
+    PRIMARY KEY (id, snapshot_date)
+) PARTITION BY RANGE (snapshot_date);
+
+CREATE TABLE price_snapshots_default PARTITION OF price_snapshots DEFAULT;
+
+-- Retention already applied to each month partition and asset type, so expired months are processed once
+CREATE TABLE price_snapshot_retention (
+    partition_month DATE NOT NULL,
+    asset_type VARCHAR(20) NOT NULL,
+    stage VARCHAR(10) NOT NULL CHECK (stage IN ('COMPACTED', 'DELETED')),
+    applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (partition_month, asset_type)
+);
+
+-- OHLC candles rolled up from every fetched price (1-minute, 1-hour and 1-day buckets)
+CREATE TABLE price_candles (
+    asset_id UUID NOT NULL REFERENCES assets(id) ON DELETE CASCADE,
+    currency VARCHAR(10) NOT NULL,
+    resolution VARCHAR(3) NOT NULL CHECK (resolution IN ('1m', '1h', '1d')),
+    bucket_start TIMESTAMP NOT NULL,
+    open DECIMAL(20, 8) NOT NULL,
+    high DECIMAL(20, 8) NOT NULL,
+    low DECIMAL(20, 8) NOT NULL,
+    close DECIMAL(20, 8) NOT NULL,
+    tick_count INTEGER NOT NULL,
+    first_at TIMESTAMP NOT NULL,
+    last_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (asset_id, currency, resolution, bucket_start)
 );
 
 -- Price alerts table
@@ -89,10 +133,10 @@ CREATE INDEX idx_transactions_portfolio_id ON transactions(portfolio_id);
 CREATE INDEX idx_transactions_asset_id ON transactions(asset_id);
 CREATE INDEX idx_transactions_date ON transactions(transaction_date);
 CREATE INDEX idx_transactions_type ON transactions(transaction_type);
+CREATE INDEX idx_transactions_portfolio_asset_date ON transactions(portfolio_id, asset_id, transaction_date);
 CREATE INDEX idx_assets_symbol ON assets(symbol);
 CREATE INDEX idx_assets_type ON assets(asset_type);
-CREATE INDEX idx_price_snapshots_asset_id ON price_snapshots(asset_id);
-CREATE INDEX idx_price_snapshots_date ON price_snapshots(snapshot_date);
+CREATE INDEX idx_price_snapshots_asset_date ON price_snapshots(asset_id, snapshot_date);
 CREATE INDEX idx_price_alerts_user_id ON price_alerts(user_id);
 CREATE INDEX idx_price_alerts_asset_id ON price_alerts(asset_id);
 CREATE INDEX idx_price_alerts_active ON price_alerts(is_active) WHERE is_active = TRUE;